@@ -0,0 +1,93 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Images/second of the batched inference API at batch sizes 1, 4, 8 and 16.
+ * Results are printed to logcat under the "BatchBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchInferenceBenchmark {
+
+    private static final String TAG = "BatchBenchmark";
+    private static final int[] BATCH_SIZES = {1, 4, 8, 16};
+    private static final int IMAGES_PER_RUN = 64;
+
+    @Test
+    public void diseaseModel_imagesPerSecond() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        DiseaseModel model = new DiseaseModel(context);
+        try {
+            List<Bitmap> images = syntheticImages(IMAGES_PER_RUN);
+            for (int batchSize : BATCH_SIZES) {
+                // Warm-up pass so tensor reallocation for this batch size isn't timed
+                assertNotNull(model.predictDiseaseBatch(images.subList(0, batchSize)));
+
+                long start = System.nanoTime();
+                for (int from = 0; from < images.size(); from += batchSize) {
+                    List<DiseaseModel.Prediction> predictions =
+                            model.predictDiseaseBatch(images.subList(from, from + batchSize));
+                    assertEquals(batchSize, predictions.size());
+                }
+                report("DiseaseModel", batchSize, System.nanoTime() - start);
+            }
+        } finally {
+            model.close();
+        }
+    }
+
+    @Test
+    public void insectModel_imagesPerSecond() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        InsectModel model = new InsectModel(context);
+        try {
+            List<Bitmap> images = syntheticImages(IMAGES_PER_RUN);
+            for (int batchSize : BATCH_SIZES) {
+                assertNotNull(model.predictInsectBatch(images.subList(0, batchSize)));
+
+                long start = System.nanoTime();
+                for (int from = 0; from < images.size(); from += batchSize) {
+                    List<InsectModel.InsectPrediction> predictions =
+                            model.predictInsectBatch(images.subList(from, from + batchSize));
+                    assertEquals(batchSize, predictions.size());
+                }
+                report("InsectModel", batchSize, System.nanoTime() - start);
+            }
+        } finally {
+            model.close();
+        }
+    }
+
+    private static void report(String model, int batchSize, long nanos) {
+        double imagesPerSecond = IMAGES_PER_RUN / (nanos / 1_000_000_000.0);
+        Log.i(TAG, String.format("%s batch=%d: %.1f images/s", model, batchSize, imagesPerSecond));
+    }
+
+    private static List<Bitmap> syntheticImages(int count) {
+        Random random = new Random(1);
+        List<Bitmap> images = new ArrayList<>(count);
+        int[] pixels = new int[640 * 480];
+        for (int n = 0; n < count; n++) {
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            }
+            images.add(Bitmap.createBitmap(pixels, 640, 480, Bitmap.Config.ARGB_8888));
+        }
+        return images;
+    }
+}
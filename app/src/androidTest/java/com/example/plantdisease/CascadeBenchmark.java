@@ -0,0 +1,81 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNoException;
+
+/**
+ * End-to-end latency of DiseaseModel with and without the gatekeeper cascade on the
+ * {@link TestImages} fixtures, plus the cascade's escalation rate. Skipped when the
+ * gatekeeper model is not bundled. Results are printed to logcat under "CascadeBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class CascadeBenchmark {
+
+    private static final String TAG = "CascadeBenchmark";
+
+    @Test
+    public void cascade_escalationRateAndSavings() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<Bitmap> images = TestImages.fixtures();
+
+        GatekeeperModel gatekeeper;
+        try {
+            gatekeeper = new GatekeeperModel(context);
+        } catch (IOException e) {
+            assumeNoException("no gatekeeper model bundled", e);
+            return;
+        }
+
+        DiseaseModel model = new DiseaseModel(context, ModelConfig.Precision.FLOAT32);
+        try {
+            model.setCascade(null, 0f);
+            long fullOnly = timePass(model, images);
+
+            model.setCascade(gatekeeper, ModelConfig.DEFAULT_CASCADE_THRESHOLD);
+            long cascaded = timePass(model, images);
+
+            CascadeStats stats = model.getCascadeStats();
+            // Timed images plus the warm-up prediction
+            assertEquals(images.size() + 1, stats.getPredictions());
+            double measuredSavings = 1 - cascaded / (double) fullOnly;
+            Log.i(TAG, String.format("%d images: full model %.2f ms/image, cascade %.2f ms/image, " +
+                            "escalation rate %.1f%%, measured savings %.1f%% (%s)",
+                    images.size(),
+                    fullOnly / 1_000_000.0 / images.size(),
+                    cascaded / 1_000_000.0 / images.size(),
+                    stats.getEscalationRate() * 100, measuredSavings * 100, stats));
+        } finally {
+            // Also closes the gatekeeper
+            model.close();
+        }
+    }
+
+    // Total time to predict every image once, with the prediction cache emptied first
+    private static long timePass(DiseaseModel model, List<Bitmap> images) {
+        model.getCache().clear();
+        // Warm-up so tensor allocation isn't timed
+        assertNotNull(model.predictDisease(images.get(0)));
+        model.getCache().clear();
+
+        long start = System.nanoTime();
+        for (Bitmap image : images) {
+            assertNotNull(model.predictDisease(image));
+        }
+        long elapsed = System.nanoTime() - start;
+        model.getCache().clear();
+        return elapsed;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocations of ImagePreprocessor.process(Bitmap), the resize + normalize path of a
+ * prediction. It needs real Bitmaps, so it runs on a device rather than with the JVM
+ * unit tests.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImagePreprocessorAllocationTest {
+
+    private static final String TAG = "PreprocessAlloc";
+    private static final int IMG_SIZE = 224;
+    private static final int NUM_CLASSES = 38;
+    private static final int RUNS = 1_000;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void process_allocationStaysFlat() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, NUM_CLASSES);
+        // 256x256, so every call goes through the scaled scratch bitmap
+        List<Bitmap> images = TestImages.synthetic(4);
+
+        // The first call creates the scratch bitmap and canvas
+        for (Bitmap image : images) {
+            preprocessor.process(image);
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        Debug.resetThreadAllocCount();
+        for (int n = 0; n < RUNS; n++) {
+            preprocessor.process(images.get(n % images.size()));
+        }
+        int bytes = Debug.getThreadAllocSize();
+        int count = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, count + " allocations, " + bytes + " bytes over " + RUNS + " calls");
+        // The old path allocated a scaled bitmap and a 224x224 float tensor (~600 KB) per call
+        assertTrue("allocated " + bytes + " bytes over " + RUNS + " calls", bytes < 16 * 1024);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Float32 vs int8 model: mean latency per image and top-1 agreement on the fixture set.
+ * Uses the {@link TestImages} fixtures. Skipped when no quantized model is bundled.
+ * Results are printed to logcat under the "PrecisionCompare" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PrecisionComparisonTest {
+
+    private static final String TAG = "PrecisionCompare";
+    // Quantization may flip a few borderline images, but not many
+    private static final double MIN_AGREEMENT = 0.9;
+
+    @Test
+    public void diseaseModel_int8MatchesFloat() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<Bitmap> images = TestImages.fixtures();
+
+        DiseaseModel floatModel = new DiseaseModel(context, ModelConfig.Precision.FLOAT32);
+        DiseaseModel int8Model = new DiseaseModel(context, ModelConfig.Precision.INT8);
+        try {
+            assumeTrue("no quantized disease model bundled",
+                    int8Model.getPrecision() == ModelConfig.Precision.INT8);
+
+            // Warm-up so tensor allocation isn't timed. The batch path bypasses the prediction cache.
+            floatModel.predictDiseaseBatch(images.subList(0, 1));
+            int8Model.predictDiseaseBatch(images.subList(0, 1));
+
+            long floatNanos = 0, int8Nanos = 0;
+            int agree = 0;
+            for (int i = 0; i < images.size(); i++) {
+                List<Bitmap> one = images.subList(i, i + 1);
+                long start = System.nanoTime();
+                DiseaseModel.Prediction expected = floatModel.predictDiseaseBatch(one).get(0);
+                floatNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                DiseaseModel.Prediction actual = int8Model.predictDiseaseBatch(one).get(0);
+                int8Nanos += System.nanoTime() - start;
+
+                if (expected.diseaseName.equals(actual.diseaseName)) {
+                    agree++;
+                }
+            }
+            double agreement = report("DiseaseModel", images.size(), floatNanos, int8Nanos, agree);
+            assertTrue("top-1 agreement " + agreement, agreement >= MIN_AGREEMENT);
+        } finally {
+            floatModel.close();
+            int8Model.close();
+        }
+    }
+
+    @Test
+    public void insectModel_int8MatchesFloat() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<Bitmap> images = TestImages.fixtures();
+
+        InsectModel floatModel = new InsectModel(context, ModelConfig.Precision.FLOAT32);
+        InsectModel int8Model = new InsectModel(context, ModelConfig.Precision.INT8);
+        try {
+            assumeTrue("no quantized insect model bundled",
+                    int8Model.getPrecision() == ModelConfig.Precision.INT8);
+
+            floatModel.predictInsectBatch(images.subList(0, 1));
+            int8Model.predictInsectBatch(images.subList(0, 1));
+
+            long floatNanos = 0, int8Nanos = 0;
+            int agree = 0;
+            for (int i = 0; i < images.size(); i++) {
+                List<Bitmap> one = images.subList(i, i + 1);
+                long start = System.nanoTime();
+                InsectModel.InsectPrediction expected = floatModel.predictInsectBatch(one).get(0);
+                floatNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                InsectModel.InsectPrediction actual = int8Model.predictInsectBatch(one).get(0);
+                int8Nanos += System.nanoTime() - start;
+
+                if (expected.insectName.equals(actual.insectName)) {
+                    agree++;
+                }
+            }
+            double agreement = report("InsectModel", images.size(), floatNanos, int8Nanos, agree);
+            assertTrue("top-1 agreement " + agreement, agreement >= MIN_AGREEMENT);
+        } finally {
+            floatModel.close();
+            int8Model.close();
+        }
+    }
+
+    private static double report(String model, int count, long floatNanos, long int8Nanos, int agree) {
+        double floatMs = floatNanos / 1_000_000.0 / count;
+        double int8Ms = int8Nanos / 1_000_000.0 / count;
+        double agreement = agree / (double) count;
+        Log.i(TAG, String.format("%s on %d images: float32 %.2f ms, int8 %.2f ms (%.2fx), top-1 agreement %.1f%%",
+                model, count, floatMs, int8Ms, floatMs / int8Ms, agreement * 100));
+        return agreement;
+    }
+}
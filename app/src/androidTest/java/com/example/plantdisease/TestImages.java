@@ -0,0 +1,67 @@
+package com.example.plantdisease;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fixture images for the instrumented comparisons: everything in the test APK's
+ * assets/fixtures/ folder, or deterministic synthetic images when it is empty.
+ */
+final class TestImages {
+
+    private static final String TAG = "TestImages";
+    private static final String FIXTURE_DIR = "fixtures";
+
+    private TestImages() {
+    }
+
+    static List<Bitmap> fixtures() throws IOException {
+        AssetManager assets = InstrumentationRegistry.getInstrumentation().getContext().getAssets();
+        List<Bitmap> images = new ArrayList<>();
+        String[] names = assets.list(FIXTURE_DIR);
+        if (names != null) {
+            for (String name : names) {
+                try (InputStream in = assets.open(FIXTURE_DIR + "/" + name)) {
+                    Bitmap bitmap = BitmapFactory.decodeStream(in);
+                    if (bitmap != null) {
+                        images.add(bitmap);
+                    }
+                }
+            }
+        }
+        if (images.isEmpty()) {
+            Log.w(TAG, "No fixture images in assets/" + FIXTURE_DIR + ", using synthetic images");
+            images = synthetic(32);
+        }
+        return images;
+    }
+
+    // Smooth gradients rather than noise, so the models see something image-like
+    static List<Bitmap> synthetic(int count) {
+        Random random = new Random(9);
+        List<Bitmap> images = new ArrayList<>(count);
+        int size = 256;
+        int[] pixels = new int[size * size];
+        for (int n = 0; n < count; n++) {
+            int r = random.nextInt(256), g = random.nextInt(256), b = random.nextInt(256);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    pixels[y * size + x] = Color.rgb((r + x) & 0xFF, (g + y) & 0xFF, (b + x + y) & 0xFF);
+                }
+            }
+            images.add(Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888));
+        }
+        return images;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Disease + insect results for the {@link TestImages} fixtures: the two screens back to
+ * back (decode and predict twice) against one {@link PlantHealthScanner} pass (decode and
+ * preprocess once, both models concurrently). Photos are JPEG-encoded first so the decode
+ * is part of the measurement. Results are printed to logcat under "UnifiedScanBenchmark".
+ */
+@RunWith(AndroidJUnit4.class)
+public class UnifiedScanBenchmark {
+
+    private static final String TAG = "UnifiedScanBenchmark";
+
+    @Test
+    public void unifiedScan_isCheaperThanTwoScreens() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        List<byte[]> photos = new ArrayList<>();
+        for (Bitmap bitmap : TestImages.fixtures()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+            photos.add(out.toByteArray());
+        }
+
+        DiseaseModel diseaseModel = new DiseaseModel(context, ModelConfig.Precision.FLOAT32);
+        InsectModel insectModel = new InsectModel(context, ModelConfig.Precision.FLOAT32);
+        // Only the full model, so both paths do the same inference work
+        diseaseModel.setCascade(null, 0f);
+        PlantHealthScanner scanner = new PlantHealthScanner(diseaseModel, insectModel);
+        try {
+            diseaseModel.warmUp();
+            insectModel.warmUp();
+
+            clearCaches(diseaseModel, insectModel);
+            long separate = System.nanoTime();
+            for (byte[] photo : photos) {
+                DiseaseModel.Prediction disease = diseaseModel.predictDisease(decode(photo));
+                InsectModel.InsectPrediction insect = insectModel.predictInsect(decode(photo));
+                assertNotNull(disease);
+                assertNotNull(insect);
+            }
+            separate = System.nanoTime() - separate;
+
+            clearCaches(diseaseModel, insectModel);
+            long unified = System.nanoTime();
+            for (byte[] photo : photos) {
+                PlantHealthScanner.Result result = scanner.scan(decode(photo));
+                assertNotNull(result.disease);
+                assertNotNull(result.insect);
+            }
+            unified = System.nanoTime() - unified;
+            clearCaches(diseaseModel, insectModel);
+
+            Log.i(TAG, String.format("%d photos: two screens %.2f ms/photo, unified %.2f ms/photo (%.1f%% less)",
+                    photos.size(),
+                    separate / 1_000_000.0 / photos.size(),
+                    unified / 1_000_000.0 / photos.size(),
+                    (1 - unified / (double) separate) * 100));
+            Log.i(TAG, scanner.getStats().summary());
+            assertTrue("unified scan should not be slower", unified < separate);
+        } finally {
+            scanner.close();
+            diseaseModel.close();
+            insectModel.close();
+        }
+    }
+
+    private static Bitmap decode(byte[] photo) {
+        return BitmapFactory.decodeByteArray(photo, 0, photo.length);
+    }
+
+    private static void clearCaches(DiseaseModel diseaseModel, InsectModel insectModel) {
+        diseaseModel.getCache().clear();
+        insectModel.getCache().clear();
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.plantdisease;
+
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.DocumentsContract;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.LiveData;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Queue many photos (a multi-select or a whole folder) for a background scan through
+// both models. The scan itself runs in BulkScanWorker and survives leaving this screen
+// or the app being killed; this screen only starts jobs and shows their progress.
+public class BulkScanActivity extends AppCompatActivity {
+
+    private static final String TAG = "BulkScanActivity";
+    private static final int RESULTS_SHOWN = 50;
+
+    private TextView progressText;
+    private TextView resultsText;
+    private Button selectImagesBtn, selectFolderBtn;
+
+    // Database and folder listing stay off the main thread
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private LiveData<List<WorkInfo>> observedWork;
+    private long jobId = -1;
+
+    private final ActivityResultLauncher<String[]> imagesLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenMultipleDocuments(),
+            uris -> {
+                if (uris != null && !uris.isEmpty()) {
+                    ioExecutor.execute(() -> startJob(new ArrayList<>(uris)));
+                }
+            });
+
+    private final ActivityResultLauncher<Uri> folderLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocumentTree(),
+            treeUri -> {
+                if (treeUri != null) {
+                    ioExecutor.execute(() -> startJob(listFolderImages(treeUri)));
+                }
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_bulk_scan);
+
+        progressText = findViewById(R.id.bulkProgressText);
+        resultsText = findViewById(R.id.bulkResultsText);
+        selectImagesBtn = findViewById(R.id.selectImagesBtn);
+        selectFolderBtn = findViewById(R.id.selectFolderBtn);
+
+        selectImagesBtn.setOnClickListener(v -> imagesLauncher.launch(new String[]{"image/*"}));
+        selectFolderBtn.setOnClickListener(v -> folderLauncher.launch(null));
+
+        // Show the last job, which may still be running in the background
+        ioExecutor.execute(() -> {
+            long latest = BulkScanStore.get(this).getLatestJobId();
+            if (latest != -1) {
+                runOnUiThread(() -> observeJob(latest));
+            }
+        });
+    }
+
+    // Runs on ioExecutor
+    private void startJob(List<Uri> uris) {
+        if (uris.isEmpty()) {
+            runOnUiThread(() -> Toast.makeText(this, "No images found", Toast.LENGTH_SHORT).show());
+            return;
+        }
+        // The worker may run after a restart, when a one-time grant would be gone
+        for (Uri uri : uris) {
+            try {
+                getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (SecurityException e) {
+                Log.w(TAG, "No persistable permission for " + uri);
+            }
+        }
+        long id = BulkScanStore.get(this).createJob(uris);
+        BulkScanWorker.enqueue(this, id);
+        Log.i(TAG, "Queued job " + id + " with " + uris.size() + " images");
+        runOnUiThread(() -> {
+            Toast.makeText(this, "Queued " + uris.size() + " images", Toast.LENGTH_SHORT).show();
+            observeJob(id);
+        });
+    }
+
+    // Images directly inside the picked folder
+    private List<Uri> listFolderImages(Uri treeUri) {
+        List<Uri> uris = new ArrayList<>();
+        try {
+            getContentResolver().takePersistableUriPermission(treeUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            Log.w(TAG, "No persistable permission for " + treeUri);
+        }
+        Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(
+                treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+        String[] projection = {
+                DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+                DocumentsContract.Document.COLUMN_MIME_TYPE
+        };
+        try (Cursor cursor = getContentResolver().query(children, projection, null, null, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                String mimeType = cursor.getString(1);
+                if (mimeType != null && mimeType.startsWith("image/")) {
+                    uris.add(DocumentsContract.buildDocumentUriUsingTree(treeUri, cursor.getString(0)));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Could not list folder", e);
+        }
+        return uris;
+    }
+
+    private void observeJob(long id) {
+        if (observedWork != null) {
+            observedWork.removeObservers(this);
+        }
+        jobId = id;
+        observedWork = WorkManager.getInstance(this)
+                .getWorkInfosForUniqueWorkLiveData(BulkScanWorker.uniqueWorkName(id));
+        observedWork.observe(this, infos -> {
+            if (infos == null || infos.isEmpty()) {
+                return;
+            }
+            WorkInfo info = infos.get(0);
+            showProgress(info);
+            refreshResults();
+        });
+    }
+
+    private void showProgress(WorkInfo info) {
+        Data data = info.getState().isFinished() ? info.getOutputData() : info.getProgress();
+        int total = data.getInt(BulkScanWorker.KEY_TOTAL, 0);
+        int done = data.getInt(BulkScanWorker.KEY_DONE, 0);
+        int failed = data.getInt(BulkScanWorker.KEY_FAILED, 0);
+        double rate = data.getDouble(BulkScanWorker.KEY_IMAGES_PER_MINUTE, 0);
+
+        switch (info.getState()) {
+            case ENQUEUED:
+            case BLOCKED:
+                progressText.setText("Job " + jobId + ": waiting to start...");
+                break;
+            case RUNNING:
+                if (total == 0) {
+                    progressText.setText("Job " + jobId + ": loading models...");
+                } else {
+                    progressText.setText(String.format("Job %d: %d / %d scanned (%d failed)\n%.1f images/min",
+                            jobId, done + failed, total, failed, rate));
+                }
+                break;
+            case SUCCEEDED:
+                progressText.setText(String.format("✓ Job %d finished: %d scanned, %d failed\n%.1f images/min",
+                        jobId, done, failed, rate));
+                break;
+            default:
+                progressText.setText("❌ Job " + jobId + " stopped (" + info.getState() + ")");
+                break;
+        }
+    }
+
+    private void refreshResults() {
+        long id = jobId;
+        ioExecutor.execute(() -> {
+            List<BulkScanStore.Result> results = BulkScanStore.get(this).getResults(id, RESULTS_SHOWN);
+            StringBuilder text = new StringBuilder();
+            for (BulkScanStore.Result result : results) {
+                text.append(Uri.parse(result.uri).getLastPathSegment()).append('\n');
+                if (result.error != null) {
+                    text.append("  ❌ ").append(result.error).append("\n\n");
+                } else {
+                    text.append(String.format("  Disease: %s (%.1f%%)\n  Insect: %s (%.1f%%)\n\n",
+                            result.disease, result.diseaseConfidence * 100,
+                            result.insect, result.insectConfidence * 100));
+                }
+            }
+            runOnUiThread(() -> {
+                if (id == jobId) {
+                    resultsText.setText(text.toString());
+                }
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Only stops the screen's own work; the scan keeps running in WorkManager
+        ioExecutor.shutdown();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.plantdisease;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+import java.util.ArrayList;
+import java.util.List;
+
+// Durable state of bulk scans: one row per job and one per image.
+// Items start PENDING and are flipped to DONE/FAILED together with their results in
+// one transaction per batch, so the item table doubles as the checkpoint: a worker
+// that is killed and restarted only picks up what is still PENDING.
+public class BulkScanStore extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "bulk_scan.db";
+    private static final int DB_VERSION = 1;
+
+    static final int STATUS_PENDING = 0;
+    static final int STATUS_DONE = 1;
+    static final int STATUS_FAILED = 2;
+
+    private static BulkScanStore instance;
+
+    // One image of a job that still has to be scanned
+    public static class Item {
+        public final long id;
+        public final Uri uri;
+
+        Item(long id, Uri uri) {
+            this.id = id;
+            this.uri = uri;
+        }
+    }
+
+    // Outcome for one image; error is null when both models ran
+    public static class Result {
+        public final long itemId;
+        public final String uri;
+        public final String disease;
+        public final float diseaseConfidence;
+        public final String insect;
+        public final float insectConfidence;
+        public final String error;
+
+        public Result(long itemId, String uri, String disease, float diseaseConfidence,
+                      String insect, float insectConfidence, String error) {
+            this.itemId = itemId;
+            this.uri = uri;
+            this.disease = disease;
+            this.diseaseConfidence = diseaseConfidence;
+            this.insect = insect;
+            this.insectConfidence = insectConfidence;
+            this.error = error;
+        }
+
+        static Result failed(Item item, String error) {
+            return new Result(item.id, item.uri.toString(), null, 0f, null, 0f, error);
+        }
+    }
+
+    public static class Progress {
+        public final int total;
+        public final int done;
+        public final int failed;
+
+        Progress(int total, int done, int failed) {
+            this.total = total;
+            this.done = done;
+            this.failed = failed;
+        }
+
+        public int remaining() {
+            return total - done - failed;
+        }
+    }
+
+    private BulkScanStore(Context context) {
+        this(context, DB_NAME);
+    }
+
+    // A null name keeps the database in memory, for tests
+    BulkScanStore(Context context, String dbName) {
+        super(context.getApplicationContext(), dbName, null, DB_VERSION);
+    }
+
+    public static synchronized BulkScanStore get(Context context) {
+        if (instance == null) {
+            instance = new BulkScanStore(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE jobs (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "created INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE items (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "job_id INTEGER NOT NULL, " +
+                "uri TEXT NOT NULL, " +
+                "status INTEGER NOT NULL DEFAULT " + STATUS_PENDING + ", " +
+                "disease TEXT, " +
+                "disease_confidence REAL, " +
+                "insect TEXT, " +
+                "insect_confidence REAL, " +
+                "error TEXT, " +
+                "finished INTEGER)");
+        db.execSQL("CREATE INDEX items_job_status ON items (job_id, status)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS items");
+        db.execSQL("DROP TABLE IF EXISTS jobs");
+        onCreate(db);
+    }
+
+    // Queue a new job with all its images; returns the job id
+    public long createJob(List<Uri> uris) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues job = new ContentValues();
+            job.put("created", System.currentTimeMillis());
+            long jobId = db.insertOrThrow("jobs", null, job);
+            for (Uri uri : uris) {
+                ContentValues item = new ContentValues();
+                item.put("job_id", jobId);
+                item.put("uri", uri.toString());
+                db.insertOrThrow("items", null, item);
+            }
+            db.setTransactionSuccessful();
+            return jobId;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public List<Item> getPendingItems(long jobId) {
+        List<Item> items = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("items", new String[]{"id", "uri"},
+                "job_id = ? AND status = ?", new String[]{String.valueOf(jobId), String.valueOf(STATUS_PENDING)},
+                null, null, "id")) {
+            while (cursor.moveToNext()) {
+                items.add(new Item(cursor.getLong(0), Uri.parse(cursor.getString(1))));
+            }
+        }
+        return items;
+    }
+
+    // Store a batch of results and mark their items finished, atomically
+    public void saveResults(List<Result> results) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long now = System.currentTimeMillis();
+            for (Result result : results) {
+                ContentValues values = new ContentValues();
+                values.put("status", result.error == null ? STATUS_DONE : STATUS_FAILED);
+                values.put("disease", result.disease);
+                values.put("disease_confidence", result.diseaseConfidence);
+                values.put("insect", result.insect);
+                values.put("insect_confidence", result.insectConfidence);
+                values.put("error", result.error);
+                values.put("finished", now);
+                db.update("items", values, "id = ?", new String[]{String.valueOf(result.itemId)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public Progress getProgress(long jobId) {
+        int total = 0, done = 0, failed = 0;
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT status, COUNT(*) FROM items WHERE job_id = ? GROUP BY status",
+                new String[]{String.valueOf(jobId)})) {
+            while (cursor.moveToNext()) {
+                int count = cursor.getInt(1);
+                total += count;
+                if (cursor.getInt(0) == STATUS_DONE) {
+                    done = count;
+                } else if (cursor.getInt(0) == STATUS_FAILED) {
+                    failed = count;
+                }
+            }
+        }
+        return new Progress(total, done, failed);
+    }
+
+    // Most recently finished results of a job, newest first
+    public List<Result> getResults(long jobId, int limit) {
+        List<Result> results = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query("items",
+                new String[]{"id", "uri", "disease", "disease_confidence", "insect", "insect_confidence", "error"},
+                "job_id = ? AND status != ?", new String[]{String.valueOf(jobId), String.valueOf(STATUS_PENDING)},
+                null, null, "finished DESC, id DESC", String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                results.add(new Result(cursor.getLong(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getFloat(3),
+                        cursor.getString(4), cursor.getFloat(5),
+                        cursor.getString(6)));
+            }
+        }
+        return results;
+    }
+
+    // Id of the newest job, or -1 when there is none
+    public long getLatestJobId() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT MAX(id) FROM jobs", null)) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Background bulk scan of one job from BulkScanStore.
+// Pending images are cut into batches that run through both models with a small,
+// fixed number of batches in flight. Every finished batch is committed to the store,
+// so if the process dies WorkManager restarts the worker and it resumes from there.
+// The same goes for jobs that outlive WorkManager's execution window: they are stopped,
+// rescheduled and continue with the images still pending.
+public class BulkScanWorker extends Worker {
+
+    private static final String TAG = "BulkScanWorker";
+
+    static final String KEY_JOB_ID = "job_id";
+    static final String KEY_TOTAL = "total";
+    static final String KEY_DONE = "done";
+    static final String KEY_FAILED = "failed";
+    static final String KEY_IMAGES_PER_MINUTE = "images_per_minute";
+
+    // Images per model invocation
+    private static final int BATCH_SIZE = 8;
+    // Batches decoded and scanned at the same time; more only adds memory pressure
+    private static final int PARALLELISM = 2;
+    // Runs in a row that may fail to predict before the images are given up on; a model
+    // that fails every time (corrupt file, bad version) must not retry forever
+    static final int MAX_PREDICTION_ATTEMPTS = 3;
+
+    private final BulkScanStore store;
+    private final ImageLoader imageLoader;
+
+    // Progress of this run
+    private final AtomicInteger processed = new AtomicInteger();
+    // A batch could not be scanned and was left pending for the next run
+    private final AtomicBoolean retryNeeded = new AtomicBoolean();
+    private long startMillis;
+
+    public BulkScanWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        store = BulkScanStore.get(context);
+        imageLoader = new ImageLoader(context);
+    }
+
+    static String uniqueWorkName(long jobId) {
+        return "bulk_scan_" + jobId;
+    }
+
+    // Start (or keep) the worker for a job
+    public static void enqueue(Context context, long jobId) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(BulkScanWorker.class)
+                .setInputData(new Data.Builder().putLong(KEY_JOB_ID, jobId).build())
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(uniqueWorkName(jobId), ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long jobId = getInputData().getLong(KEY_JOB_ID, -1);
+        List<BulkScanStore.Item> pending = store.getPendingItems(jobId);
+        BulkScanStore.Progress progress = store.getProgress(jobId);
+        Log.i(TAG, "Job " + jobId + ": " + pending.size() + " of " + progress.total + " images left");
+        if (pending.isEmpty()) {
+            return Result.success(progressData(progress, 0));
+        }
+
+        ModelRegistry registry = ModelRegistry.get(getApplicationContext());
+        ModelRegistry.BlockingListener<DiseaseModel> diseaseListener = new ModelRegistry.BlockingListener<>();
+        ModelRegistry.BlockingListener<InsectModel> insectListener = new ModelRegistry.BlockingListener<>();
+        registry.acquireDiseaseModel(diseaseListener);
+        registry.acquireInsectModel(insectListener);
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        try {
+            DiseaseModel diseaseModel = diseaseListener.await();
+            InsectModel insectModel = insectListener.await();
+
+            startMillis = System.currentTimeMillis();
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+                List<BulkScanStore.Item> batch = pending.subList(from, Math.min(pending.size(), from + BATCH_SIZE));
+                batches.add(executor.submit(() -> scanBatch(jobId, batch, diseaseModel, insectModel)));
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+
+            if (retryNeeded.get()) {
+                Log.i(TAG, "Job " + jobId + ": some images left pending, retrying later");
+                return Result.retry();
+            }
+            BulkScanStore.Progress finished = store.getProgress(jobId);
+            Log.i(TAG, "Job " + jobId + " finished: " + finished.done + " done, " + finished.failed +
+                    " failed, " + String.format("%.1f", imagesPerMinute()) + " images/min");
+            return Result.success(progressData(finished, imagesPerMinute()));
+
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager; committed batches are kept and the rest resumes later
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Job " + jobId + " failed", e);
+            return isStopped() ? Result.retry() : Result.failure();
+        } finally {
+            executor.shutdownNow();
+            registry.releaseDiseaseModel(diseaseListener);
+            registry.releaseInsectModel(insectListener);
+        }
+    }
+
+    private void scanBatch(long jobId, List<BulkScanStore.Item> batch,
+                           DiseaseModel diseaseModel, InsectModel insectModel) {
+        if (isStopped()) {
+            return;
+        }
+        List<BulkScanStore.Result> results = new ArrayList<>(batch.size());
+        List<BulkScanStore.Item> decodedItems = new ArrayList<>(batch.size());
+        List<Bitmap> bitmaps = new ArrayList<>(batch.size());
+        for (BulkScanStore.Item item : batch) {
+            Bitmap bitmap;
+            try {
+                bitmap = imageLoader.loadForModel(item.uri);
+            } catch (Exception e) {
+                Log.w(TAG, "Could not decode " + item.uri, e);
+                results.add(BulkScanStore.Result.failed(item, "Could not read image"));
+                continue;
+            }
+            // Unusable photos are reported instead of scanned
+            ImageQualityGate.Verdict quality = ImageQualityGate.get().evaluate(bitmap);
+            if (quality.isRejected()) {
+                bitmap.recycle();
+                results.add(BulkScanStore.Result.failed(item, quality.describe()));
+                continue;
+            }
+            bitmaps.add(bitmap);
+            decodedItems.add(item);
+        }
+
+        if (!bitmaps.isEmpty()) {
+            List<DiseaseModel.Prediction> diseases = diseaseModel.predictDiseaseBatch(bitmaps);
+            List<InsectModel.InsectPrediction> insects = insectModel.predictInsectBatch(bitmaps);
+            if ((diseases == null || insects == null) && isLastAttempt(getRunAttemptCount())) {
+                Log.e(TAG, "Job " + jobId + ": prediction failed on attempt " + (getRunAttemptCount() + 1) +
+                        ", giving up on " + decodedItems.size() + " image(s)");
+                for (BulkScanStore.Item item : decodedItems) {
+                    results.add(BulkScanStore.Result.failed(item, "Prediction failed"));
+                }
+            } else if (diseases == null || insects == null) {
+                // Usually an interrupt or a transient model error, not a bad image: leave these
+                // pending for the retry and only commit the unreadable/rejected ones
+                Log.w(TAG, "Job " + jobId + ": prediction failed, " + decodedItems.size() + " image(s) left pending");
+                retryNeeded.set(true);
+            } else {
+                for (int i = 0; i < decodedItems.size(); i++) {
+                    BulkScanStore.Item item = decodedItems.get(i);
+                    results.add(new BulkScanStore.Result(item.id, item.uri.toString(),
+                            diseases.get(i).diseaseName, diseases.get(i).confidence,
+                            insects.get(i).insectName, insects.get(i).confidence, null));
+                }
+            }
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+        }
+
+        if (isStopped()) {
+            // Interrupted mid-batch: leave it pending for the next run
+            return;
+        }
+        // Checkpoint: these images are never scanned again
+        store.saveResults(results);
+        processed.addAndGet(results.size());
+
+        BulkScanStore.Progress progress = store.getProgress(jobId);
+        double rate = imagesPerMinute();
+        setProgressAsync(progressData(progress, rate));
+        Log.i(TAG, "Job " + jobId + ": " + (progress.done + progress.failed) + "/" + progress.total +
+                String.format(", %.1f images/min", rate));
+    }
+
+    // runAttemptCount counts from 0 for the first run
+    static boolean isLastAttempt(int runAttemptCount) {
+        return runAttemptCount + 1 >= MAX_PREDICTION_ATTEMPTS;
+    }
+
+    // Throughput of this run (earlier runs of a resumed job are not counted)
+    private double imagesPerMinute() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startMillis);
+        return processed.get() * 60_000.0 / elapsed;
+    }
+
+    private static Data progressData(BulkScanStore.Progress progress, double imagesPerMinute) {
+        return new Data.Builder()
+                .putInt(KEY_TOTAL, progress.total)
+                .putInt(KEY_DONE, progress.done)
+                .putInt(KEY_FAILED, progress.failed)
+                .putDouble(KEY_IMAGES_PER_MINUTE, imagesPerMinute)
+                .build();
+    }
+}
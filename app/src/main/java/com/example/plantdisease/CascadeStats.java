@@ -0,0 +1,54 @@
+package com.example.plantdisease;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters of the gatekeeper -> full model cascade: how often the full model still
+// had to run, and what the cascade saves compared with always running it.
+public class CascadeStats {
+
+    private final AtomicLong gated = new AtomicLong();
+    private final AtomicLong escalated = new AtomicLong();
+    private final LatencyHistogram gateLatency = new LatencyHistogram();
+    private final LatencyHistogram fullLatency = new LatencyHistogram();
+
+    public void recordGate(long nanos, boolean escalatedToFull) {
+        gateLatency.recordNanos(nanos);
+        if (escalatedToFull) {
+            escalated.incrementAndGet();
+        } else {
+            gated.incrementAndGet();
+        }
+    }
+
+    public void recordFull(long nanos) {
+        fullLatency.recordNanos(nanos);
+    }
+
+    public long getPredictions() {
+        return gated.get() + escalated.get();
+    }
+
+    // Fraction of images the gatekeeper passed on to the full model
+    public double getEscalationRate() {
+        long total = getPredictions();
+        return total == 0 ? 0 : escalated.get() / (double) total;
+    }
+
+    // Expected latency saved per image versus always running the full model:
+    // 1 - (gate + escalationRate * full) / full. Negative when the cascade costs more.
+    public double getEstimatedSavings() {
+        double full = fullLatency.getMeanMicros();
+        if (full == 0) {
+            return 0;
+        }
+        return 1 - (gateLatency.getMeanMicros() + getEscalationRate() * full) / full;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cascade n=%d escalated=%.1f%% gate=%.2fms full=%.2fms savings=%.1f%%",
+                getPredictions(), getEscalationRate() * 100,
+                gateLatency.getMeanMicros() / 1000.0, fullLatency.getMeanMicros() / 1000.0,
+                getEstimatedSavings() * 100);
+    }
+}
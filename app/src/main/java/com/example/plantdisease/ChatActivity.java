@@ -20,7 +20,6 @@ import java.io.IOException;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
@@ -37,8 +36,6 @@ public class ChatActivity extends AppCompatActivity {
     private static final String SERVER_URL =
             "https://chatgpt-backend-m3jh.onrender.com/chat";
 
-    private final OkHttpClient client = new OkHttpClient();
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,7 +75,7 @@ public class ChatActivity extends AppCompatActivity {
                     .post(body)
                     .build();
 
-            client.newCall(request).enqueue(new Callback() {
+            HttpStack.get(this).client(HttpStack.Endpoint.CHAT).newCall(request).enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
                     runOnUiThread(() ->
@@ -3,154 +3,485 @@ package com.example.plantdisease;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DiseaseModel {
-    private Interpreter tflite;
-    private List<String> diseaseLabels;
+    static final String MODEL_ASSET = "plant_disease_model.tflite";
+    private static final String LABELS_ASSET = "disease_labels.json";
+    static final String STORE_NAME = "plant_disease_model";
     private static final int IMG_SIZE = 224;
-    private static final int NUM_THREADS = 4;
+    private static final int CACHE_SIZE = 256;
     private static final String TAG = "DiseaseModel";
+    // "Tomato___Early_blight" is shown as "Tomato - Early blight"
+    private static final VersionedModel.Loader LOADER = new VersionedModel.AssetLoader(TAG,
+            MODEL_ASSET, LABELS_ASSET, "disease_prediction_cache", IMG_SIZE, CACHE_SIZE,
+            name -> name.replace("___", " - ").replace("_", " "));
+    // Interpreters, labels and cache of the live version
+    private final VersionedModel versions;
+    private final InferenceStats stats = new InferenceStats(TAG);
+
+    // Optional first stage (see GatekeeperModel); null runs the full model on every image
+    private volatile GatekeeperModel gatekeeper;
+    private volatile float escalationThreshold;
+    private final CascadeStats cascadeStats = new CascadeStats();
+
+    // Test-time augmentation for borderline predictions; 0 views turns it off
+    private volatile int ttaViews;
+    private volatile float ttaThreshold;
+    private final AtomicLong ttaRuns = new AtomicLong();
+    private final AtomicLong ttaChangedTop1 = new AtomicLong();
 
     public static class Prediction {
+        static final int NO_VERDICT = -1;
+
+        // Entry of disease_labels.json, or null when the cascade's gatekeeper answered alone
         public String diseaseName;
         public float confidence;
+        // GatekeeperModel.HEALTHY or NOT_A_LEAF when the gatekeeper answered alone; its
+        // classes have no entry in the disease labels
+        public int gatekeeperVerdict = NO_VERDICT;
 
         public Prediction(String name, float conf) {
             diseaseName = name;
             confidence = conf;
         }
+
+        static Prediction fromGatekeeper(GatekeeperModel.Verdict verdict) {
+            Prediction prediction = new Prediction(null, verdict.confidence);
+            prediction.gatekeeperVerdict = verdict.label;
+            return prediction;
+        }
+
+        // The disease label, or the gatekeeper's verdict, for display
+        public String displayName() {
+            if (gatekeeperVerdict == GatekeeperModel.HEALTHY) {
+                return "Healthy leaf";
+            } else if (gatekeeperVerdict == GatekeeperModel.NOT_A_LEAF) {
+                return "Not a plant leaf";
+            }
+            return diseaseName;
+        }
     }
 
     public DiseaseModel(Context context) throws Exception {
+        this(context, ModelConfig.getPrecision(context));
+    }
+
+    public DiseaseModel(Context context, ModelConfig.Precision requestedPrecision) throws Exception {
         try {
             Log.i(TAG, "Starting model initialization...");
+            versions = new VersionedModel(TAG, context.getApplicationContext(),
+                    ModelStore.forModel(context, STORE_NAME), MemoryManager.get(context), LOADER, requestedPrecision);
 
-            // Load disease labels first
-            diseaseLabels = loadLabels(context);
-            Log.i(TAG, "Labels loaded: " + diseaseLabels.size() + " classes");
-
-            // Load TFLite model
-            Log.i(TAG, "Loading TFLite model from assets...");
-            MappedByteBuffer tfliteModel = FileUtil.loadMappedFile(context, "plant_disease_model.tflite");
-            Log.i(TAG, "Model buffer loaded, size: " + tfliteModel.capacity() + " bytes");
-
-            // Create interpreter
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(NUM_THREADS);
-
-            Log.i(TAG, "Creating interpreter...");
-            tflite = new Interpreter(tfliteModel, options);
+            if (ModelConfig.isCascadeEnabled(context)) {
+                try {
+                    setCascade(new GatekeeperModel(context), ModelConfig.getCascadeThreshold(context));
+                } catch (IOException e) {
+                    Log.w(TAG, "Cascade enabled but " + GatekeeperModel.ASSET + " is missing, using the full model only");
+                }
+            }
+            if (ModelConfig.isTtaEnabled(context)) {
+                setTta(ModelConfig.getTtaThreshold(context), ImagePreprocessor.MAX_VIEWS);
+            }
             Log.i(TAG, "✓ Model loaded successfully!");
 
         } catch (Exception e) {
             Log.e(TAG, "FATAL ERROR loading model", e);
-            tflite = null;
-            diseaseLabels = null;
             throw new Exception("Model initialization failed: " + e.getMessage(), e);
         }
     }
 
-    private List<String> loadLabels(Context context) throws IOException {
-        List<String> labels = new ArrayList<>();
+    // Load version (null: the bundled model), warm it up and make it live. Predictions
+    // already running finish on the old version and new ones start on the new one; the
+    // old interpreters are closed when the last of them is done.
+    void swapTo(Context context, ModelStore.Version version) throws Exception {
+        versions.swapTo(context, version, ModelConfig.getPrecision(context));
+    }
 
-        try {
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(context.getAssets().open("disease_labels.json"))
-            );
-            StringBuilder jsonString = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonString.append(line);
-            }
-            reader.close();
-
-            Gson gson = new Gson();
-            JsonObject jsonObject = gson.fromJson(jsonString.toString(), JsonObject.class);
-            String[] classesArray = gson.fromJson(
-                    jsonObject.getAsJsonArray("classes"),
-                    String[].class
-            );
-
-            for (String className : classesArray) {
-                String cleanName = className.replace("___", " - ").replace("_", " ");
-                labels.add(cleanName);
-            }
-            Log.i(TAG, "Successfully loaded " + labels.size() + " disease labels");
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading labels: " + e.getMessage(), e);
-            throw new IOException("Failed to load disease labels", e);
-        }
+    // Store check for a new model file: opens and shape-checks it against the labels
+    static void validate(ByteBuffer model, int numClasses) throws IOException {
+        ModelStore.inspect(model, IMG_SIZE, numClasses);
+    }
 
-        return labels;
+    // The current gatekeeper, retained until release(), or null when the cascade is off
+    private GatekeeperModel retainGatekeeper() {
+        while (true) {
+            GatekeeperModel gate = gatekeeper;
+            // A retired one has already been replaced; read again
+            if (gate == null || gate.retain()) {
+                return gate;
+            }
+        }
     }
 
+    // Thread-safe: each call checks out its own interpreter from the pool
     public Prediction predictDisease(Bitmap bitmap) {
-        if (bitmap == null || tflite == null || diseaseLabels == null) {
-            Log.e(TAG, "Prediction failed: bitmap=" + (bitmap != null) +
-                    ", tflite=" + (tflite != null) +
-                    ", labels=" + (diseaseLabels != null));
+        return predict(bitmap, null);
+    }
+
+    // Same as predictDisease, reusing the resize, normalization and cache key of a combined scan
+    Prediction predictDisease(ScanInput input) {
+        return predict(input.bitmap, input);
+    }
+
+    private Prediction predict(Bitmap bitmap, ScanInput shared) {
+        ModelVersion version = bitmap != null ? versions.retain() : null;
+        if (version == null) {
+            Log.e(TAG, "Prediction failed: missing bitmap or model");
             return null;
         }
+        List<String> diseaseLabels = version.labels;
+        PredictionCache cache = version.cache;
 
+        InterpreterPool.Slot slot = null;
         try {
             Log.i(TAG, "Starting prediction...");
 
-            // Process image
-            TensorImage image = new TensorImage();
-            image.load(bitmap);
+            // Same or nearly identical photo seen before: skip the model
+            PredictionCache.Key key = shared != null ? shared.key : PredictionCache.keyOf(bitmap);
+            PredictionCache.Entry cached = cache.get(key);
+            if (cached != null) {
+                Log.i(TAG, "Cached prediction: " + diseaseLabels.get(cached.classIndex) + ", " + cache);
+                return new Prediction(diseaseLabels.get(cached.classIndex), cached.confidence);
+            }
 
-            ImageProcessor imageProcessor = new ImageProcessor.Builder()
-                    .add(new ResizeOp(IMG_SIZE, IMG_SIZE, ResizeOp.ResizeMethod.BILINEAR))
-                    .add(new NormalizeOp(0f, 255f))
-                    .build();
+            // Cascade: a confident "healthy" or "not a leaf" from the gatekeeper is final
+            GatekeeperModel gate = retainGatekeeper();
+            if (gate != null) {
+                long gateStart = System.nanoTime();
+                GatekeeperModel.Verdict verdict;
+                try {
+                    verdict = gate.classify(bitmap);
+                } finally {
+                    gate.release();
+                }
+                boolean escalate = GatekeeperModel.shouldEscalate(verdict, escalationThreshold);
+                cascadeStats.recordGate(System.nanoTime() - gateStart, escalate);
+                if (!escalate) {
+                    Prediction prediction = Prediction.fromGatekeeper(verdict);
+                    Log.i(TAG, "Gatekeeper: " + prediction.displayName() + " (" + (verdict.confidence * 100) +
+                            "%), " + cascadeStats);
+                    return prediction;
+                }
+            }
 
-            TensorImage processedImage = imageProcessor.process(image);
-            Log.i(TAG, "Image processed");
+            long fullStart = System.nanoTime();
+            slot = version.pool.acquire();
 
-            // Run inference
-            float[][] output = new float[1][diseaseLabels.size()];
-            tflite.run(processedImage.getBuffer(), output);
+            float[] scores = runSingle(slot, bitmap, shared);
+            // Below the TTA threshold: use the mean of the softmax outputs of this and the augmented views
+            int views = ttaViews;
+            if (views > 0 && scores[ImagePreprocessor.argMax(scores)] < ttaThreshold) {
+                scores = runAugmented(slot, bitmap, scores, views);
+            }
+            if (gate != null) {
+                cascadeStats.recordFull(System.nanoTime() - fullStart);
+            }
             Log.i(TAG, "Inference complete");
 
             // Find best prediction
-            float maxConfidence = 0;
-            int maxIndex = 0;
-            for (int i = 0; i < output[0].length; i++) {
-                if (output[0][i] > maxConfidence) {
-                    maxConfidence = output[0][i];
-                    maxIndex = i;
-                }
-            }
+            long start = stats.begin(InferenceStats.Stage.POSTPROCESS);
+            int maxIndex = ImagePreprocessor.argMax(scores);
+            float maxConfidence = scores[maxIndex];
+            cache.put(key, maxIndex, maxConfidence);
+            Prediction prediction = new Prediction(diseaseLabels.get(maxIndex), maxConfidence);
+            stats.end(InferenceStats.Stage.POSTPROCESS, start);
 
             Log.i(TAG, "Prediction: " + diseaseLabels.get(maxIndex) +
                     " (" + (maxConfidence * 100) + "%)");
+            return prediction;
 
-            return new Prediction(diseaseLabels.get(maxIndex), maxConfidence);
-
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             Log.e(TAG, "Prediction error: " + e.getMessage(), e);
             return null;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
         }
     }
 
-    public void close() {
-        if (tflite != null) {
-            tflite.close();
-            Log.i(TAG, "Model closed");
+    // The k most likely diseases, best first
+    public List<Prediction> predictTopK(Bitmap bitmap, int k) {
+        return predictTopK(bitmap, k, 0f);
+    }
+
+    // The k most likely diseases, best first. A temperature > 0 recalibrates the scores
+    // with softmax(log(p) / T) before ranking; 0 keeps the raw model scores.
+    public List<Prediction> predictTopK(Bitmap bitmap, int k, float temperature) {
+        ModelVersion version = bitmap != null && k > 0 ? versions.retain() : null;
+        if (version == null) {
+            Log.e(TAG, "Top-k prediction failed: missing bitmap or model");
+            return null;
         }
+
+        InterpreterPool.Slot slot = null;
+        try {
+            slot = version.pool.acquire();
+            float[] scores = runSingle(slot, bitmap, null);
+            if (temperature > 0) {
+                TopK.calibrateProbabilities(scores, temperature);
+            }
+
+            TopK.Scratch top = TopK.scratch(k);
+            int count = TopK.select(scores, k, top.indices, top.scores);
+
+            List<Prediction> predictions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                predictions.add(new Prediction(version.labels.get(top.indices[i]), top.scores[i]));
+            }
+            return predictions;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Top-k prediction error: " + e.getMessage(), e);
+            return null;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
+        }
+    }
+
+    // Preprocess into the slot's input buffer (or take the shared input of a combined scan)
+    // and run one image; the returned scores array belongs to the slot and is only valid
+    // until it is released
+    private float[] runSingle(InterpreterPool.Slot slot, Bitmap bitmap, ScanInput shared) {
+        slot.ensureBatchSize(1);
+
+        ByteBuffer input;
+        if (shared != null && shared.fits(slot.preprocessor)) {
+            input = shared.inputFor(slot.preprocessor);
+        } else {
+            int[] pixels;
+            long start = stats.begin(InferenceStats.Stage.RESIZE);
+            try {
+                pixels = slot.preprocessor.loadPixels(bitmap);
+            } finally {
+                stats.end(InferenceStats.Stage.RESIZE, start);
+            }
+
+            start = stats.begin(InferenceStats.Stage.NORMALIZE);
+            try {
+                input = slot.preprocessor.processPixels(pixels);
+            } finally {
+                stats.end(InferenceStats.Stage.NORMALIZE, start);
+            }
+        }
+
+        long start = stats.begin(InferenceStats.Stage.INFERENCE);
+        try {
+            slot.interpreter.run(input, slot.preprocessor.outputBuffer());
+        } finally {
+            stats.end(InferenceStats.Stage.INFERENCE, start);
+        }
+        return slot.preprocessor.readScores();
+    }
+
+    // Average the single-view scores with `views` augmented views of the bitmap (see
+    // ImagePreprocessor.processViews), all run as one batch on the slot's interpreter.
+    // Returns a new array.
+    private float[] runAugmented(InterpreterPool.Slot slot, Bitmap bitmap, float[] singleView, int views) {
+        long start = System.nanoTime();
+        int singleTop1 = ImagePreprocessor.argMax(singleView);
+        float[] average = singleView.clone();
+
+        slot.ensureBatchSize(views);
+        ByteBuffer input = slot.preprocessor.processViews(bitmap, views);
+        slot.interpreter.run(input, slot.preprocessor.batchOutputBuffer(views));
+        for (int i = 0; i < views; i++) {
+            float[] scores = slot.preprocessor.readBatchScores(i);
+            for (int c = 0; c < average.length; c++) {
+                average[c] += scores[c];
+            }
+        }
+        for (int c = 0; c < average.length; c++) {
+            average[c] /= views + 1;
+        }
+
+        ttaRuns.incrementAndGet();
+        boolean changed = ImagePreprocessor.argMax(average) != singleTop1;
+        if (changed) {
+            ttaChangedTop1.incrementAndGet();
+        }
+        Log.i(TAG, "TTA over " + (views + 1) + " views took " + (System.nanoTime() - start) / 1_000_000 +
+                " ms" + (changed ? ", top-1 changed" : ""));
+        return average;
+    }
+
+    // Run many images through one interpreter invocation per chunk of up to
+    // ImagePreprocessor.MAX_BATCH images. Returns one Prediction per bitmap, in order.
+    public List<Prediction> predictDiseaseBatch(List<Bitmap> bitmaps) {
+        return versions.predictBatch(bitmaps,
+                (version, classIndex, confidence) -> new Prediction(version.labels.get(classIndex), confidence));
+    }
+
+    // Scores of tiles [from, from + count) of a tiled scan (count <= ImagePreprocessor.MAX_BATCH),
+    // one row per tile written into scores. Tiles are decoded one at a time straight into
+    // the batch buffer and recycled, so only one tile bitmap is alive per call.
+    void scoreTiles(TiledDiseaseScanner.TileSource tiles, int from, int count, float[][] scores)
+            throws InterruptedException {
+        ModelVersion version = versions.retain();
+        if (version == null) {
+            throw new IllegalStateException("Model not loaded");
+        }
+        InterpreterPool.Slot slot = null;
+        try {
+            slot = version.pool.acquire();
+            slot.ensureBatchSize(count);
+            for (int i = 0; i < count; i++) {
+                Bitmap tile = tiles.decode(from + i);
+                try {
+                    slot.preprocessor.processBatchImage(tile, i);
+                } finally {
+                    tile.recycle();
+                }
+            }
+            slot.interpreter.run(slot.preprocessor.batchInputBuffer(count), slot.preprocessor.batchOutputBuffer(count));
+            for (int i = 0; i < count; i++) {
+                scores[from + i] = slot.preprocessor.readBatchScores(i).clone();
+            }
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
+        }
+    }
+
+    // Live camera path: convert one YUV frame straight into the slot's input buffer (no
+    // Bitmap, no allocation) and copy its scores into scores. False when no model is loaded,
+    // or when a swapped-in model has a different number of classes than scores.
+    boolean scoreFrame(YuvFrame frame, float[] scores) throws InterruptedException {
+        ModelVersion version = versions.retain();
+        if (version == null) {
+            return false;
+        }
+        InterpreterPool.Slot slot = null;
+        try {
+            if (version.labels.size() != scores.length) {
+                return false;
+            }
+            slot = version.pool.acquire();
+            slot.ensureBatchSize(1);
+
+            ByteBuffer input;
+            long start = stats.begin(InferenceStats.Stage.NORMALIZE);
+            try {
+                int[] pixels = slot.preprocessor.pixelBuffer();
+                YuvConverter.toArgb(frame, slot.preprocessor.getImageSize(), pixels);
+                input = slot.preprocessor.processPixels(pixels);
+            } finally {
+                stats.end(InferenceStats.Stage.NORMALIZE, start);
+            }
+
+            start = stats.begin(InferenceStats.Stage.INFERENCE);
+            try {
+                slot.interpreter.run(input, slot.preprocessor.outputBuffer());
+            } finally {
+                stats.end(InferenceStats.Stage.INFERENCE, start);
+            }
+            System.arraycopy(slot.preprocessor.readScores(), 0, scores, 0, scores.length);
+            return true;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
+        }
+    }
+
+    // Class names of the live version in model output order; a swap replaces the list
+    List<String> getLabels() {
+        return versions.current().labels;
+    }
+
+    // One dummy inference so the first real scan doesn't pay for tensor allocation
+    public void warmUp() throws InterruptedException {
+        versions.warmUp();
+    }
+
+    // Variant that was loaded (INT8 falls back to FLOAT32 when no quantized model is bundled)
+    public ModelConfig.Precision getPrecision() {
+        return versions.current().precision;
+    }
+
+    // Store version that is live, or ModelStore.BUNDLED
+    public String getVersion() {
+        return versions.current().name;
+    }
+
+    // Run the gatekeeper first and only escalate to the full model when it says "diseased"
+    // or its confidence is below escalationThreshold. A null gatekeeper turns the cascade off.
+    // The previous gatekeeper is retired, so predictions still running it finish first.
+    public void setCascade(GatekeeperModel gatekeeper, float escalationThreshold) {
+        GatekeeperModel previous;
+        synchronized (this) {
+            previous = this.gatekeeper;
+            this.escalationThreshold = escalationThreshold;
+            this.gatekeeper = gatekeeper;
+        }
+        if (previous != null && previous != gatekeeper) {
+            previous.retire();
+        }
+        Log.i(TAG, gatekeeper != null
+                ? "Cascade on, escalation threshold " + escalationThreshold
+                : "Cascade off");
+    }
+
+    // Average `views` (up to ImagePreprocessor.MAX_VIEWS) augmented crops/flips into any
+    // prediction whose top-1 confidence is below threshold. A threshold of 1 augments
+    // every prediction; 0 views turns it off.
+    public void setTta(float threshold, int views) {
+        ttaThreshold = threshold;
+        ttaViews = Math.max(0, Math.min(ImagePreprocessor.MAX_VIEWS, views));
+        Log.i(TAG, ttaViews > 0
+                ? "TTA on, " + ttaViews + " views below " + threshold
+                : "TTA off");
+    }
+
+    // Predictions that fell below the TTA threshold, and how many of them changed their answer
+    public long getTtaRuns() {
+        return ttaRuns.get();
+    }
+
+    public long getTtaChangedTop1() {
+        return ttaChangedTop1.get();
+    }
+
+    // Escalation rate and estimated latency savings of the cascade
+    public CascadeStats getCascadeStats() {
+        return cascadeStats;
+    }
+
+    // Per-stage latency histograms (p50/p95/p99) of this model's predictions
+    public InferenceStats getStats() {
+        return stats;
+    }
+
+    // Hit/miss counters of the prediction cache
+    public PredictionCache getCache() {
+        return versions.current().cache;
+    }
+
+    // Queue wait time and utilization of the interpreter pool
+    public InterpreterPool.Stats getPoolStats() {
+        return versions.current().pool.getStats();
+    }
+
+    public void close() {
+        setCascade(null, 0f);
+        versions.close();
     }
-}
\ No newline at end of file
+}
@@ -15,10 +15,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import okhttp3.Request;
+import okhttp3.Response;
 
 public class EncyclopediaActivity extends AppCompatActivity {
 
@@ -104,33 +102,24 @@ public class EncyclopediaActivity extends AppCompatActivity {
             Log.i(TAG, "Searching: " + urlString);
 
             // Make API request
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(15000);
-            conn.setReadTimeout(15000);
-
-            int responseCode = conn.getResponseCode();
-            Log.i(TAG, "Response code: " + responseCode);
-
-            if (responseCode != 200) {
-                Log.e(TAG, "API returned error code: " + responseCode);
-                return null;
-            }
-
-            // Read response
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream())
-            );
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+            Request request = new Request.Builder().url(urlString).build();
+            String body;
+            try (Response response = HttpStack.get(this).client(HttpStack.Endpoint.TREFLE)
+                    .newCall(request).execute()) {
+                int responseCode = response.code();
+                Log.i(TAG, "Response code: " + responseCode);
+
+                if (responseCode != 200) {
+                    Log.e(TAG, "API returned error code: " + responseCode);
+                    return null;
+                }
+
+                // Read response
+                body = response.body().string();
             }
-            reader.close();
 
             // Parse JSON
-            JsonObject json = new Gson().fromJson(response.toString(), JsonObject.class);
+            JsonObject json = new Gson().fromJson(body, JsonObject.class);
             JsonArray data = json.getAsJsonArray("data");
 
             if (data == null || data.size() == 0) {
@@ -216,10 +205,13 @@ public class EncyclopediaActivity extends AppCompatActivity {
     private void loadImage(String imageUrl) {
         new Thread(() -> {
             try {
-                URL url = new URL(imageUrl);
-                Bitmap bitmap = BitmapFactory.decodeStream(
-                        url.openConnection().getInputStream()
-                );
+                Request request = new Request.Builder().url(imageUrl).build();
+                Bitmap bitmap;
+                try (Response response = HttpStack.get(this).client(HttpStack.Endpoint.PLANT_IMAGES)
+                        .newCall(request).execute()) {
+                    bitmap = response.isSuccessful()
+                            ? BitmapFactory.decodeStream(response.body().byteStream()) : null;
+                }
 
                 runOnUiThread(() -> {
                     if (bitmap != null) {
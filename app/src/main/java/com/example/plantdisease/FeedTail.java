@@ -0,0 +1,147 @@
+package com.example.plantdisease;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// The newest records of a NOAA SWPC 1-minute feed, read straight off the response.
+// The feeds are a JSON array of flat records, oldest first and hours long, of which the
+// screens only want the end. Records are pulled off the stream one at a time and only
+// the last `capacity` are kept, in a ring whose slots are reused, so memory stays the
+// same however long the feed is. Only the requested numeric fields are kept; a missing,
+// null or non-numeric value reads as NaN.
+public final class FeedTail {
+
+    // Ten minutes of a 1-minute feed: enough to step over a short gap in the data
+    public static final int DEFAULT_CAPACITY = 10;
+
+    private final String[] fields;
+    private final String[] timeTags;
+    private final double[][] values;
+    // Slot the next record goes into
+    private int next;
+    // Records read in total
+    private long count;
+
+    FeedTail(int capacity, String... fields) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.fields = fields;
+        timeTags = new String[capacity];
+        values = new double[capacity][fields.length];
+    }
+
+    public static FeedTail read(Reader json, String... fields) throws IOException {
+        return read(json, DEFAULT_CAPACITY, fields);
+    }
+
+    public static FeedTail read(Reader json, int capacity, String... fields) throws IOException {
+        FeedTail tail = new FeedTail(capacity, fields);
+        JsonReader reader = new JsonReader(json);
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                tail.readRecord(reader);
+            }
+            reader.endArray();
+        } catch (IllegalStateException e) {
+            // Valid JSON, but not an array of objects
+            throw new IOException("Unexpected feed format: " + e.getMessage(), e);
+        }
+        return tail;
+    }
+
+    private void readRecord(JsonReader reader) throws IOException {
+        int slot = next;
+        double[] row = values[slot];
+        Arrays.fill(row, Double.NaN);
+        String timeTag = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            int field = indexOf(name);
+            if (field >= 0) {
+                row[field] = readNumber(reader);
+            } else if (name.equals("time_tag") && reader.peek() == JsonToken.STRING) {
+                timeTag = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        timeTags[slot] = timeTag;
+        next = (slot + 1) % timeTags.length;
+        count++;
+    }
+
+    private static double readNumber(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            return reader.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            try {
+                return Double.parseDouble(reader.nextString());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        reader.skipValue();
+        return Double.NaN;
+    }
+
+    private int indexOf(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Records kept, at most the capacity
+    public int size() {
+        return (int) Math.min(count, timeTags.length);
+    }
+
+    // Records in the whole feed
+    public long getCount() {
+        return count;
+    }
+
+    // Value of a field in a kept record; age 0 is the newest record
+    public double get(int age, String field) {
+        int index = indexOf(field);
+        if (index < 0) {
+            throw new IllegalArgumentException(field + " was not read");
+        }
+        return values[slot(age)][index];
+    }
+
+    public String getTimeTag(int age) {
+        return timeTags[slot(age)];
+    }
+
+    // Newest value of the field that is a number, NaN when none of the kept records has one
+    public double latest(String field) {
+        for (int age = 0; age < size(); age++) {
+            double value = get(age, field);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private int slot(int age) {
+        if (age < 0 || age >= size()) {
+            throw new IndexOutOfBoundsException("age " + age + " of " + size() + " records");
+        }
+        return (next - 1 - age + timeTags.length) % timeTags.length;
+    }
+}
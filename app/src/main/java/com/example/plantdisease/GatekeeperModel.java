@@ -0,0 +1,105 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import org.tensorflow.lite.support.common.FileUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+// Tiny first stage of the disease cascade.
+// A 96x96 classifier that only tells healthy leaves, diseased leaves and non-leaf
+// photos apart. DiseaseModel runs it first and only escalates to the full 224x224
+// model when it says "diseased" or is not confident enough.
+// Like ModelVersion, predictions retain() the gatekeeper while they run it, and turning
+// the cascade off or swapping the gatekeeper only retires it: the interpreters are
+// closed once the last running classification releases it.
+public class GatekeeperModel {
+
+    private static final String TAG = "GatekeeperModel";
+    static final String ASSET = "leaf_gatekeeper.tflite";
+    private static final int IMG_SIZE = 96;
+
+    // Output order of the gatekeeper model
+    public static final int HEALTHY = 0;
+    public static final int DISEASED = 1;
+    public static final int NOT_A_LEAF = 2;
+    private static final int NUM_CLASSES = 3;
+
+    public static class Verdict {
+        public final int label;
+        public final float confidence;
+
+        Verdict(int label, float confidence) {
+            this.label = label;
+            this.confidence = confidence;
+        }
+    }
+
+    private final InterpreterPool pool;
+
+    private int users;
+    private boolean retired;
+    private boolean closed;
+
+    // Throws IOException when the gatekeeper is not bundled with the app
+    public GatekeeperModel(Context context) throws IOException {
+        MappedByteBuffer model = FileUtil.loadMappedFile(context, ASSET);
+        pool = new InterpreterPool(TAG, model, IMG_SIZE, NUM_CLASSES);
+        Log.i(TAG, "Gatekeeper loaded, size: " + model.capacity() + " bytes");
+    }
+
+    public Verdict classify(Bitmap bitmap) throws InterruptedException {
+        InterpreterPool.Slot slot = pool.acquire();
+        try {
+            slot.ensureBatchSize(1);
+            ByteBuffer input = slot.preprocessor.process(bitmap);
+            slot.interpreter.run(input, slot.preprocessor.outputBuffer());
+            float[] scores = slot.preprocessor.readScores();
+            int label = ImagePreprocessor.argMax(scores);
+            return new Verdict(label, scores[label]);
+        } finally {
+            pool.release(slot);
+        }
+    }
+
+    // The full model has to look at anything but a confident "healthy" or "not a leaf"
+    static boolean shouldEscalate(Verdict verdict, float threshold) {
+        return verdict.label == DISEASED || verdict.confidence < threshold;
+    }
+
+    // False once the gatekeeper is retired; the caller then reads the current one again
+    synchronized boolean retain() {
+        if (retired) {
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    void release() {
+        boolean close;
+        synchronized (this) {
+            users--;
+            close = retired && users == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            pool.close();
+        }
+    }
+
+    // No new users; closed now, or by the last release
+    public void retire() {
+        boolean close;
+        synchronized (this) {
+            retired = true;
+            close = users == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            pool.close();
+        }
+    }
+}
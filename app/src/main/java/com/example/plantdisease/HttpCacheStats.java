@@ -0,0 +1,118 @@
+package com.example.plantdisease;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Response;
+
+// What the HTTP cache does for one endpoint: how many calls were answered from the cache
+// without touching the network, revalidated with a conditional GET (a 304, headers only)
+// or downloaded in full, the body bytes that crossed the network and the ones that did
+// not have to, and the latency of each kind of call.
+public class HttpCacheStats {
+
+    public enum Outcome {
+        CACHE,
+        NOT_MODIFIED,
+        NETWORK
+    }
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final LatencyHistogram cachedLatency = new LatencyHistogram();
+    private final LatencyHistogram networkLatency = new LatencyHistogram();
+    // Size on the wire of the last full body per URL: what a hit or a 304 saved
+    private final Map<String, Long> bodyBytes = new ConcurrentHashMap<>();
+
+    static Outcome outcome(Response response) {
+        if (response.networkResponse() == null) {
+            return response.cacheResponse() != null ? Outcome.CACHE : Outcome.NETWORK;
+        }
+        return response.cacheResponse() != null ? Outcome.NOT_MODIFIED : Outcome.NETWORK;
+    }
+
+    // Where a response came from and how old it is, for the screens
+    public static String describe(Response response) {
+        switch (outcome(response)) {
+            case CACHE:
+                return "cached, " + HttpStack.ageMillis(response) / 1000 + " s old";
+            case NOT_MODIFIED:
+                return "unchanged since last download";
+            default:
+                return "downloaded just now";
+        }
+    }
+
+    void record(Response response, long nanos) {
+        Outcome outcome = outcome(response);
+        if (outcome == Outcome.NETWORK) {
+            downloads.incrementAndGet();
+            networkLatency.recordNanos(nanos);
+            return;
+        }
+        (outcome == Outcome.CACHE ? hits : notModified).incrementAndGet();
+        cachedLatency.recordNanos(nanos);
+        Long saved = bodyBytes.get(response.request().url().toString());
+        if (saved == null) {
+            // Downloaded before this process started; the cached headers may still tell
+            String length = response.cacheResponse().header("Content-Length");
+            saved = length != null ? parseLength(length) : 0L;
+        }
+        bytesSaved.addAndGet(saved);
+    }
+
+    // A full body has been read off the network
+    void recordBody(String url, long bytes) {
+        bytesDownloaded.addAndGet(bytes);
+        bodyBytes.put(url, bytes);
+    }
+
+    private static long parseLength(String length) {
+        try {
+            return Math.max(0, Long.parseLong(length));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    public long getDownloads() {
+        return downloads.get();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    // Calls answered from the cache, fresh or revalidated
+    public LatencyHistogram getCachedLatency() {
+        return cachedLatency;
+    }
+
+    public LatencyHistogram getNetworkLatency() {
+        return networkLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d not-modified=%d downloads=%d downloaded=%dKB saved=%dKB " +
+                        "cached p50=%.1fms network p50=%.1fms",
+                getHits(), getNotModified(), getDownloads(), getBytesDownloaded() / 1024,
+                getBytesSaved() / 1024, cachedLatency.getPercentileMicros(50) / 1000.0,
+                networkLatency.getPercentileMicros(50) / 1000.0);
+    }
+}
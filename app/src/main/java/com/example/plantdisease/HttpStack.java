@@ -0,0 +1,287 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+// The one HTTP client of the app.
+// Every screen takes its client from here instead of creating its own, so all requests
+// share one connection pool (a second screen talking to the same host reuses the open
+// connection instead of paying for DNS + TCP + TLS again), one dispatcher and one
+// on-disk response cache. OkHttp negotiates HTTP/2 and asks for gzip on its own.
+// Timeouts and how long a response may be served from the cache are set per endpoint
+// in Endpoint below and nowhere else. Once a cached response is stale OkHttp revalidates
+// it with If-None-Match / If-Modified-Since, so an unchanged feed costs a 304 with no
+// body instead of a full download; HttpCacheStats counts what that saves per endpoint.
+public class HttpStack {
+
+    private static final String CACHE_DIR = "http";
+    static final long CACHE_BYTES = 10L * 1024 * 1024;
+
+    // Timeouts in seconds, and how long a GET response is fresh (0: never cached). For a
+    // periodic feed that is its update cadence, counted from when the feed last changed.
+    public enum Endpoint {
+        // NOAA SWPC 1-minute feeds
+        NOAA(10, 10, 15, 60, true),
+        OPEN_METEO(10, 10, 15, 30 * 60),
+        // Daily values that change once a day at most
+        NASA_POWER(15, 10, 30, 6 * 60 * 60),
+        TREFLE(15, 10, 15, 24 * 60 * 60),
+        OPEN_WEATHER(10, 10, 10, 10 * 60),
+        // Images never change under the same URL
+        MAP_TILES(15, 10, 15, 7 * 24 * 60 * 60),
+        PLANT_IMAGES(15, 10, 15, 7 * 24 * 60 * 60),
+        // Generation takes a while, and an answer must never come from the cache
+        AI_SUMMARY(10, 15, 20, 0),
+        CHAT(10, 15, 60, 0);
+
+        final int connectSeconds;
+        final int writeSeconds;
+        final int readSeconds;
+        final int maxAgeSeconds;
+        final boolean periodic;
+
+        Endpoint(int connectSeconds, int writeSeconds, int readSeconds, int maxAgeSeconds) {
+            this(connectSeconds, writeSeconds, readSeconds, maxAgeSeconds, false);
+        }
+
+        Endpoint(int connectSeconds, int writeSeconds, int readSeconds, int maxAgeSeconds, boolean periodic) {
+            this.connectSeconds = connectSeconds;
+            this.writeSeconds = writeSeconds;
+            this.readSeconds = readSeconds;
+            this.maxAgeSeconds = maxAgeSeconds;
+            this.periodic = periodic;
+        }
+    }
+
+    private static HttpStack instance;
+
+    public static synchronized HttpStack get(Context context) {
+        if (instance == null) {
+            instance = new HttpStack(new File(context.getApplicationContext().getCacheDir(), CACHE_DIR),
+                    CACHE_BYTES);
+        }
+        return instance;
+    }
+
+    private final OkHttpClient shared;
+    private final Map<Endpoint, OkHttpClient> clients = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, HttpCacheStats> stats = new EnumMap<>(Endpoint.class);
+
+    // Metrics
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+
+    HttpStack(File cacheDir, long cacheBytes) {
+        shared = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .dispatcher(new Dispatcher())
+                .cache(new Cache(cacheDir, cacheBytes))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListener(new EventListener() {
+                    @Override
+                    public void callStart(Call call) {
+                        calls.incrementAndGet();
+                    }
+
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                        connects.incrementAndGet();
+                    }
+                })
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new HttpCacheStats());
+        }
+    }
+
+    // Client for one endpoint. It is derived from the shared client, so it keeps the
+    // shared pool, dispatcher and cache and only changes the timeouts and cache policy.
+    public synchronized OkHttpClient client(Endpoint endpoint) {
+        OkHttpClient client = clients.get(endpoint);
+        if (client == null) {
+            client = shared.newBuilder()
+                    .connectTimeout(endpoint.connectSeconds, TimeUnit.SECONDS)
+                    .writeTimeout(endpoint.writeSeconds, TimeUnit.SECONDS)
+                    .readTimeout(endpoint.readSeconds, TimeUnit.SECONDS)
+                    .addInterceptor(new Metrics(stats.get(endpoint)))
+                    .addNetworkInterceptor(new CachePolicy(endpoint, stats.get(endpoint)))
+                    .build();
+            clients.put(endpoint, client);
+        }
+        return client;
+    }
+
+    // Times each call and sorts it into cache hit, 304 or download once it is answered
+    private static final class Metrics implements Interceptor {
+        private final HttpCacheStats stats;
+
+        Metrics(HttpCacheStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            long start = System.nanoTime();
+            Response response = chain.proceed(chain.request());
+            stats.record(response, System.nanoTime() - start);
+            return response;
+        }
+    }
+
+    // Most of these APIs send no caching headers (or "no-cache"), which would make the
+    // disk cache useless; the endpoint's own freshness replaces whatever the server said.
+    // ETag and Last-Modified are left alone so stale entries can still be revalidated.
+    private static final class CachePolicy implements Interceptor {
+        // URLs whose Last-Modified is remembered; the feeds are a handful of URLs each
+        private static final int MAX_REMEMBERED = 64;
+
+        private final Endpoint endpoint;
+        private final HttpCacheStats stats;
+        // Last-Modified of the latest full response per URL. A 304 to an If-None-Match
+        // request has neither it nor If-Modified-Since, and the cached copy it revalidates
+        // is not visible from a network interceptor.
+        private final Map<String, Date> lastModified = Collections.synchronizedMap(
+                new LinkedHashMap<String, Date>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Date> eldest) {
+                        return size() > MAX_REMEMBERED;
+                    }
+                });
+
+        CachePolicy(Endpoint endpoint, HttpCacheStats stats) {
+            this.endpoint = endpoint;
+            this.stats = stats;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            boolean full = response.isSuccessful();
+            // A 304 is merged into the cached entry, so it needs the same policy
+            if (!request.method().equals("GET") || (!full && response.code() != 304)) {
+                return response;
+            }
+            String url = request.url().toString();
+            Date modified = response.headers().getDate("Last-Modified");
+            if (full && modified != null) {
+                lastModified.put(url, modified);
+            }
+            Response.Builder rewritten = response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", endpoint.maxAgeSeconds > 0
+                            ? "public, max-age=" + freshSeconds(endpoint, request, response, lastModified.get(url))
+                            : "no-store");
+            if (full && response.body() != null) {
+                rewritten.body(counting(response.body(), url, stats));
+            }
+            return rewritten.build();
+        }
+    }
+
+    // How long a response stays fresh. A periodic feed changes once per cadence, so a
+    // copy that was already 50 s old when fetched is only good for 10 s more of a minute.
+    // cachedModified is the Last-Modified of the copy a 304 revalidates, or null.
+    static int freshSeconds(Endpoint endpoint, Request request, Response response, Date cachedModified) {
+        if (!endpoint.periodic) {
+            return endpoint.maxAgeSeconds;
+        }
+        Date modified = response.headers().getDate("Last-Modified");
+        if (modified == null) {
+            // A 304 may leave it out; without an ETag the request carries the cached copy's
+            modified = request.headers().getDate("If-Modified-Since");
+        }
+        if (modified == null && response.code() == 304) {
+            modified = cachedModified;
+        }
+        Date served = response.headers().getDate("Date");
+        if (modified == null) {
+            return endpoint.maxAgeSeconds;
+        }
+        long now = served != null ? served.getTime() : response.receivedResponseAtMillis();
+        long age = Math.max(0, (now - modified.getTime()) / 1000);
+        return (int) Math.max(0, endpoint.maxAgeSeconds - age);
+    }
+
+    // Counts the body bytes as they come off the wire (still compressed, if they were)
+    private static ResponseBody counting(ResponseBody body, String url, HttpCacheStats stats) {
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            private long bytes;
+            private boolean done;
+
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read >= 0) {
+                    bytes += read;
+                } else if (!done) {
+                    done = true;
+                    stats.recordBody(url, bytes);
+                }
+                return read;
+            }
+        });
+        return ResponseBody.create(source, body.contentType(), body.contentLength());
+    }
+
+    // How long ago the server last sent or confirmed this body: close to 0 for a download
+    // or a 304, the age of the cached copy for a cache hit
+    public static long ageMillis(Response response) {
+        return Math.max(0, System.currentTimeMillis() - response.receivedResponseAtMillis());
+    }
+
+    public HttpCacheStats getStats(Endpoint endpoint) {
+        return stats.get(endpoint);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    // New connections opened; calls - connects were served on a pooled connection or from the cache
+    public long getConnects() {
+        return connects.get();
+    }
+
+    public int getIdleConnections() {
+        return shared.connectionPool().idleConnectionCount();
+    }
+
+    public Cache getCache() {
+        return shared.cache();
+    }
+
+    @Override
+    public String toString() {
+        Cache cache = shared.cache();
+        return String.format("http calls=%d connects=%d idle=%d cache hits=%d network=%d",
+                getCalls(), getConnects(), getIdleConnections(),
+                cache != null ? cache.hitCount() : 0, cache != null ? cache.networkCount() : 0);
+    }
+}
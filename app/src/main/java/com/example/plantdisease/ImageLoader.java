@@ -0,0 +1,137 @@
+package com.example.plantdisease;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.util.Log;
+import androidx.exifinterface.media.ExifInterface;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Memory-bounded image ingestion for the scan screens.
+// Gallery photos are often 12-50 MP; decoding them in full only to shrink them to
+// 224x224 causes OOMs and slow decodes. We read the bounds first and let the decoder
+// subsample straight to preview resolution, once; the ImageView shows that bitmap and
+// the models resize the same one to their input size. EXIF orientation is applied to it.
+public class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+
+    // Shorter side the model input is decoded to at least (models resize to 224 themselves)
+    static final int MODEL_MIN_SIDE = 224;
+    // Shorter side of the preview shown on screen, and fed to the model as well
+    static final int PREVIEW_MIN_SIDE = 720;
+
+    private final ContentResolver contentResolver;
+
+    public ImageLoader(Context context) {
+        contentResolver = context.getApplicationContext().getContentResolver();
+    }
+
+    // Decode on a background thread. The one bitmap is both the preview and the model input.
+    public Bitmap load(Uri uri) throws IOException {
+        long start = System.currentTimeMillis();
+
+        // 1. Bounds only, no pixels
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Could not read image size");
+        }
+
+        // 2. One subsampled decode
+        Bitmap bitmap = decode(uri, calculateInSampleSize(bounds.outWidth, bounds.outHeight, PREVIEW_MIN_SIDE));
+
+        // 3. EXIF orientation
+        Matrix orientation = readOrientation(uri);
+        if (orientation != null) {
+            bitmap = applyOrientation(bitmap, orientation);
+        }
+
+        Log.i(TAG, "Decoded " + bounds.outWidth + "x" + bounds.outHeight +
+                " -> " + bitmap.getWidth() + "x" + bitmap.getHeight() +
+                " in " + (System.currentTimeMillis() - start) + " ms");
+        return bitmap;
+    }
+
+    // Model-resolution bitmap only, for background scans that never show a preview
+    public Bitmap loadForModel(Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Could not read image size");
+        }
+        Bitmap model = decode(uri, calculateInSampleSize(bounds.outWidth, bounds.outHeight, MODEL_MIN_SIDE));
+        Matrix orientation = readOrientation(uri);
+        return orientation != null ? applyOrientation(model, orientation) : model;
+    }
+
+    private Bitmap decode(Uri uri, int inSampleSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = inSampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        try (InputStream in = open(uri)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                throw new IOException("Could not decode image");
+            }
+            return bitmap;
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new IOException("Could not open " + uri);
+        }
+        return in;
+    }
+
+    // Matrix that undoes the EXIF rotation/flip, or null when the image is upright
+    private Matrix readOrientation(Uri uri) {
+        try (InputStream in = open(uri)) {
+            ExifInterface exif = new ExifInterface(in);
+            int degrees = exif.getRotationDegrees();
+            boolean flipped = exif.isFlipped();
+            if (degrees == 0 && !flipped) {
+                return null;
+            }
+            Matrix matrix = new Matrix();
+            if (flipped) {
+                matrix.postScale(-1, 1);
+            }
+            matrix.postRotate(degrees);
+            return matrix;
+        } catch (IOException e) {
+            Log.w(TAG, "No EXIF orientation", e);
+            return null;
+        }
+    }
+
+    private static Bitmap applyOrientation(Bitmap bitmap, Matrix matrix) {
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) {
+            bitmap.recycle();
+        }
+        return rotated;
+    }
+
+    // Largest power of two that keeps the shorter side at or above minSide
+    static int calculateInSampleSize(int width, int height, int minSide) {
+        int shorter = Math.min(width, height);
+        int sample = 1;
+        while (shorter / (sample * 2) >= minSide) {
+            sample *= 2;
+        }
+        return sample;
+    }
+}
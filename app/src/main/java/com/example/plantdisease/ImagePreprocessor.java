@@ -0,0 +1,396 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+
+// Reusable preprocessing stage for the TFLite models.
+// Owns pre-sized direct input/output buffers so a prediction does not allocate:
+// the bitmap is scaled into a scratch bitmap, its pixels are normalized straight
+// into the input buffer and the interpreter writes its scores into the output buffer.
+// Float models get RGB floats in [0, 1]; quantized (uint8/int8) models get one byte
+// per channel and their output is dequantized with the tensor's quantization params.
+// One instance per interpreter; it is not thread-safe.
+public class ImagePreprocessor {
+    // Largest batch packed into one invocation; longer lists are split into chunks
+    public static final int MAX_BATCH = 16;
+
+    // Test-time augmentation views, in the order processViews packs them
+    static final int VIEW_CENTER = 0;
+    static final int VIEW_TOP_LEFT = 1;
+    static final int VIEW_TOP_RIGHT = 2;
+    static final int VIEW_BOTTOM_LEFT = 3;
+    static final int VIEW_BOTTOM_RIGHT = 4;
+    static final int VIEW_FLIP = 5;
+    public static final int MAX_VIEWS = 6;
+    // Side of a crop view relative to the shorter image side (the usual 224 / 256)
+    static final float CROP_FRACTION = 0.875f;
+
+    private static final int PIXEL_SIZE = 3;
+    private static final int FLOAT_BYTES = 4;
+
+    private final int imgSize;
+    private final int numClasses;
+
+    // Quantized input: channel value -> quantized byte. null for float input.
+    private final byte[] inputTable;
+    private final int inputBytes;
+    // Quantized output: real = scale * (q - zeroPoint)
+    private final DataType outputType;
+    private final float outputScale;
+    private final int outputZeroPoint;
+    private final int outputBytes;
+
+    private final ByteBuffer inputBuffer;
+    private final FloatBuffer inputFloats;
+    private final ByteBuffer outputBuffer;
+    private final FloatBuffer outputFloats;
+    private final float[] scores;
+
+    // Batch buffers hold MAX_BATCH images back to back and are allocated on first batch use.
+    // The interpreter wants a buffer whose capacity is exactly the tensor size, so one
+    // view per batch size is cached over the same memory.
+    private FloatBuffer batchInputFloats;
+    private FloatBuffer batchOutputFloats;
+    private final ByteBuffer[] batchInputViews = new ByteBuffer[MAX_BATCH + 1];
+    private final ByteBuffer[] batchOutputViews = new ByteBuffer[MAX_BATCH + 1];
+
+    // Scratch state for the bilinear resize, same path Bitmap.createScaledBitmap takes
+    // (created on first resize, so the buffer logic also runs on a plain JVM)
+    private final int[] pixels;
+    private Bitmap scaledBitmap;
+    private Canvas canvas;
+    private Paint paint;
+    private final Rect srcRect = new Rect();
+    private Rect dstRect;
+    private final int[] cropBounds = new int[4];
+
+    // Float32 input and output
+    public ImagePreprocessor(int imgSize, int numClasses) {
+        this(imgSize, numClasses, DataType.FLOAT32, null, DataType.FLOAT32, null);
+    }
+
+    public ImagePreprocessor(int imgSize, int numClasses,
+                             DataType inputType, Tensor.QuantizationParams inputParams,
+                             DataType outputType, Tensor.QuantizationParams outputParams) {
+        this.imgSize = imgSize;
+        this.numClasses = numClasses;
+
+        boolean floatInput = inputType == DataType.FLOAT32;
+        inputTable = floatInput ? null : quantizationTable(inputType, inputParams);
+        inputBytes = floatInput ? FLOAT_BYTES : 1;
+        this.outputType = outputType;
+        outputScale = outputParams != null ? outputParams.getScale() : 0f;
+        outputZeroPoint = outputParams != null ? outputParams.getZeroPoint() : 0;
+        outputBytes = outputType == DataType.FLOAT32 ? FLOAT_BYTES : 1;
+
+        inputBuffer = ByteBuffer.allocateDirect(imgSize * imgSize * PIXEL_SIZE * inputBytes)
+                .order(ByteOrder.nativeOrder());
+        inputFloats = inputBuffer.asFloatBuffer();
+        outputBuffer = ByteBuffer.allocateDirect(numClasses * outputBytes)
+                .order(ByteOrder.nativeOrder());
+        outputFloats = outputBuffer.asFloatBuffer();
+        scores = new float[numClasses];
+
+        pixels = new int[imgSize * imgSize];
+    }
+
+    // Preprocessor matching the input/output tensor types of a loaded model
+    public static ImagePreprocessor forInterpreter(Interpreter interpreter, int imgSize, int numClasses) {
+        Tensor input = interpreter.getInputTensor(0);
+        Tensor output = interpreter.getOutputTensor(0);
+        return new ImagePreprocessor(imgSize, numClasses,
+                input.dataType(), input.quantizationParams(),
+                output.dataType(), output.quantizationParams());
+    }
+
+    public boolean isQuantized() {
+        return inputTable != null;
+    }
+
+    // Resize + normalize the bitmap into the input buffer and return it ready for tflite.run
+    public ByteBuffer process(Bitmap bitmap) {
+        return processPixels(loadPixels(bitmap));
+    }
+
+    // Resize + normalize bitmaps[from, from + count) into one contiguous batch buffer
+    public ByteBuffer processBatch(List<Bitmap> bitmaps, int from, int count) {
+        for (int i = 0; i < count; i++) {
+            processBatchImage(bitmaps.get(from + i), i);
+        }
+        return batchInputBuffer(count);
+    }
+
+    // Resize + normalize one bitmap into slot `index` of the batch buffer, for callers
+    // that produce the images one at a time and don't want to keep them all alive
+    public void processBatchImage(Bitmap bitmap, int index) {
+        ensureBatchBuffers();
+        writePixels(loadPixels(bitmap), batchInputViews[MAX_BATCH], batchInputFloats, index);
+    }
+
+    // Input buffer holding the first count images written to the batch buffer
+    public ByteBuffer batchInputBuffer(int count) {
+        ensureBatchBuffers();
+        ByteBuffer view = batchView(batchInputViews, count);
+        view.rewind();
+        return view;
+    }
+
+    // Output buffer for a batch of count images
+    public ByteBuffer batchOutputBuffer(int count) {
+        ensureBatchBuffers();
+        ByteBuffer view = batchView(batchOutputViews, count);
+        view.rewind();
+        return view;
+    }
+
+    // Copy the scores of one image of the last batch into the reused float array
+    public float[] readBatchScores(int image) {
+        return readScores(batchOutputViews[MAX_BATCH], batchOutputFloats, image * numClasses);
+    }
+
+    // The first count augmentation views of one bitmap (center crop, four corner crops,
+    // horizontal mirror) resized and normalized straight into the batch buffer
+    public ByteBuffer processViews(Bitmap bitmap, int count) {
+        ensureBatchBuffers();
+        for (int i = 0; i < count; i++) {
+            int[] argb;
+            if (i == VIEW_FLIP) {
+                argb = loadPixels(bitmap);
+                flipHorizontally(argb, imgSize);
+            } else {
+                viewBounds(i, bitmap.getWidth(), bitmap.getHeight(), cropBounds);
+                argb = loadRegion(bitmap, cropBounds[0], cropBounds[1], cropBounds[2], cropBounds[3]);
+            }
+            writePixels(argb, batchInputViews[MAX_BATCH], batchInputFloats, i);
+        }
+        ByteBuffer view = batchView(batchInputViews, count);
+        view.rewind();
+        return view;
+    }
+
+    // Source rectangle {left, top, right, bottom} of a crop view: a square of
+    // CROP_FRACTION of the shorter side, centered or in one corner
+    static void viewBounds(int view, int width, int height, int[] out) {
+        int side = Math.max(1, Math.round(Math.min(width, height) * CROP_FRACTION));
+        int left;
+        int top;
+        switch (view) {
+            case VIEW_TOP_LEFT:
+                left = 0;
+                top = 0;
+                break;
+            case VIEW_TOP_RIGHT:
+                left = width - side;
+                top = 0;
+                break;
+            case VIEW_BOTTOM_LEFT:
+                left = 0;
+                top = height - side;
+                break;
+            case VIEW_BOTTOM_RIGHT:
+                left = width - side;
+                top = height - side;
+                break;
+            default:
+                left = (width - side) / 2;
+                top = (height - side) / 2;
+                break;
+        }
+        out[0] = left;
+        out[1] = top;
+        out[2] = left + side;
+        out[3] = top + side;
+    }
+
+    // Mirror a size x size ARGB image left to right in place
+    static void flipHorizontally(int[] pixels, int size) {
+        for (int row = 0; row < size * size; row += size) {
+            for (int i = row, j = row + size - 1; i < j; i++, j--) {
+                int tmp = pixels[i];
+                pixels[i] = pixels[j];
+                pixels[j] = tmp;
+            }
+        }
+    }
+
+    private void ensureBatchBuffers() {
+        if (batchInputViews[MAX_BATCH] != null) {
+            return;
+        }
+        batchInputViews[MAX_BATCH] = ByteBuffer
+                .allocateDirect(MAX_BATCH * imgSize * imgSize * PIXEL_SIZE * inputBytes)
+                .order(ByteOrder.nativeOrder());
+        batchInputFloats = batchInputViews[MAX_BATCH].asFloatBuffer();
+        batchOutputViews[MAX_BATCH] = ByteBuffer
+                .allocateDirect(MAX_BATCH * numClasses * outputBytes)
+                .order(ByteOrder.nativeOrder());
+        batchOutputFloats = batchOutputViews[MAX_BATCH].asFloatBuffer();
+    }
+
+    private static ByteBuffer batchView(ByteBuffer[] views, int count) {
+        if (views[count] == null) {
+            ByteBuffer full = views[MAX_BATCH];
+            int bytes = full.capacity() / MAX_BATCH * count;
+            full.clear();
+            full.limit(bytes);
+            views[count] = full.slice().order(ByteOrder.nativeOrder());
+            full.clear();
+        }
+        return views[count];
+    }
+
+    // Scale the bitmap to imgSize x imgSize and read its ARGB pixels into the scratch array
+    int[] loadPixels(Bitmap bitmap) {
+        return loadRegion(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    // Same for one rectangle of the bitmap
+    private int[] loadRegion(Bitmap bitmap, int left, int top, int right, int bottom) {
+        Bitmap source = bitmap;
+        boolean whole = left == 0 && top == 0 && right == bitmap.getWidth() && bottom == bitmap.getHeight();
+        if (!whole || bitmap.getWidth() != imgSize || bitmap.getHeight() != imgSize) {
+            if (scaledBitmap == null) {
+                scaledBitmap = Bitmap.createBitmap(imgSize, imgSize, Bitmap.Config.ARGB_8888);
+                canvas = new Canvas(scaledBitmap);
+                paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+                // SRC so a frame never blends with what the previous one left in the scratch bitmap
+                paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+                dstRect = new Rect(0, 0, imgSize, imgSize);
+            }
+            srcRect.set(left, top, right, bottom);
+            canvas.drawBitmap(bitmap, srcRect, dstRect, paint);
+            source = scaledBitmap;
+        }
+        source.getPixels(pixels, 0, imgSize, 0, 0, imgSize, imgSize);
+        return pixels;
+    }
+
+    // Scratch ARGB array (imgSize x imgSize) for callers that produce pixels without a
+    // Bitmap, like camera frames; hand it to processPixels afterwards
+    int[] pixelBuffer() {
+        return pixels;
+    }
+
+    // Normalize already-resized ARGB pixels (imgSize x imgSize) into the input buffer
+    ByteBuffer processPixels(int[] argb) {
+        writePixels(argb, inputBuffer, inputFloats, 0);
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    private void writePixels(int[] argb, ByteBuffer bytes, FloatBuffer floats, int image) {
+        int offset = image * imgSize * imgSize * PIXEL_SIZE;
+        if (inputTable == null) {
+            normalizePixels(argb, floats, offset);
+        } else {
+            quantizePixels(argb, inputTable, bytes, offset);
+        }
+    }
+
+    // Input buffer as-is (zeros until the first image), used for warm-up runs
+    public ByteBuffer inputBuffer() {
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // Output buffer for tflite.run, rewound so the interpreter writes from the start
+    public ByteBuffer outputBuffer() {
+        outputBuffer.rewind();
+        return outputBuffer;
+    }
+
+    // Copy the scores the interpreter wrote into the reused float array
+    public float[] readScores() {
+        return readScores(outputBuffer, outputFloats, 0);
+    }
+
+    private float[] readScores(ByteBuffer bytes, FloatBuffer floats, int offset) {
+        if (outputType == DataType.FLOAT32) {
+            for (int i = 0; i < numClasses; i++) {
+                scores[i] = floats.get(offset + i);
+            }
+        } else {
+            boolean unsigned = outputType == DataType.UINT8;
+            for (int i = 0; i < numClasses; i++) {
+                byte b = bytes.get(offset + i);
+                int q = unsigned ? b & 0xFF : b;
+                scores[i] = outputScale * (q - outputZeroPoint);
+            }
+        }
+        return scores;
+    }
+
+    public int getImageSize() {
+        return imgSize;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    // Write ARGB pixels as RGB floats in [0, 1] starting at the given float offset.
+    // Matches NormalizeOp(0f, 255f) applied to a TensorImage loaded from the same pixels.
+    static void normalizePixels(int[] pixels, FloatBuffer dst, int offset) {
+        int index = offset;
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            dst.put(index++, ((pixel >> 16) & 0xFF) / 255f);
+            dst.put(index++, ((pixel >> 8) & 0xFF) / 255f);
+            dst.put(index++, (pixel & 0xFF) / 255f);
+        }
+    }
+
+    // Write ARGB pixels as quantized RGB bytes starting at the given byte offset
+    static void quantizePixels(int[] pixels, byte[] table, ByteBuffer dst, int offset) {
+        int index = offset;
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            dst.put(index++, table[(pixel >> 16) & 0xFF]);
+            dst.put(index++, table[(pixel >> 8) & 0xFF]);
+            dst.put(index++, table[pixel & 0xFF]);
+        }
+    }
+
+    // Quantized byte for each 8-bit channel value. The float model sees p / 255, so the
+    // quantized one gets round(p / 255 / scale) + zeroPoint; with the usual scale of 1/255
+    // and zero point 0 that is the raw pixel. Without params the raw pixel is used as-is
+    // (shifted by 128 for int8).
+    static byte[] quantizationTable(DataType type, Tensor.QuantizationParams params) {
+        boolean signed = type == DataType.INT8;
+        int min = signed ? -128 : 0;
+        int max = signed ? 127 : 255;
+        float scale = params != null ? params.getScale() : 0f;
+        int zeroPoint = params != null ? params.getZeroPoint() : 0;
+
+        byte[] table = new byte[256];
+        for (int p = 0; p < 256; p++) {
+            int q = scale > 0 ? Math.round(p / 255f / scale) + zeroPoint : (signed ? p - 128 : p);
+            table[p] = (byte) Math.max(min, Math.min(max, q));
+        }
+        return table;
+    }
+
+    // Index of the highest score; same scan the models used before (ties keep the first)
+    static int argMax(float[] scores) {
+        float maxConfidence = 0;
+        int maxIndex = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > maxConfidence) {
+                maxConfidence = scores[i];
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+}
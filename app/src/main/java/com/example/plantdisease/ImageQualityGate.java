@@ -0,0 +1,288 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Cheap check of a photo before it reaches the models.
+// Blurry, dark, blown-out or plant-less photos still cost a full inference and come
+// back as a confident-looking wrong answer. The photo is scaled to a 64x64 sample and
+// three numbers are taken from it: sharpness (variance of the Laplacian of the
+// luminance), mean luminance, and the share of green-dominant pixels. Blur and
+// exposure problems reject the photo; little green only flags it, because badly
+// diseased leaves can be mostly brown or yellow. One evaluation takes well under a
+// millisecond. Counts and latency are kept for the whole process.
+public class ImageQualityGate {
+
+    private static final String TAG = "ImageQualityGate";
+    static final int SAMPLE_SIZE = 64;
+
+    // Thresholds on the 64x64 sample; starting points to revisit against real rejection rates
+    static final double MIN_SHARPNESS = 30;
+    static final double MIN_LUMINANCE = 35;
+    static final double MAX_LUMINANCE = 230;
+    static final double MIN_GREEN_RATIO = 0.05;
+
+    public enum Issue {
+        BLURRY("Photo is too blurry", true),
+        TOO_DARK("Photo is too dark", true),
+        TOO_BRIGHT("Photo is overexposed", true),
+        NO_PLANT("Little or no plant in the photo", false);
+
+        public final String message;
+        // Rejected photos skip the models; the others are scanned with a warning
+        public final boolean rejects;
+
+        Issue(String message, boolean rejects) {
+            this.message = message;
+            this.rejects = rejects;
+        }
+    }
+
+    public static class Verdict {
+        public final double sharpness;
+        public final double meanLuminance;
+        public final double greenRatio;
+        public final List<Issue> issues;
+
+        Verdict(double sharpness, double meanLuminance, double greenRatio, List<Issue> issues) {
+            this.sharpness = sharpness;
+            this.meanLuminance = meanLuminance;
+            this.greenRatio = greenRatio;
+            this.issues = issues;
+        }
+
+        public boolean isRejected() {
+            for (Issue issue : issues) {
+                if (issue.rejects) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean isFlagged() {
+            return !issues.isEmpty() && !isRejected();
+        }
+
+        // User-facing reasons, one per line
+        public String describe() {
+            StringBuilder text = new StringBuilder();
+            for (Issue issue : issues) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(issue.message);
+            }
+            return text.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sharpness=%.1f luminance=%.1f green=%.1f%% %s",
+                    sharpness, meanLuminance, greenRatio * 100, issues);
+        }
+    }
+
+    // Thrown by scan tasks so the screen can ask for a retake instead of showing a result
+    public static class RejectedException extends Exception {
+        public final Verdict verdict;
+
+        public RejectedException(Verdict verdict) {
+            super(verdict.describe());
+            this.verdict = verdict;
+        }
+    }
+
+    // The gate as used by a scan screen: remembers the verdict of its latest photo for the
+    // warning shown with the result, and words errors the same way on every screen
+    public static class ScreenCheck {
+        private final String tag;
+        private volatile Verdict last;
+
+        public ScreenCheck(String tag) {
+            this.tag = tag;
+        }
+
+        // Runs on the scan thread: a rejected photo ends the task before any model runs
+        public void check(Bitmap bitmap) throws RejectedException {
+            Verdict quality = get().evaluate(bitmap);
+            last = quality;
+            if (quality.isRejected()) {
+                throw new RejectedException(quality);
+            }
+        }
+
+        // Warning line for a photo that passed the check with issues
+        public String warning() {
+            Verdict quality = last;
+            return quality != null && quality.isFlagged() ? "\n\n⚠️ " + quality.describe() : "";
+        }
+
+        // Result text for a failed scan
+        public String errorText(Exception e) {
+            if (e instanceof RejectedException) {
+                Log.i(tag, "Photo rejected: " + ((RejectedException) e).verdict);
+                return "⚠️ " + e.getMessage() + "\n\nPlease retake the photo.";
+            }
+            Log.e(tag, "Prediction exception", e);
+            return "❌ Error: " + e.getMessage();
+        }
+    }
+
+    private static ImageQualityGate instance;
+
+    public static synchronized ImageQualityGate get() {
+        if (instance == null) {
+            instance = new ImageQualityGate();
+        }
+        return instance;
+    }
+
+    // Metrics
+    private final AtomicLong evaluated = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLongArray issueCounts = new AtomicLongArray(Issue.values().length);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // Scratch state for the downsample (guarded by this)
+    private final int[] pixels = new int[SAMPLE_SIZE * SAMPLE_SIZE];
+    private final int[] luminance = new int[SAMPLE_SIZE * SAMPLE_SIZE];
+    private Bitmap sample;
+    private Canvas canvas;
+    private Paint paint;
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect(0, 0, SAMPLE_SIZE, SAMPLE_SIZE);
+
+    ImageQualityGate() {
+    }
+
+    public Verdict evaluate(Bitmap bitmap) {
+        long start = System.nanoTime();
+        Verdict verdict;
+        synchronized (this) {
+            if (sample == null) {
+                sample = Bitmap.createBitmap(SAMPLE_SIZE, SAMPLE_SIZE, Bitmap.Config.ARGB_8888);
+                canvas = new Canvas(sample);
+                paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+                paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+            }
+            srcRect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+            canvas.drawBitmap(bitmap, srcRect, dstRect, paint);
+            sample.getPixels(pixels, 0, SAMPLE_SIZE, 0, 0, SAMPLE_SIZE, SAMPLE_SIZE);
+            verdict = evaluate(pixels, luminance, SAMPLE_SIZE);
+        }
+        record(verdict, System.nanoTime() - start);
+        if (!verdict.issues.isEmpty()) {
+            Log.i(TAG, "Quality issues: " + verdict);
+        }
+        return verdict;
+    }
+
+    // Metrics of a size x size ARGB sample; luminance is scratch space of the same length
+    static Verdict evaluate(int[] argb, int[] luminance, int size) {
+        long luminanceSum = 0;
+        int green = 0;
+        for (int i = 0; i < argb.length; i++) {
+            int pixel = argb[i];
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            // BT.601 luma in integer math
+            int y = (299 * r + 587 * g + 114 * b) / 1000;
+            luminance[i] = y;
+            luminanceSum += y;
+            if (g > r && g > b) {
+                green++;
+            }
+        }
+
+        // 4-neighbour Laplacian over the interior; sharp edges give a wide spread
+        long sum = 0;
+        long sumSquares = 0;
+        int count = 0;
+        for (int row = 1; row < size - 1; row++) {
+            for (int col = 1; col < size - 1; col++) {
+                int i = row * size + col;
+                int laplacian = luminance[i - size] + luminance[i + size]
+                        + luminance[i - 1] + luminance[i + 1] - 4 * luminance[i];
+                sum += laplacian;
+                sumSquares += (long) laplacian * laplacian;
+                count++;
+            }
+        }
+        double mean = count == 0 ? 0 : sum / (double) count;
+        double sharpness = count == 0 ? 0 : sumSquares / (double) count - mean * mean;
+        double meanLuminance = luminanceSum / (double) argb.length;
+        double greenRatio = green / (double) argb.length;
+
+        List<Issue> issues = new ArrayList<>(2);
+        if (sharpness < MIN_SHARPNESS) {
+            issues.add(Issue.BLURRY);
+        }
+        if (meanLuminance < MIN_LUMINANCE) {
+            issues.add(Issue.TOO_DARK);
+        } else if (meanLuminance > MAX_LUMINANCE) {
+            issues.add(Issue.TOO_BRIGHT);
+        }
+        if (greenRatio < MIN_GREEN_RATIO) {
+            issues.add(Issue.NO_PLANT);
+        }
+        return new Verdict(sharpness, meanLuminance, greenRatio, issues);
+    }
+
+    void record(Verdict verdict, long nanos) {
+        latency.recordNanos(nanos);
+        evaluated.incrementAndGet();
+        if (verdict.isRejected()) {
+            rejected.incrementAndGet();
+        } else if (verdict.isFlagged()) {
+            flagged.incrementAndGet();
+        }
+        for (Issue issue : verdict.issues) {
+            issueCounts.incrementAndGet(issue.ordinal());
+        }
+    }
+
+    public long getEvaluated() {
+        return evaluated.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getFlagged() {
+        return flagged.get();
+    }
+
+    public long getIssueCount(Issue issue) {
+        return issueCounts.get(issue.ordinal());
+    }
+
+    // Time per evaluation, including the downsample
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format(
+                "quality gate n=%d rejected=%d flagged=%d p50=%dus p99=%dus",
+                getEvaluated(), getRejected(), getFlagged(),
+                latency.getPercentileMicros(50), latency.getPercentileMicros(99)));
+        for (Issue issue : Issue.values()) {
+            text.append(' ').append(issue.name().toLowerCase()).append('=').append(getIssueCount(issue));
+        }
+        return text.toString();
+    }
+}
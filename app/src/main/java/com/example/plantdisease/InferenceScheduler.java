@@ -0,0 +1,97 @@
+package com.example.plantdisease;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-screen, latest-wins runner for predictions.
+// Every submit() supersedes the previous request: a queued one is cancelled before it
+// starts, a running one is interrupted and its result is dropped. Only the newest
+// request ever reaches its callback. shutdown() (from onDestroy) stops all work.
+public class InferenceScheduler {
+
+    private static final String TAG = "InferenceScheduler";
+
+    public interface Task<T> {
+        T run() throws Exception;
+    }
+
+    // Called on the main thread, and only for the latest request
+    public interface Callback<T> {
+        // finishedNanos is System.nanoTime() when the task returned on the worker, so the
+        // callback can time the hop to the main thread
+        void onResult(T result, long finishedNanos);
+
+        void onError(Exception error);
+    }
+
+    private final String name;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private Future<?> current;
+    private volatile boolean shutdown;
+
+    public InferenceScheduler(String name) {
+        this.name = name;
+        executor = Executors.newSingleThreadExecutor(r -> new Thread(r, name + "-inference"));
+    }
+
+    public synchronized <T> void submit(Task<T> task, Callback<T> callback) {
+        if (shutdown) {
+            return;
+        }
+        long request = generation.incrementAndGet();
+        if (current != null && !current.isDone()) {
+            current.cancel(true);
+            superseded.incrementAndGet();
+            Log.i(TAG, name + ": request " + (request - 1) + " superseded");
+        }
+
+        current = executor.submit(() -> {
+            if (!isLatest(request)) {
+                return;
+            }
+            try {
+                T result = task.run();
+                long finished = System.nanoTime();
+                if (isLatest(request)) {
+                    mainHandler.post(() -> {
+                        if (isLatest(request)) {
+                            callback.onResult(result, finished);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                if (isLatest(request)) {
+                    mainHandler.post(() -> {
+                        if (isLatest(request)) {
+                            callback.onError(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private boolean isLatest(long request) {
+        return !shutdown && generation.get() == request;
+    }
+
+    // Number of requests that were replaced by a newer one before finishing
+    public long getSupersededCount() {
+        return superseded.get();
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        generation.incrementAndGet();
+        executor.shutdownNow();
+        Log.i(TAG, name + ": shut down, " + superseded.get() + " request(s) superseded");
+    }
+}
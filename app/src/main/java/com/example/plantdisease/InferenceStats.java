@@ -0,0 +1,121 @@
+package com.example.plantdisease;
+
+import android.os.Trace;
+import android.util.Log;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Per-model latency of each stage of a prediction, one LatencyHistogram per stage.
+// begin()/end() also open and close an android.os.Trace section named
+// "<model>.<stage>", so the same stages show up in Perfetto/systrace captures.
+//
+//     long start = stats.begin(InferenceStats.Stage.RESIZE);
+//     ...
+//     stats.end(InferenceStats.Stage.RESIZE, start);
+public class InferenceStats {
+
+    private static final String TAG = "InferenceStats";
+
+    // Shared by every instance; dumps are rare and must not queue behind a model load
+    private static final ExecutorService dumpExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "inference-stats-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public enum Stage {
+        DECODE,
+        RESIZE,
+        NORMALIZE,
+        INFERENCE,
+        POSTPROCESS,
+        // From the worker finishing to the result being on screen
+        DELIVERY
+    }
+
+    private final String name;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final String[] sectionNames = new String[Stage.values().length];
+
+    public InferenceStats(String name) {
+        this.name = name;
+        for (Stage stage : Stage.values()) {
+            histograms[stage.ordinal()] = new LatencyHistogram();
+            sectionNames[stage.ordinal()] = name + "." + stage.name().toLowerCase();
+        }
+    }
+
+    // Start timing a stage on the current thread; pass the result to end()
+    public long begin(Stage stage) {
+        Trace.beginSection(sectionNames[stage.ordinal()]);
+        return System.nanoTime();
+    }
+
+    // Close the stage's trace section (opened on this thread) and record now - startNanos
+    public void end(Stage stage, long startNanos) {
+        record(stage, System.nanoTime() - startNanos);
+        Trace.endSection();
+    }
+
+    // Record a duration measured elsewhere, without a trace section
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].recordNanos(nanos);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getPercentileMicros(Stage stage, double percentile) {
+        return histograms[stage.ordinal()].getPercentileMicros(percentile);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // One line per stage that has samples: count, p50/p95/p99 and max in ms
+    public String summary() {
+        StringBuilder out = new StringBuilder(name).append(" stage latency (ms)\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            if (h.getCount() == 0) {
+                continue;
+            }
+            out.append(String.format("  %-11s n=%-6d p50=%.2f p95=%.2f p99=%.2f max=%.2f%n",
+                    stage.name().toLowerCase(), h.getCount(),
+                    h.getPercentileMicros(50) / 1000.0,
+                    h.getPercentileMicros(95) / 1000.0,
+                    h.getPercentileMicros(99) / 1000.0,
+                    h.getMaxMicros() / 1000.0));
+        }
+        return out.toString();
+    }
+
+    // Write the summary to a file (overwritten); returns false if it could not be written
+    public boolean dump(File file) {
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(summary());
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + file.getName(), e);
+            return false;
+        }
+    }
+
+    // dump() on a background thread, for callers on the main thread
+    public void dumpAsync(File file) {
+        dumpExecutor.execute(() -> dump(file));
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
@@ -14,7 +14,7 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
-import java.io.IOException;
+import java.io.File;
 
 public class InsectActivity extends AppCompatActivity {
 
@@ -23,8 +23,14 @@ public class InsectActivity extends AppCompatActivity {
     private TextView resultText;
     private ProgressBar progressBar;
     private Button cameraBtn, galleryBtn, backBtn;
-    private Bitmap selectedBitmap;
+    // Numbers each picked photo, on the main thread; only the latest one may take the preview
+    private int pickSequence;
     private InsectModel insectModel;
+    private ModelRegistry.Listener<InsectModel> modelListener;
+    private final InferenceScheduler scheduler = new InferenceScheduler(TAG);
+    private ImageLoader imageLoader;
+    // Quality check of the photo behind the latest result
+    private final ImageQualityGate.ScreenCheck quality = new ImageQualityGate.ScreenCheck(TAG);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,28 +44,35 @@ public class InsectActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         cameraBtn = findViewById(R.id.cameraBtn);
         galleryBtn = findViewById(R.id.galleryBtn);
+        imageLoader = new ImageLoader(this);
         backBtn = findViewById(R.id.backBtn);
 
-        // Load model
-        resultText.setText("Loading insect model...");
-        new Thread(() -> {
-            try {
-                Log.i(TAG, "Loading InsectModel...");
-                insectModel = new InsectModel(InsectActivity.this);
-                runOnUiThread(() -> {
-                    Toast.makeText(this, "✓ Insect model loaded!", Toast.LENGTH_LONG).show();
-                    resultText.setText("Ready! Capture or select an insect image");
-                    Log.i(TAG, "Model loaded successfully");
-                });
-            } catch (Exception e) {
+        // Get the shared model; it is only loaded the first time any screen asks for it
+        ModelRegistry registry = ModelRegistry.get(this);
+        boolean alreadyLoaded = registry.getInsectModelState() == ModelRegistry.LoadState.READY;
+        if (!alreadyLoaded) {
+            resultText.setText("Loading insect model...");
+        }
+        modelListener = new ModelRegistry.Listener<InsectModel>() {
+            @Override
+            public void onModelReady(InsectModel model) {
+                insectModel = model;
+                if (!alreadyLoaded) {
+                    Toast.makeText(InsectActivity.this, "✓ Insect model loaded!", Toast.LENGTH_LONG).show();
+                }
+                resultText.setText("Ready! Capture or select an insect image");
+                Log.i(TAG, "Model ready");
+            }
+
+            @Override
+            public void onModelFailed(Exception e) {
                 Log.e(TAG, "Model loading failed", e);
-                runOnUiThread(() -> {
-                    String errorMsg = "❌ Model Error: " + e.getMessage();
-                    resultText.setText(errorMsg);
-                    Toast.makeText(InsectActivity.this, errorMsg, Toast.LENGTH_LONG).show();
-                });
+                String errorMsg = "❌ Model Error: " + e.getMessage();
+                resultText.setText(errorMsg);
+                Toast.makeText(InsectActivity.this, errorMsg, Toast.LENGTH_LONG).show();
             }
-        }).start();
+        };
+        registry.acquireInsectModel(modelListener);
 
         cameraBtn.setOnClickListener(v -> openCamera());
         galleryBtn.setOnClickListener(v -> openGallery());
@@ -70,9 +83,8 @@ public class InsectActivity extends AppCompatActivity {
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(),
                     result -> {
                         if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                            selectedBitmap = (Bitmap) result.getData().getExtras().get("data");
-                            imageView.setImageBitmap(selectedBitmap);
-                            identifyInsect();
+                            Bitmap thumbnail = (Bitmap) result.getData().getExtras().get("data");
+                            identifyInsect(() -> thumbnail);
                         }
                     });
 
@@ -81,13 +93,8 @@ public class InsectActivity extends AppCompatActivity {
                     result -> {
                         if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                             Uri imageUri = result.getData().getData();
-                            try {
-                                selectedBitmap = MediaStore.Images.Media.getBitmap(this.getContentResolver(), imageUri);
-                                imageView.setImageBitmap(selectedBitmap);
-                                identifyInsect();
-                            } catch (IOException e) {
-                                Toast.makeText(this, "Error loading image", Toast.LENGTH_SHORT).show();
-                            }
+                            // Decoded off the main thread, subsampled to preview size
+                            identifyInsect(() -> imageLoader.load(imageUri));
                         }
                     });
 
@@ -101,15 +108,14 @@ public class InsectActivity extends AppCompatActivity {
         galleryLauncher.launch(galleryIntent);
     }
 
-    private void identifyInsect() {
-        if (selectedBitmap == null) {
-            Toast.makeText(this, "No image selected", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
+    private void identifyInsect(InferenceScheduler.Task<Bitmap> imageSource) {
         if (insectModel == null) {
-            Toast.makeText(this, "❌ Model not loaded yet", Toast.LENGTH_LONG).show();
-            resultText.setText("❌ Model failed to load. Please restart.");
+            if (ModelRegistry.get(this).getInsectModelState() == ModelRegistry.LoadState.LOADING) {
+                Toast.makeText(this, "Model is still loading, please wait", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "❌ Model not loaded yet", Toast.LENGTH_LONG).show();
+                resultText.setText("❌ Model failed to load. Please restart.");
+            }
             return;
         }
 
@@ -117,40 +123,82 @@ public class InsectActivity extends AppCompatActivity {
         resultText.setText("🔍 Identifying insect...");
         Log.i(TAG, "Starting prediction...");
 
-        new Thread(() -> {
-            try {
-                InsectModel.InsectPrediction prediction = insectModel.predictInsect(selectedBitmap);
-
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(ProgressBar.GONE);
-                    if (prediction != null) {
-                        String result = "Insect: " + prediction.insectName + "\n\n" +
-                                "Confidence: " + String.format("%.2f%%", prediction.confidence * 100) + "\n\n" +
-                                "Impact on Crops:\n" +
-                                "• " + prediction.fact1 + "\n" +
-                                "• " + prediction.fact2;
-                        resultText.setText(result);
-                        Log.i(TAG, "Prediction successful");
-                    } else {
-                        resultText.setText("❌ Prediction failed");
-                        Toast.makeText(InsectActivity.this, "Could not analyze image", Toast.LENGTH_SHORT).show();
+        // A newer image supersedes this one; stale results never reach the screen
+        InsectModel model = insectModel;
+        InferenceStats stats = model.getStats();
+        int pick = ++pickSequence;
+        scheduler.submit(() -> {
+                    long start = stats.begin(InferenceStats.Stage.DECODE);
+                    Bitmap image;
+                    try {
+                        image = imageSource.run();
+                    } finally {
+                        stats.end(InferenceStats.Stage.DECODE, start);
+                    }
+                    runOnUiThread(() -> showPreview(pick, image));
+                    quality.check(image);
+                    InsectModel.InsectPrediction prediction = model.predictInsect(image);
+                    return prediction;
+                },
+                new InferenceScheduler.Callback<InsectModel.InsectPrediction>() {
+                    @Override
+                    public void onResult(InsectModel.InsectPrediction prediction, long finishedNanos) {
+                        // Includes the wait for the main thread, so no trace section of its own
+                        try {
+                            showResult(prediction);
+                        } finally {
+                            stats.record(InferenceStats.Stage.DELIVERY, System.nanoTime() - finishedNanos);
+                        }
+                    }
+
+                    private void showResult(InsectModel.InsectPrediction prediction) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        if (prediction != null) {
+                            String result = "Insect: " + prediction.insectName + "\n\n" +
+                                    "Confidence: " + String.format("%.2f%%", prediction.confidence * 100) + "\n\n" +
+                                    "Impact on Crops:\n" +
+                                    "• " + prediction.fact1 + "\n" +
+                                    "• " + prediction.fact2 +
+                                    quality.warning();
+                            resultText.setText(result);
+                            Log.i(TAG, "Prediction successful, " + model.getPoolStats() + ", " + model.getCache());
+                        } else {
+                            resultText.setText("❌ Prediction failed");
+                            Toast.makeText(InsectActivity.this, "Could not analyze image", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        resultText.setText(quality.errorText(e));
                     }
                 });
-            } catch (Exception e) {
-                Log.e(TAG, "Prediction exception", e);
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(ProgressBar.GONE);
-                    resultText.setText("❌ Error: " + e.getMessage());
-                });
-            }
-        }).start();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        scheduler.shutdown();
+        // Stage latencies so far, also written to a file for offline analysis
         if (insectModel != null) {
-            insectModel.close();
+            InferenceStats stats = insectModel.getStats();
+            File file = new File(getFilesDir(), "insect_latency.txt");
+            Log.i(TAG, stats.summary());
+            stats.dumpAsync(file);
+        }
+        Log.i(TAG, ImageQualityGate.get().toString());
+        // The registry keeps the model loaded for the next screen
+        ModelRegistry.get(this).releaseInsectModel(modelListener);
+        insectModel = null;
+        Log.i(TAG, MemoryManager.get(this).toString());
+    }
+
+    // A slow decode of an earlier pick must not replace the preview of a newer one
+    private void showPreview(int pick, Bitmap bitmap) {
+        if (pick != pickSequence) {
+            return;
         }
+        imageView.setImageBitmap(bitmap);
     }
 }
\ No newline at end of file
@@ -3,29 +3,26 @@ package com.example.plantdisease;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.support.common.FileUtil;
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
-import org.tensorflow.lite.support.image.ops.ResizeOp;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class InsectModel {
-    private Interpreter tflite;
-    private List<String> insectLabels;
-    private JsonObject insectFacts;
+    static final String MODEL_ASSET = "insect_model.tflite";
+    private static final String LABELS_ASSET = "insect_labels.json";
+    static final String STORE_NAME = "insect_model";
     private static final int IMG_SIZE = 224;
-    private static final int NUM_THREADS = 4;
+    private static final int CACHE_SIZE = 256;
     private static final String TAG = "InsectModel";
+    // Insect names are shown as they are in the labels file
+    private static final VersionedModel.Loader LOADER = new VersionedModel.AssetLoader(TAG,
+            MODEL_ASSET, LABELS_ASSET, "insect_prediction_cache", IMG_SIZE, CACHE_SIZE, name -> name);
+    // Interpreters, labels (with the facts) and cache of the live version
+    private final VersionedModel versions;
+    private final InferenceStats stats = new InferenceStats(TAG);
 
     public static class InsectPrediction {
         public String insectName;
@@ -42,21 +39,14 @@ public class InsectModel {
     }
 
     public InsectModel(Context context) throws Exception {
+        this(context, ModelConfig.getPrecision(context));
+    }
+
+    public InsectModel(Context context, ModelConfig.Precision requestedPrecision) throws Exception {
         try {
             Log.i(TAG, "Loading insect model...");
-
-            // Load labels and facts
-            loadLabelsAndFacts(context);
-            Log.i(TAG, "Labels loaded: " + insectLabels.size() + " classes");
-
-            // Load TFLite model
-            MappedByteBuffer tfliteModel = FileUtil.loadMappedFile(context, "insect_model.tflite");
-            Log.i(TAG, "Model buffer loaded");
-
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(NUM_THREADS);
-
-            tflite = new Interpreter(tfliteModel, options);
+            versions = new VersionedModel(TAG, context.getApplicationContext(),
+                    ModelStore.forModel(context, STORE_NAME), MemoryManager.get(context), LOADER, requestedPrecision);
             Log.i(TAG, "✓ Insect model loaded!");
 
         } catch (Exception e) {
@@ -65,98 +55,211 @@ public class InsectModel {
         }
     }
 
-    private void loadLabelsAndFacts(Context context) throws IOException {
-        insectLabels = new ArrayList<>();
-
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(context.getAssets().open("insect_labels.json"))
-        );
-        StringBuilder jsonString = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            jsonString.append(line);
-        }
-        reader.close();
-
-        Gson gson = new Gson();
-        JsonObject jsonObject = gson.fromJson(jsonString.toString(), JsonObject.class);
-
-
-        String[] classesArray = gson.fromJson(
-                jsonObject.getAsJsonArray("classes"),
-                String[].class
-        );
-
-        for (String className : classesArray) {
-            insectLabels.add(className);
-        }
+    // Load version (null: the bundled model), warm it up and make it live. Predictions
+    // already running finish on the old version and new ones start on the new one.
+    void swapTo(Context context, ModelStore.Version version) throws Exception {
+        versions.swapTo(context, version, ModelConfig.getPrecision(context));
+    }
 
+    // Store check for a new model file: opens and shape-checks it against the labels
+    static void validate(ByteBuffer model, int numClasses) throws IOException {
+        ModelStore.inspect(model, IMG_SIZE, numClasses);
+    }
 
-        insectFacts = jsonObject.getAsJsonObject("facts");
+    // Thread-safe: each call checks out its own interpreter from the pool
+    public InsectPrediction predictInsect(Bitmap bitmap) {
+        return predict(bitmap, null);
+    }
 
-        Log.i(TAG, "Loaded " + insectLabels.size() + " insect types");
+    // Same as predictInsect, reusing the resize, normalization and cache key of a combined scan
+    InsectPrediction predictInsect(ScanInput input) {
+        return predict(input.bitmap, input);
     }
 
-    public InsectPrediction predictInsect(Bitmap bitmap) {
-        if (bitmap == null || tflite == null || insectLabels == null) {
+    private InsectPrediction predict(Bitmap bitmap, ScanInput shared) {
+        ModelVersion version = bitmap != null ? versions.retain() : null;
+        if (version == null) {
             Log.e(TAG, "Prediction failed: missing components");
             return null;
         }
+        PredictionCache cache = version.cache;
 
+        InterpreterPool.Slot slot = null;
         try {
             Log.i(TAG, "Processing insect image...");
 
+            // Same or nearly identical photo seen before: skip the model
+            PredictionCache.Key key = shared != null ? shared.key : PredictionCache.keyOf(bitmap);
+            PredictionCache.Entry cached = cache.get(key);
+            if (cached != null) {
+                Log.i(TAG, "Cached prediction, " + cache);
+                return buildPrediction(version, version.labels.get(cached.classIndex), cached.confidence);
+            }
 
-            TensorImage image = new TensorImage();
-            image.load(bitmap);
+            slot = version.pool.acquire();
 
-            ImageProcessor imageProcessor = new ImageProcessor.Builder()
-                    .add(new ResizeOp(IMG_SIZE, IMG_SIZE, ResizeOp.ResizeMethod.BILINEAR))
-                    .add(new NormalizeOp(0f, 255f))
-                    .build();
+            float[] scores = runSingle(slot, bitmap, shared);
 
-            TensorImage processedImage = imageProcessor.process(image);
+            long start = stats.begin(InferenceStats.Stage.POSTPROCESS);
+            int maxIndex = ImagePreprocessor.argMax(scores);
+            float maxConfidence = scores[maxIndex];
 
-            float[][] output = new float[1][insectLabels.size()];
-            tflite.run(processedImage.getBuffer(), output);
+            String insectName = version.labels.get(maxIndex);
+            cache.put(key, maxIndex, maxConfidence);
+            InsectPrediction prediction = buildPrediction(version, insectName, maxConfidence);
+            stats.end(InferenceStats.Stage.POSTPROCESS, start);
 
+            Log.i(TAG, "Prediction: " + insectName + " (" + (maxConfidence * 100) + "%)");
+            return prediction;
 
-            float maxConfidence = 0;
-            int maxIndex = 0;
-            for (int i = 0; i < output[0].length; i++) {
-                if (output[0][i] > maxConfidence) {
-                    maxConfidence = output[0][i];
-                    maxIndex = i;
-                }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Prediction error", e);
+            return null;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
             }
+            version.release();
+        }
+    }
 
-            String insectName = insectLabels.get(maxIndex);
+    // The k most likely insects, best first
+    public List<InsectPrediction> predictTopK(Bitmap bitmap, int k) {
+        return predictTopK(bitmap, k, 0f);
+    }
 
-            String fact1 = "No information available";
-            String fact2 = "No information available";
+    // The k most likely insects, best first. A temperature > 0 recalibrates the scores
+    // with softmax(log(p) / T) before ranking; 0 keeps the raw model scores.
+    public List<InsectPrediction> predictTopK(Bitmap bitmap, int k, float temperature) {
+        ModelVersion version = bitmap != null && k > 0 ? versions.retain() : null;
+        if (version == null) {
+            Log.e(TAG, "Top-k prediction failed: missing components");
+            return null;
+        }
 
-            if (insectFacts.has(insectName)) {
-                JsonArray factsArray = insectFacts.getAsJsonArray(insectName);
-                if (factsArray.size() >= 2) {
-                    fact1 = factsArray.get(0).getAsString();
-                    fact2 = factsArray.get(1).getAsString();
-                }
+        InterpreterPool.Slot slot = null;
+        try {
+            slot = version.pool.acquire();
+            float[] scores = runSingle(slot, bitmap, null);
+            if (temperature > 0) {
+                TopK.calibrateProbabilities(scores, temperature);
             }
 
-            Log.i(TAG, "Prediction: " + insectName + " (" + (maxConfidence * 100) + "%)");
+            TopK.Scratch top = TopK.scratch(k);
+            int count = TopK.select(scores, k, top.indices, top.scores);
 
-            return new InsectPrediction(insectName, maxConfidence, fact1, fact2);
+            List<InsectPrediction> predictions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                predictions.add(buildPrediction(version, version.labels.get(top.indices[i]), top.scores[i]));
+            }
+            return predictions;
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
-            Log.e(TAG, "Prediction error", e);
+            Log.e(TAG, "Top-k prediction error", e);
             return null;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
         }
     }
 
-    public void close() {
-        if (tflite != null) {
-            tflite.close();
-            Log.i(TAG, "Model closed");
+    // Preprocess into the slot's input buffer (or take the shared input of a combined scan)
+    // and run one image; the returned scores array belongs to the slot and is only valid
+    // until it is released
+    private float[] runSingle(InterpreterPool.Slot slot, Bitmap bitmap, ScanInput shared) {
+        slot.ensureBatchSize(1);
+
+        ByteBuffer input;
+        if (shared != null && shared.fits(slot.preprocessor)) {
+            input = shared.inputFor(slot.preprocessor);
+        } else {
+            int[] pixels;
+            long start = stats.begin(InferenceStats.Stage.RESIZE);
+            try {
+                pixels = slot.preprocessor.loadPixels(bitmap);
+            } finally {
+                stats.end(InferenceStats.Stage.RESIZE, start);
+            }
+
+            start = stats.begin(InferenceStats.Stage.NORMALIZE);
+            try {
+                input = slot.preprocessor.processPixels(pixels);
+            } finally {
+                stats.end(InferenceStats.Stage.NORMALIZE, start);
+            }
+        }
+
+        long start = stats.begin(InferenceStats.Stage.INFERENCE);
+        try {
+            slot.interpreter.run(input, slot.preprocessor.outputBuffer());
+        } finally {
+            stats.end(InferenceStats.Stage.INFERENCE, start);
+        }
+        return slot.preprocessor.readScores();
+    }
+
+    // Run many images through one interpreter invocation per chunk of up to
+    // ImagePreprocessor.MAX_BATCH images. Returns one InsectPrediction per bitmap, in order.
+    public List<InsectPrediction> predictInsectBatch(List<Bitmap> bitmaps) {
+        return versions.predictBatch(bitmaps,
+                (version, classIndex, confidence) -> buildPrediction(version, version.labels.get(classIndex), confidence));
+    }
+
+    // Attach the two crop-impact facts for this insect from the labels file of its version
+    private static InsectPrediction buildPrediction(ModelVersion version, String insectName, float confidence) {
+        String fact1 = "No information available";
+        String fact2 = "No information available";
+
+        JsonObject insectFacts = version.labelsJson.getAsJsonObject("facts");
+        if (insectFacts != null && insectFacts.has(insectName)) {
+            JsonArray factsArray = insectFacts.getAsJsonArray(insectName);
+            if (factsArray.size() >= 2) {
+                fact1 = factsArray.get(0).getAsString();
+                fact2 = factsArray.get(1).getAsString();
+            }
         }
+        return new InsectPrediction(insectName, confidence, fact1, fact2);
+    }
+
+    // One dummy inference so the first real scan doesn't pay for tensor allocation
+    public void warmUp() throws InterruptedException {
+        versions.warmUp();
+    }
+
+    // Variant that was loaded (INT8 falls back to FLOAT32 when no quantized model is bundled)
+    public ModelConfig.Precision getPrecision() {
+        return versions.current().precision;
+    }
+
+    // Store version that is live, or ModelStore.BUNDLED
+    public String getVersion() {
+        return versions.current().name;
+    }
+
+    // Per-stage latency histograms (p50/p95/p99) of this model's predictions
+    public InferenceStats getStats() {
+        return stats;
+    }
+
+    // Hit/miss counters of the prediction cache
+    public PredictionCache getCache() {
+        return versions.current().cache;
+    }
+
+    // Queue wait time and utilization of the interpreter pool
+    public InterpreterPool.Stats getPoolStats() {
+        return versions.current().pool.getStats();
+    }
+
+    public void close() {
+        versions.close();
     }
 }
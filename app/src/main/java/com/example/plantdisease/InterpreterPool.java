@@ -0,0 +1,240 @@
+package com.example.plantdisease;
+
+import android.util.Log;
+import org.tensorflow.lite.Interpreter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded pool of interpreters for one model.
+// An Interpreter is not thread-safe, so every prediction checks out a slot
+// (interpreter + its own preprocessing buffers), runs, and checks it back in.
+// Slots are created lazily up to the pool size; when all are busy callers queue.
+public class InterpreterPool {
+
+    private static final String TAG = "InterpreterPool";
+    private static final int MAX_POOL_SIZE = 4;
+
+    // One interpreter with the buffers that belong to it
+    public static final class Slot {
+        public final Interpreter interpreter;
+        public final ImagePreprocessor preprocessor;
+        private long checkoutNanos;
+        private int batchSize = 1;
+
+        Slot(Interpreter interpreter, ImagePreprocessor preprocessor) {
+            this.interpreter = interpreter;
+            this.preprocessor = preprocessor;
+        }
+
+        // Resize the input tensor to [n, size, size, 3]; a no-op when it already has that batch size
+        public void ensureBatchSize(int n) {
+            if (n != batchSize) {
+                int size = preprocessor.getImageSize();
+                interpreter.resizeInput(0, new int[]{n, size, size, 3});
+                batchSize = n;
+            }
+        }
+    }
+
+    // Snapshot of the pool metrics
+    public static final class Stats {
+        public final int poolSize;
+        public final int created;
+        public final int busy;
+        public final int waiting;
+        public final long checkouts;
+        public final double avgWaitMs;
+        public final double maxWaitMs;
+        public final double utilization;
+
+        Stats(int poolSize, int created, int busy, int waiting, long checkouts,
+              double avgWaitMs, double maxWaitMs, double utilization) {
+            this.poolSize = poolSize;
+            this.created = created;
+            this.busy = busy;
+            this.waiting = waiting;
+            this.checkouts = checkouts;
+            this.avgWaitMs = avgWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.utilization = utilization;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool=%d created=%d busy=%d waiting=%d checkouts=%d " +
+                            "avgWait=%.2fms maxWait=%.2fms utilization=%.1f%%",
+                    poolSize, created, busy, waiting, checkouts,
+                    avgWaitMs, maxWaitMs, utilization * 100);
+        }
+    }
+
+    private final String name;
+    private final ByteBuffer modelBuffer;
+    private final int imgSize;
+    private final int numClasses;
+    private final int poolSize;
+    private final int threadsPerInterpreter;
+    // Tuned interpreter options, or null to only split the cores between the interpreters
+    private final InterpreterTuner.Config config;
+
+    private final BlockingQueue<Slot> idle = new LinkedBlockingQueue<>();
+    private int created;
+    private volatile boolean closed;
+
+    // Metrics
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    public InterpreterPool(String name, ByteBuffer modelBuffer, int imgSize, int numClasses) {
+        this(name, modelBuffer, imgSize, numClasses, defaultPoolSize(), null);
+    }
+
+    public InterpreterPool(String name, ByteBuffer modelBuffer, int imgSize, int numClasses,
+                           InterpreterTuner.Config config) {
+        this(name, modelBuffer, imgSize, numClasses, defaultPoolSize(), config);
+    }
+
+    public InterpreterPool(String name, ByteBuffer modelBuffer, int imgSize, int numClasses, int poolSize,
+                           InterpreterTuner.Config config) {
+        this.name = name;
+        this.modelBuffer = modelBuffer;
+        this.imgSize = imgSize;
+        this.numClasses = numClasses;
+        this.poolSize = poolSize;
+        this.config = config;
+        // Never more than this interpreter's share of the cores, even if the tuned count
+        // (measured with one interpreter, or under another pool size) is higher
+        int budget = InterpreterTuner.threadBudget(Runtime.getRuntime().availableProcessors(), poolSize);
+        this.threadsPerInterpreter = config != null ? Math.min(config.numThreads, budget) : budget;
+
+        // Create the first interpreter now so a broken model fails at load time
+        synchronized (this) {
+            created = 1;
+        }
+        idle.add(createSlot());
+        Log.i(TAG, name + ": pool of " + poolSize + " x " + threadsPerInterpreter + " thread(s)" +
+                (config != null ? ", tuned " + config : ""));
+    }
+
+    // Half the cores, so each interpreter still gets at least two threads on most phones
+    static int defaultPoolSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(MAX_POOL_SIZE, cores / 2));
+    }
+
+    private Slot createSlot() {
+        Interpreter.Options options = config != null ? config.toOptions() : new Interpreter.Options();
+        options.setNumThreads(threadsPerInterpreter);
+        Interpreter interpreter = new Interpreter(modelBuffer, options);
+        // Buffers follow the model's tensor types (float32 or quantized uint8/int8)
+        return new Slot(interpreter, ImagePreprocessor.forInterpreter(interpreter, imgSize, numClasses));
+    }
+
+    // Check out a slot, creating one if allowed or waiting for one to come back
+    public Slot acquire() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException(name + " interpreter pool is closed");
+        }
+        long start = System.nanoTime();
+
+        Slot slot = idle.poll();
+        if (slot == null) {
+            slot = tryCreate();
+        }
+        if (slot == null) {
+            waiting.incrementAndGet();
+            try {
+                while ((slot = idle.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    if (closed) {
+                        throw new IllegalStateException(name + " interpreter pool is closed");
+                    }
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        long now = System.nanoTime();
+        long wait = now - start;
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(wait);
+        long max;
+        while (wait > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, wait)) {
+            // retry
+        }
+        busy.incrementAndGet();
+        slot.checkoutNanos = now;
+        return slot;
+    }
+
+    private Slot tryCreate() {
+        synchronized (this) {
+            if (created >= poolSize) {
+                return null;
+            }
+            created++;
+        }
+        try {
+            return createSlot();
+        } catch (RuntimeException e) {
+            Log.e(TAG, name + ": could not create extra interpreter", e);
+            synchronized (this) {
+                created--;
+            }
+            return null;
+        }
+    }
+
+    // Check a slot back in; slots returned after close() are closed instead
+    public void release(Slot slot) {
+        busyNanos.addAndGet(System.nanoTime() - slot.checkoutNanos);
+        busy.decrementAndGet();
+        if (closed) {
+            slot.interpreter.close();
+            return;
+        }
+        idle.add(slot);
+        // close() may have drained the queue between the check and the add
+        if (closed && idle.remove(slot)) {
+            slot.interpreter.close();
+        }
+    }
+
+    public Stats getStats() {
+        int createdNow;
+        synchronized (this) {
+            createdNow = created;
+        }
+        long count = checkouts.get();
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        return new Stats(
+                poolSize,
+                createdNow,
+                busy.get(),
+                waiting.get(),
+                count,
+                count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000.0,
+                maxWaitNanos.get() / 1_000_000.0,
+                busyNanos.get() / ((double) elapsed * poolSize)
+        );
+    }
+
+    // Close idle interpreters now and busy ones as soon as they are released
+    public void close() {
+        closed = true;
+        Slot slot;
+        while ((slot = idle.poll()) != null) {
+            slot.interpreter.close();
+        }
+        Log.i(TAG, name + ": closed, " + getStats());
+    }
+}
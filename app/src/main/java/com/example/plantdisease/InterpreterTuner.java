@@ -0,0 +1,216 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import org.tensorflow.lite.Interpreter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+// One-time calibration of the interpreter options for a model on this device.
+// The first time a model loads, a handful of candidate configurations (thread count,
+// XNNPACK, FP16-relaxed precision) are benchmarked on a synthetic input and the fastest
+// one is stored per model + device fingerprint. Later loads just read it back.
+// Every interpreter of the pool runs at the same time, so the thread counts tried stay
+// within one interpreter's share of the cores.
+public final class InterpreterTuner {
+
+    private static final String TAG = "InterpreterTuner";
+    private static final String PREFS_NAME = "interpreter_tuning";
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+
+    // Interpreter options to apply to every interpreter of a model
+    public static final class Config {
+        public final int numThreads;
+        public final boolean useXnnpack;
+        public final boolean allowFp16;
+
+        public Config(int numThreads, boolean useXnnpack, boolean allowFp16) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+            this.allowFp16 = allowFp16;
+        }
+
+        public Interpreter.Options toOptions() {
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(numThreads);
+            options.setUseXNNPACK(useXnnpack);
+            options.setAllowFp16PrecisionForFp32(allowFp16);
+            return options;
+        }
+
+        String encode() {
+            return numThreads + "," + useXnnpack + "," + allowFp16;
+        }
+
+        // null when the stored value is missing or malformed
+        static Config decode(String value) {
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.split(",");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                int threads = Integer.parseInt(parts[0]);
+                if (threads < 1) {
+                    return null;
+                }
+                return new Config(threads, Boolean.parseBoolean(parts[1]), Boolean.parseBoolean(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "threads=" + numThreads + " xnnpack=" + useXnnpack + " fp16=" + allowFp16;
+        }
+    }
+
+    private InterpreterTuner() {
+    }
+
+    // Stored configuration for this model, or a fresh calibration if there is none.
+    // Runs on the loading thread; the first call per model costs a few dozen inferences.
+    public static Config tune(Context context, String modelName, ByteBuffer modelBuffer,
+                              long modelFingerprint, int imgSize, int numClasses) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int budget = threadBudget(Runtime.getRuntime().availableProcessors(), InterpreterPool.defaultPoolSize());
+        String key = modelName + "_" + Long.toHexString(modelFingerprint) + "_" + deviceFingerprint() + "_t" + budget;
+
+        Config stored = Config.decode(prefs.getString(key, null));
+        if (stored != null) {
+            Log.i(TAG, modelName + ": using tuned " + stored + " (" + prefs.getString(key + "_report", "") + ")");
+            return stored;
+        }
+
+        long start = System.currentTimeMillis();
+        StringBuilder report = new StringBuilder();
+        Config best = null;
+        double bestMs = Double.MAX_VALUE;
+        for (Config candidate : candidates(budget)) {
+            double ms = benchmark(candidate, modelBuffer, imgSize, numClasses);
+            if (ms < 0) {
+                continue;
+            }
+            Log.i(TAG, modelName + ": " + candidate + " -> " + String.format("%.2f ms", ms));
+            if (report.length() > 0) {
+                report.append("; ");
+            }
+            report.append(candidate.encode()).append('=').append(String.format("%.2fms", ms));
+            if (ms < bestMs) {
+                bestMs = ms;
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            // Every candidate failed; keep the old default and try again next launch
+            Log.w(TAG, modelName + ": calibration failed, using defaults");
+            return new Config(budget, false, false);
+        }
+
+        prefs.edit()
+                .putString(key, best.encode())
+                .putString(key + "_report", report.toString())
+                .apply();
+        Log.i(TAG, modelName + ": picked " + best + String.format(" (%.2f ms)", bestMs) +
+                ", calibration took " + (System.currentTimeMillis() - start) + " ms");
+        return best;
+    }
+
+    // Forget all stored configurations, e.g. after changing the candidate set
+    public static void reset(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    // Stored configurations and their measured latencies, for diagnostics screens/logs
+    public static String dump(Context context) {
+        StringBuilder out = new StringBuilder();
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> e : new TreeMap<>(prefs.getAll()).entrySet()) {
+            out.append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Threads one interpreter may use when poolSize of them run side by side
+    static int threadBudget(int cores, int poolSize) {
+        return Math.max(1, cores / Math.max(1, poolSize));
+    }
+
+    // Thread counts 1, 2, 4, ... up to the budget, each with XNNPACK off, on, and on
+    // with FP16-relaxed precision (FP16 only matters to the XNNPACK kernels)
+    static List<Config> candidates(int maxThreads) {
+        List<Integer> threads = new ArrayList<>();
+        for (int n = 1; n <= maxThreads; n *= 2) {
+            threads.add(n);
+        }
+        if (!threads.contains(maxThreads)) {
+            threads.add(maxThreads);
+        }
+        List<Config> configs = new ArrayList<>();
+        for (int n : threads) {
+            configs.add(new Config(n, false, false));
+            configs.add(new Config(n, true, false));
+            configs.add(new Config(n, true, true));
+        }
+        return configs;
+    }
+
+    // Median single-image latency in ms, or -1 when the configuration can't run here
+    private static double benchmark(Config config, ByteBuffer modelBuffer, int imgSize, int numClasses) {
+        Interpreter interpreter = null;
+        try {
+            interpreter = new Interpreter(modelBuffer, config.toOptions());
+            ImagePreprocessor preprocessor = ImagePreprocessor.forInterpreter(interpreter, imgSize, numClasses);
+            ByteBuffer input = preprocessor.processPixels(syntheticPixels(imgSize));
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                interpreter.run(input, preprocessor.outputBuffer());
+                input.rewind();
+            }
+            long[] times = new long[TIMED_RUNS];
+            for (int i = 0; i < TIMED_RUNS; i++) {
+                long start = System.nanoTime();
+                interpreter.run(input, preprocessor.outputBuffer());
+                times[i] = System.nanoTime() - start;
+                input.rewind();
+            }
+            Arrays.sort(times);
+            return times[TIMED_RUNS / 2] / 1_000_000.0;
+        } catch (Exception e) {
+            Log.w(TAG, "Candidate " + config + " failed: " + e.getMessage());
+            return -1;
+        } finally {
+            if (interpreter != null) {
+                interpreter.close();
+            }
+        }
+    }
+
+    private static int[] syntheticPixels(int imgSize) {
+        Random random = new Random(1);
+        int[] pixels = new int[imgSize * imgSize];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    // Changes when the phone, its OS version or the usable core count changes
+    static String deviceFingerprint() {
+        String device = Build.MANUFACTURER + "/" + Build.MODEL + "/" + Build.HARDWARE + "/" +
+                Build.VERSION.SDK_INT + "/" + Runtime.getRuntime().availableProcessors();
+        return Integer.toHexString(device.hashCode());
+    }
+}
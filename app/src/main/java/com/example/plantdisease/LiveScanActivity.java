@@ -0,0 +1,144 @@
+package com.example.plantdisease;
+
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+import android.util.Size;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Live disease diagnosis from the camera stream.
+// CameraX delivers YUV frames to LiveScanPipeline with the keep-only-latest strategy;
+// each frame is converted straight into the model's input buffer and the smoothed
+// label is shown over the preview, at whatever rate the interpreter sustains.
+public class LiveScanActivity extends AppCompatActivity {
+
+    private static final String TAG = "LiveScanActivity";
+    // Frames averaged for the label on screen (~half a second on most phones)
+    private static final int SMOOTHING_WINDOW = 5;
+    // Analysis frames only need to be a few times the model input size
+    private static final Size ANALYSIS_SIZE = new Size(640, 480);
+
+    private PreviewView previewView;
+    private TextView liveResultText;
+    private ModelRegistry.Listener<DiseaseModel> modelListener;
+    private DiseaseModel diseaseModel;
+    private LiveScanPipeline pipeline;
+    private ProcessCameraProvider cameraProvider;
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_live_scan);
+
+        previewView = findViewById(R.id.previewView);
+        liveResultText = findViewById(R.id.liveResultText);
+
+        // The permission is requested on the disease screen
+        if (ContextCompat.checkSelfPermission(this, android.Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Camera permission is needed for live scan", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+
+        liveResultText.setText("Loading ML model...");
+        modelListener = new ModelRegistry.Listener<DiseaseModel>() {
+            @Override
+            public void onModelReady(DiseaseModel model) {
+                diseaseModel = model;
+                startCamera(model);
+            }
+
+            @Override
+            public void onModelFailed(Exception e) {
+                Log.e(TAG, "Model loading failed", e);
+                liveResultText.setText("❌ Model Error: " + e.getMessage());
+            }
+        };
+        ModelRegistry.get(this).acquireDiseaseModel(modelListener);
+    }
+
+    private void startCamera(DiseaseModel model) {
+        List<String> labels = model.getLabels();
+        pipeline = new LiveScanPipeline(model::scoreFrame, labels.size(), SMOOTHING_WINDOW,
+                (classIndex, confidence, stable) -> {
+                    String text = String.format("%s (%.1f%%)\n%s",
+                            labels.get(classIndex), confidence * 100,
+                            stable ? "✓ Steady" : "Hold the camera still...");
+                    runOnUiThread(() -> liveResultText.setText(text));
+                });
+        pipeline.start();
+        liveResultText.setText("Point the camera at a leaf");
+
+        ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(this);
+        providerFuture.addListener(() -> {
+            try {
+                cameraProvider = providerFuture.get();
+                bindCamera();
+            } catch (Exception e) {
+                Log.e(TAG, "Could not start camera", e);
+                liveResultText.setText("❌ Camera Error: " + e.getMessage());
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private void bindCamera() {
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setTargetResolution(ANALYSIS_SIZE)
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                .build();
+        // The pipeline closes the frame once it is classified or superseded
+        analysis.setAnalyzer(analysisExecutor, image -> pipeline.offer(toFrame(image)));
+
+        cameraProvider.unbindAll();
+        cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+    }
+
+    private static YuvFrame toFrame(ImageProxy image) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        return new YuvFrame(image.getWidth(), image.getHeight(),
+                image.getImageInfo().getRotationDegrees(), image.getImageInfo().getTimestamp(),
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                image::close);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+        analysisExecutor.shutdown();
+        if (diseaseModel != null) {
+            Log.i(TAG, diseaseModel.getStats().summary());
+        }
+        if (modelListener != null) {
+            // The registry keeps the model loaded for the next screen
+            ModelRegistry.get(this).releaseDiseaseModel(modelListener);
+        }
+        diseaseModel = null;
+    }
+}
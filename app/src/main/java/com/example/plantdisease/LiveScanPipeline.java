@@ -0,0 +1,176 @@
+package com.example.plantdisease;
+
+import android.util.Log;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Continuous diagnosis of a camera stream.
+// The camera offers frames as fast as it produces them; only the newest one is kept
+// and older unprocessed ones are closed right away, so the pipeline runs at whatever
+// rate the classifier sustains and never builds a backlog (CameraX's keep-only-latest
+// strategy, done here as well so synthetic sources behave the same). Each processed
+// frame's scores go through a PredictionSmoother before they reach the listener.
+public class LiveScanPipeline {
+
+    private static final String TAG = "LiveScanPipeline";
+
+    // Fills scores for one frame; returns false when the frame could not be classified
+    public interface Classifier {
+        boolean classify(YuvFrame frame, float[] scores) throws Exception;
+    }
+
+    // Called on the pipeline thread after every processed frame
+    public interface Listener {
+        void onPrediction(int classIndex, float confidence, boolean stable);
+    }
+
+    private final Classifier classifier;
+    private final Listener listener;
+    private final float[] scores;
+    private final PredictionSmoother smoother;
+
+    private final Object lock = new Object();
+    private YuvFrame pending;
+    private Thread worker;
+    private volatile boolean running;
+
+    // Metrics
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+    private volatile long startNanos;
+
+    public LiveScanPipeline(Classifier classifier, int numClasses, int window, Listener listener) {
+        this.classifier = classifier;
+        this.listener = listener;
+        this.scores = new float[numClasses];
+        this.smoother = new PredictionSmoother(numClasses, window);
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            startNanos = System.nanoTime();
+            worker = new Thread(this::run, TAG);
+            worker.start();
+        }
+    }
+
+    // Hand over a frame; never blocks. The pipeline closes it once processed or replaced.
+    public void offer(YuvFrame frame) {
+        offered.incrementAndGet();
+        YuvFrame replaced;
+        synchronized (lock) {
+            if (!running) {
+                replaced = frame;
+            } else {
+                replaced = pending;
+                pending = frame;
+                lock.notifyAll();
+            }
+        }
+        if (replaced != null) {
+            dropped.incrementAndGet();
+            replaced.close();
+        }
+    }
+
+    // Stop after the current frame; a frame still waiting is closed
+    public void stop() {
+        YuvFrame left;
+        Thread thread;
+        synchronized (lock) {
+            running = false;
+            left = pending;
+            pending = null;
+            thread = worker;
+            worker = null;
+            lock.notifyAll();
+        }
+        if (left != null) {
+            left.close();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Log.i(TAG, "Stopped, " + this);
+    }
+
+    private void run() {
+        while (true) {
+            YuvFrame frame;
+            synchronized (lock) {
+                while (running && pending == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                frame = pending;
+                pending = null;
+            }
+            process(frame);
+        }
+    }
+
+    private void process(YuvFrame frame) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = classifier.classify(frame, scores);
+        } catch (Exception e) {
+            Log.e(TAG, "Frame failed", e);
+            ok = false;
+        } finally {
+            frame.close();
+        }
+        if (!ok) {
+            return;
+        }
+        smoother.add(scores);
+        processed.incrementAndGet();
+        frameLatency.recordNanos(System.nanoTime() - start);
+        listener.onPrediction(smoother.top(), smoother.confidence(), smoother.isStable());
+    }
+
+    public long getOffered() {
+        return offered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    // Frames classified per second since start()
+    public double getProcessedFps() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : processed.get() * 1e9 / elapsed;
+    }
+
+    // Time from taking a frame to its smoothed result
+    public LatencyHistogram getFrameLatency() {
+        return frameLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("offered=%d processed=%d dropped=%d %.1f fps p50=%.1fms",
+                getOffered(), getProcessed(), getDropped(), getProcessedFps(),
+                frameLatency.getPercentileMicros(50) / 1000.0);
+    }
+}
@@ -18,7 +18,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.content.pm.PackageManager;
-import java.io.IOException;
+import java.io.File;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -26,9 +26,18 @@ public class MainActivity extends AppCompatActivity {
     private ImageView imageView;
     private TextView resultText;
     private ProgressBar progressBar;
-    private Button cameraBtn, galleryBtn;
-    private Bitmap selectedBitmap;
+    private Button cameraBtn, galleryBtn, bulkScanBtn, fullScanBtn, liveBtn;
+    // Numbers each picked photo, on the main thread; only the latest one may take the preview
+    private int pickSequence;
     private DiseaseModel diseaseModel;
+    private ModelRegistry.Listener<DiseaseModel> modelListener;
+    // Insect model and combined scanner, only loaded once a full scan is asked for
+    private ModelRegistry.BlockingListener<InsectModel> insectListener;
+    private volatile PlantHealthScanner healthScanner;
+    private final InferenceScheduler scheduler = new InferenceScheduler(TAG);
+    private ImageLoader imageLoader;
+    // Quality check of the photo behind the latest result
+    private final ImageQualityGate.ScreenCheck quality = new ImageQualityGate.ScreenCheck(TAG);
     private static final int PERMISSION_REQUEST_CODE = 100;
 
     @Override
@@ -52,32 +61,46 @@ public class MainActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         cameraBtn = findViewById(R.id.cameraBtn);
         galleryBtn = findViewById(R.id.galleryBtn);
+        bulkScanBtn = findViewById(R.id.bulkScanBtn);
+        fullScanBtn = findViewById(R.id.fullScanBtn);
+        liveBtn = findViewById(R.id.liveBtn);
+        imageLoader = new ImageLoader(this);
 
-        // Load model on background thread
-        resultText.setText("Loading ML model...");
-        new Thread(() -> {
-            try {
-                Log.i(TAG, "Loading DiseaseModel on thread...");
-                diseaseModel = new DiseaseModel(MainActivity.this);
-                runOnUiThread(() -> {
-                    Toast.makeText(this, "✓ Model loaded!", Toast.LENGTH_LONG).show();
-                    resultText.setText("Ready! Select an image to analyze");
-                    Log.i(TAG, "Model loaded successfully");
-                });
-            } catch (Exception e) {
+        // Get the shared model; it is only loaded the first time any screen asks for it
+        ModelRegistry registry = ModelRegistry.get(this);
+        boolean alreadyLoaded = registry.getDiseaseModelState() == ModelRegistry.LoadState.READY;
+        if (!alreadyLoaded) {
+            resultText.setText("Loading ML model...");
+        }
+        modelListener = new ModelRegistry.Listener<DiseaseModel>() {
+            @Override
+            public void onModelReady(DiseaseModel model) {
+                diseaseModel = model;
+                if (!alreadyLoaded) {
+                    Toast.makeText(MainActivity.this, "✓ Model loaded!", Toast.LENGTH_LONG).show();
+                }
+                resultText.setText("Ready! Select an image to analyze");
+                Log.i(TAG, "Model ready");
+            }
+
+            @Override
+            public void onModelFailed(Exception e) {
                 Log.e(TAG, "Model loading failed", e);
-                runOnUiThread(() -> {
-                    String errorMsg = "❌ Model Error: " + e.getMessage();
-                    resultText.setText(errorMsg);
-                    Toast.makeText(MainActivity.this, errorMsg, Toast.LENGTH_LONG).show();
-                });
+                String errorMsg = "❌ Model Error: " + e.getMessage();
+                resultText.setText(errorMsg);
+                Toast.makeText(MainActivity.this, errorMsg, Toast.LENGTH_LONG).show();
             }
-        }).start();
+        };
+        registry.acquireDiseaseModel(modelListener);
 
         requestPermissions();
 
         cameraBtn.setOnClickListener(v -> openCamera());
         galleryBtn.setOnClickListener(v -> openGallery());
+        bulkScanBtn.setOnClickListener(v -> startActivity(new Intent(this, BulkScanActivity.class)));
+        liveBtn.setOnClickListener(v -> startActivity(new Intent(this, LiveScanActivity.class)));
+        fullScanBtn.setOnClickListener(v -> fullScanLauncher.launch(
+                new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI)));
     }
 
     private void requestPermissions() {
@@ -113,9 +136,8 @@ public class MainActivity extends AppCompatActivity {
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(),
                     result -> {
                         if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                            selectedBitmap = (Bitmap) result.getData().getExtras().get("data");
-                            imageView.setImageBitmap(selectedBitmap);
-                            identifyDisease();
+                            Bitmap thumbnail = (Bitmap) result.getData().getExtras().get("data");
+                            identifyDisease(() -> thumbnail);
                         }
                     });
 
@@ -124,13 +146,17 @@ public class MainActivity extends AppCompatActivity {
                     result -> {
                         if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                             Uri imageUri = result.getData().getData();
-                            try {
-                                selectedBitmap = MediaStore.Images.Media.getBitmap(this.getContentResolver(), imageUri);
-                                imageView.setImageBitmap(selectedBitmap);
-                                identifyDisease();
-                            } catch (IOException e) {
-                                Toast.makeText(this, "Error loading image", Toast.LENGTH_SHORT).show();
-                            }
+                            // Decoded off the main thread, subsampled to preview size
+                            identifyDisease(() -> imageLoader.load(imageUri));
+                        }
+                    });
+
+    private final ActivityResultLauncher<Intent> fullScanLauncher =
+            registerForActivityResult(new ActivityResultContracts.StartActivityForResult(),
+                    result -> {
+                        if (result.getResultCode() == RESULT_OK && result.getData() != null) {
+                            Uri imageUri = result.getData().getData();
+                            scanPlantHealth(() -> imageLoader.load(imageUri));
                         }
                     });
 
@@ -144,15 +170,21 @@ public class MainActivity extends AppCompatActivity {
         galleryLauncher.launch(galleryIntent);
     }
 
-    private void identifyDisease() {
-        if (selectedBitmap == null) {
-            Toast.makeText(this, "No image selected", Toast.LENGTH_SHORT).show();
-            return;
+    private boolean checkModelReady() {
+        if (diseaseModel != null) {
+            return true;
         }
-
-        if (diseaseModel == null) {
+        if (ModelRegistry.get(this).getDiseaseModelState() == ModelRegistry.LoadState.LOADING) {
+            Toast.makeText(this, "Model is still loading, please wait", Toast.LENGTH_SHORT).show();
+        } else {
             Toast.makeText(this, "❌ Model not loaded yet", Toast.LENGTH_LONG).show();
             resultText.setText("❌ Model failed to load. Please restart app.");
+        }
+        return false;
+    }
+
+    private void identifyDisease(InferenceScheduler.Task<Bitmap> imageSource) {
+        if (!checkModelReady()) {
             return;
         }
 
@@ -160,38 +192,144 @@ public class MainActivity extends AppCompatActivity {
         resultText.setText("🔍 Analyzing plant...");
         Log.i(TAG, "Starting prediction...");
 
-        new Thread(() -> {
-            try {
-                DiseaseModel.Prediction prediction = diseaseModel.predictDisease(selectedBitmap);
-
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(ProgressBar.GONE);
-                    if (prediction != null) {
-                        resultText.setText(
-                                "Disease: " + prediction.diseaseName + "\n\n" +
-                                        "Confidence: " + String.format("%.2f%%", prediction.confidence * 100)
-                        );
-                        Log.i(TAG, "Prediction successful");
-                    } else {
-                        resultText.setText("❌ Prediction failed");
-                        Toast.makeText(MainActivity.this, "Could not analyze image", Toast.LENGTH_SHORT).show();
+        // A newer image supersedes this one; stale results never reach the screen
+        DiseaseModel model = diseaseModel;
+        InferenceStats stats = model.getStats();
+        int pick = ++pickSequence;
+        scheduler.submit(() -> {
+                    long start = stats.begin(InferenceStats.Stage.DECODE);
+                    Bitmap image;
+                    try {
+                        image = imageSource.run();
+                    } finally {
+                        stats.end(InferenceStats.Stage.DECODE, start);
+                    }
+                    runOnUiThread(() -> showPreview(pick, image));
+                    quality.check(image);
+                    DiseaseModel.Prediction prediction = model.predictDisease(image);
+                    return prediction;
+                },
+                new InferenceScheduler.Callback<DiseaseModel.Prediction>() {
+                    @Override
+                    public void onResult(DiseaseModel.Prediction prediction, long finishedNanos) {
+                        // Includes the wait for the main thread, so no trace section of its own
+                        try {
+                            showResult(prediction);
+                        } finally {
+                            stats.record(InferenceStats.Stage.DELIVERY, System.nanoTime() - finishedNanos);
+                        }
+                    }
+
+                    private void showResult(DiseaseModel.Prediction prediction) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        if (prediction != null) {
+                            resultText.setText(
+                                    "Disease: " + prediction.displayName() + "\n\n" +
+                                            "Confidence: " + String.format("%.2f%%", prediction.confidence * 100) +
+                                            quality.warning()
+                            );
+                            Log.i(TAG, "Prediction successful, " + model.getPoolStats() + ", " + model.getCache());
+                        } else {
+                            resultText.setText("❌ Prediction failed");
+                            Toast.makeText(MainActivity.this, "Could not analyze image", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        resultText.setText(quality.errorText(e));
                     }
                 });
-            } catch (Exception e) {
-                Log.e(TAG, "Prediction exception", e);
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(ProgressBar.GONE);
-                    resultText.setText("❌ Error: " + e.getMessage());
+    }
+
+    // Disease and insect results for one photo, decoded and preprocessed once
+    private void scanPlantHealth(InferenceScheduler.Task<Bitmap> imageSource) {
+        if (!checkModelReady()) {
+            return;
+        }
+        if (insectListener == null) {
+            insectListener = new ModelRegistry.BlockingListener<>();
+            ModelRegistry.get(this).acquireInsectModel(insectListener);
+        }
+
+        progressBar.setVisibility(ProgressBar.VISIBLE);
+        resultText.setText("🔍 Checking for diseases and insects...");
+
+        DiseaseModel model = diseaseModel;
+        ModelRegistry.BlockingListener<InsectModel> insect = insectListener;
+        int pick = ++pickSequence;
+        scheduler.submit(() -> {
+                    Bitmap image = imageSource.run();
+                    runOnUiThread(() -> showPreview(pick, image));
+                    quality.check(image);
+                    // Only touched from the scheduler's thread
+                    if (healthScanner == null) {
+                        healthScanner = new PlantHealthScanner(model, insect.await());
+                    }
+                    return healthScanner.scan(image);
+                },
+                new InferenceScheduler.Callback<PlantHealthScanner.Result>() {
+                    @Override
+                    public void onResult(PlantHealthScanner.Result result, long finishedNanos) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        StringBuilder text = new StringBuilder();
+                        if (result.disease != null) {
+                            text.append(String.format("Disease: %s (%.2f%%)",
+                                    result.disease.displayName(), result.disease.confidence * 100));
+                        } else {
+                            text.append("❌ Disease check failed");
+                        }
+                        text.append("\n\n");
+                        if (result.insect != null) {
+                            text.append(String.format("Insect: %s (%.2f%%)\n\n• %s\n• %s",
+                                    result.insect.insectName, result.insect.confidence * 100,
+                                    result.insect.fact1, result.insect.fact2));
+                        } else {
+                            text.append("❌ Insect check failed");
+                        }
+                        text.append(quality.warning());
+                        resultText.setText(text.toString());
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        progressBar.setVisibility(ProgressBar.GONE);
+                        resultText.setText(quality.errorText(e));
+                    }
                 });
-            }
-        }).start();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        scheduler.shutdown();
+        // Stage latencies so far, also written to a file for offline analysis
         if (diseaseModel != null) {
-            diseaseModel.close();
+            InferenceStats stats = diseaseModel.getStats();
+            File file = new File(getFilesDir(), "disease_latency.txt");
+            Log.i(TAG, stats.summary());
+            stats.dumpAsync(file);
+        }
+        Log.i(TAG, ImageQualityGate.get().toString());
+        if (healthScanner != null) {
+            Log.i(TAG, healthScanner.getStats().summary());
+            healthScanner.close();
+        }
+        // The registry keeps the models loaded for the next screen
+        ModelRegistry.get(this).releaseDiseaseModel(modelListener);
+        if (insectListener != null) {
+            ModelRegistry.get(this).releaseInsectModel(insectListener);
+        }
+        diseaseModel = null;
+        Log.i(TAG, MemoryManager.get(this).toString());
+    }
+
+    // A slow decode of an earlier pick must not replace the preview of a newer one
+    private void showPreview(int pick, Bitmap bitmap) {
+        if (pick != pickSequence) {
+            return;
         }
+        imageView.setImageBitmap(bitmap);
     }
 }
\ No newline at end of file
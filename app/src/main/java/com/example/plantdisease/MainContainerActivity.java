@@ -22,6 +22,9 @@ public class MainContainerActivity extends AppCompatActivity {
         userEmail = getIntent().getStringExtra("USER_EMAIL");
         userCountry = getIntent().getStringExtra("USER_COUNTRY");
 
+        // Pick up a new model version dropped into app storage, if any
+        ModelRegistry.get(this).installDroppedModels();
+
         viewPager = findViewById(R.id.viewPager);
 
         // Create adapter with 2 pages
@@ -0,0 +1,172 @@
+package com.example.plantdisease;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Process-wide reaction to memory pressure.
+// Holders of memory that can be rebuilt (parsed JSON, loaded models) register a Releasable
+// with a tier. When the system asks the app to trim, the tiers are released
+// cheapest-to-rebuild first, and only as far as the trim level asks for: caches while the
+// app is running low, critical or in the background, models only when the process is
+// about to be killed otherwise. Each holder reloads on its next use and
+// reports the time through recordReload(), so the cost of a trim shows up in the log.
+public class MemoryManager implements ComponentCallbacks2 {
+
+    private static final String TAG = "MemoryManager";
+
+    // In release order
+    public enum Tier {
+        JSON_CACHE,
+        INTERPRETERS
+    }
+
+    // Drops what it holds and returns roughly how many bytes that frees (0 when nothing was held)
+    public interface Releasable {
+        long release();
+    }
+
+    private static final class Registration {
+        final Tier tier;
+        final String name;
+        final Releasable releasable;
+
+        Registration(Tier tier, String name, Releasable releasable) {
+            this.tier = tier;
+            this.name = name;
+            this.releasable = releasable;
+        }
+    }
+
+    private static MemoryManager instance;
+
+    public static synchronized MemoryManager get(Context context) {
+        if (instance == null) {
+            instance = new MemoryManager();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    // Metrics
+    private final AtomicLong trims = new AtomicLong();
+    private final AtomicLong releasedBytes = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final LatencyHistogram reloadLatency = new LatencyHistogram();
+
+    MemoryManager() {
+    }
+
+    public void register(Tier tier, String name, Releasable releasable) {
+        registrations.add(new Registration(tier, name, releasable));
+    }
+
+    // Call with the same Releasable instance that was registered
+    public void unregister(Releasable releasable) {
+        for (Registration registration : registrations) {
+            if (registration.releasable == releasable) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        int tiers = tiersToRelease(level);
+        if (tiers > 0) {
+            release(tiers, "trim level " + level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        release(Tier.values().length, "low memory");
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    // How many tiers (in Tier order) a trim level releases. UI_HIDDEN only means the app
+    // went to the background, so it is treated like RUNNING_LOW.
+    static int tiersToRelease(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            return 2;
+        }
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            return 1;
+        }
+        return 0;
+    }
+
+    // Release the first `tiers` tiers, in order; returns the bytes freed
+    long release(int tiers, String reason) {
+        long start = System.nanoTime();
+        long total = 0;
+        StringBuilder freed = new StringBuilder();
+        for (Tier tier : Tier.values()) {
+            if (tier.ordinal() >= tiers) {
+                break;
+            }
+            for (Registration registration : registrations) {
+                if (registration.tier != tier) {
+                    continue;
+                }
+                long bytes;
+                try {
+                    bytes = registration.releasable.release();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Could not release " + registration.name, e);
+                    continue;
+                }
+                if (bytes > 0) {
+                    total += bytes;
+                    freed.append(freed.length() > 0 ? ", " : "")
+                            .append(registration.name).append(' ').append(bytes / 1024).append(" KB");
+                }
+            }
+        }
+        trims.incrementAndGet();
+        releasedBytes.addAndGet(total);
+        Log.i(TAG, reason + ": released " + (freed.length() > 0 ? freed : "nothing") + " (" +
+                total / 1024 + " KB in " + (System.nanoTime() - start) / 1_000_000 + " ms, up to " +
+                Tier.values()[tiers - 1] + ")");
+        return total;
+    }
+
+    // Called by a holder that had to load again what a trim released
+    public void recordReload(String name, long nanos) {
+        reloads.incrementAndGet();
+        reloadLatency.recordNanos(nanos);
+        Log.i(TAG, "Reloaded " + name + " in " + nanos / 1_000_000 + " ms after a memory trim");
+    }
+
+    public long getTrims() {
+        return trims.get();
+    }
+
+    public long getReleasedBytes() {
+        return releasedBytes.get();
+    }
+
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    public LatencyHistogram getReloadLatency() {
+        return reloadLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("memory trims=%d released=%dKB reloads=%d reload p50=%dms",
+                getTrims(), getReleasedBytes() / 1024, getReloads(),
+                reloadLatency.getPercentileMicros(50) / 1000);
+    }
+}
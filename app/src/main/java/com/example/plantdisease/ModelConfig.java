@@ -0,0 +1,142 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.util.Log;
+import org.tensorflow.lite.support.common.FileUtil;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+// Which variant of the scan models to load.
+// FLOAT32 is the original model; INT8 is the quantized export of the same model,
+// shipped next to it as <name>_int8.tflite. The choice is kept in SharedPreferences
+// and picked up the next time a model is loaded, as are the optional disease cascade
+// and test-time augmentation.
+public final class ModelConfig {
+
+    private static final String TAG = "ModelConfig";
+    private static final String PREFS_NAME = "model_config";
+    private static final String KEY_PRECISION = "precision";
+    private static final String KEY_CASCADE = "cascade_enabled";
+    private static final String KEY_CASCADE_THRESHOLD = "cascade_threshold";
+    private static final String KEY_TTA = "tta_enabled";
+    private static final String KEY_TTA_THRESHOLD = "tta_threshold";
+
+    // Gatekeeper confidence below which the full disease model still runs
+    static final float DEFAULT_CASCADE_THRESHOLD = 0.85f;
+    // Top-1 confidence below which DiseaseModel averages in the augmented views
+    static final float DEFAULT_TTA_THRESHOLD = 0.6f;
+
+    public enum Precision {
+        FLOAT32,
+        INT8
+    }
+
+    private ModelConfig() {
+    }
+
+    public static Precision getPrecision(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        try {
+            return Precision.valueOf(prefs.getString(KEY_PRECISION, Precision.FLOAT32.name()));
+        } catch (IllegalArgumentException e) {
+            return Precision.FLOAT32;
+        }
+    }
+
+    public static void setPrecision(Context context, Precision precision) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(KEY_PRECISION, precision.name())
+                .apply();
+    }
+
+    // Whether DiseaseModel runs the gatekeeper model first (off by default)
+    public static boolean isCascadeEnabled(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_CASCADE, false);
+    }
+
+    public static float getCascadeThreshold(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getFloat(KEY_CASCADE_THRESHOLD, DEFAULT_CASCADE_THRESHOLD);
+    }
+
+    public static void setCascade(Context context, boolean enabled, float threshold) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_CASCADE, enabled)
+                .putFloat(KEY_CASCADE_THRESHOLD, threshold)
+                .apply();
+    }
+
+    // Whether borderline disease predictions get test-time augmentation (off by default)
+    public static boolean isTtaEnabled(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(KEY_TTA, false);
+    }
+
+    public static float getTtaThreshold(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getFloat(KEY_TTA_THRESHOLD, DEFAULT_TTA_THRESHOLD);
+    }
+
+    public static void setTta(Context context, boolean enabled, float threshold) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_TTA, enabled)
+                .putFloat(KEY_TTA_THRESHOLD, threshold)
+                .apply();
+    }
+
+    // "plant_disease_model.tflite" -> "plant_disease_model_int8.tflite"
+    static String assetName(String floatAsset, Precision precision) {
+        if (precision == Precision.FLOAT32) {
+            return floatAsset;
+        }
+        return floatAsset.replace(".tflite", "_int8.tflite");
+    }
+
+    // Suffix that keeps per-variant files (like the prediction caches) apart
+    static String fileSuffix(Precision precision) {
+        return precision == Precision.FLOAT32 ? "" : "_int8";
+    }
+
+    // Model result of loadModel: the buffer plus the variant (and its asset) that was actually found
+    static final class LoadedModel {
+        final MappedByteBuffer buffer;
+        final Precision precision;
+        final String asset;
+
+        LoadedModel(MappedByteBuffer buffer, Precision precision, String asset) {
+            this.buffer = buffer;
+            this.precision = precision;
+            this.asset = asset;
+        }
+    }
+
+    // Bundled assets only change with an app update, so its install time stands in for
+    // the assets' modification time
+    static long assetVersion(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    // Map the requested variant from assets, falling back to the float model when the
+    // quantized file is not bundled
+    static LoadedModel loadModel(Context context, String floatAsset, Precision precision) throws IOException {
+        if (precision != Precision.FLOAT32) {
+            String asset = assetName(floatAsset, precision);
+            try {
+                return new LoadedModel(FileUtil.loadMappedFile(context, asset), precision, asset);
+            } catch (IOException e) {
+                Log.w(TAG, asset + " not found, falling back to " + floatAsset);
+            }
+        }
+        return new LoadedModel(FileUtil.loadMappedFile(context, floatAsset), Precision.FLOAT32, floatAsset);
+    }
+}
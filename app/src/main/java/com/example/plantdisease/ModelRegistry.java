@@ -0,0 +1,356 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Process-wide owner of the TFLite models.
+// Each model is loaded lazily once on a background thread, warmed up with a dummy
+// inference and then handed to every screen that asks for it. Screens acquire a
+// model in onCreate and release it in onDestroy; the registry keeps the loaded
+// model around after the last release so re-entering a screen is instant.
+// New model versions can be installed into app storage (see ModelStore) and swapped in
+// while screens hold the model: they keep the same DiseaseModel/InsectModel object,
+// which switches its interpreters underneath them.
+public class ModelRegistry {
+
+    private static final String TAG = "ModelRegistry";
+
+    public enum LoadState { NOT_LOADED, LOADING, READY, FAILED }
+
+    // Callbacks are delivered on the main thread, or right away when the model is already loaded
+    public interface Listener<T> {
+        void onModelReady(T model);
+
+        void onModelFailed(Exception error);
+    }
+
+    // Listener for background work that blocks until the model is delivered.
+    // Acquire with it like any listener, from any thread; only await() blocks, so call it
+    // off the main thread.
+    public static class BlockingListener<T> implements Listener<T> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile T model;
+        private volatile Exception error;
+
+        @Override
+        public void onModelReady(T model) {
+            this.model = model;
+            latch.countDown();
+        }
+
+        @Override
+        public void onModelFailed(Exception error) {
+            this.error = error;
+            latch.countDown();
+        }
+
+        public T await() throws Exception {
+            latch.await();
+            if (error != null) {
+                throw error;
+            }
+            return model;
+        }
+    }
+
+    // Outcome of an install or rollback, delivered on the main thread
+    public interface UpdateListener {
+        void onModelUpdated(String version);
+
+        void onUpdateFailed(Exception error);
+    }
+
+    interface Loader<T> {
+        T load(Context context) throws Exception;
+    }
+
+    interface Action<T> {
+        void apply(T model) throws Exception;
+    }
+
+    interface Swap<T> {
+        void swapTo(T model, Context context, ModelStore.Version version) throws Exception;
+    }
+
+    // Where a new model is dropped to be picked up by installDroppedModels():
+    // <external files>/model_updates/<model name>.tflite plus <model name>_labels.json
+    static final String DROP_DIR = "model_updates";
+
+    private static ModelRegistry instance;
+
+    private final Context appContext;
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Entry<DiseaseModel> diseaseEntry =
+            new Entry<>("DiseaseModel", DiseaseModel::new, DiseaseModel::warmUp,
+                    DiseaseModel.STORE_NAME, DiseaseModel::validate, DiseaseModel::swapTo);
+    private final Entry<InsectModel> insectEntry =
+            new Entry<>("InsectModel", InsectModel::new, InsectModel::warmUp,
+                    InsectModel.STORE_NAME, InsectModel::validate, InsectModel::swapTo);
+
+    private ModelRegistry(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized ModelRegistry get(Context context) {
+        if (instance == null) {
+            instance = new ModelRegistry(context);
+        }
+        return instance;
+    }
+
+    // ---------------- DISEASE MODEL ----------------
+
+    // An already loaded model is delivered immediately on the calling thread, otherwise
+    // on the main thread once loaded
+    public void acquireDiseaseModel(Listener<DiseaseModel> listener) {
+        diseaseEntry.acquire(listener);
+    }
+
+    public void releaseDiseaseModel(Listener<DiseaseModel> listener) {
+        diseaseEntry.release(listener);
+    }
+
+    public LoadState getDiseaseModelState() {
+        return diseaseEntry.getState();
+    }
+
+    // ---------------- INSECT MODEL ----------------
+
+    // An already loaded model is delivered immediately on the calling thread, otherwise
+    // on the main thread once loaded
+    public void acquireInsectModel(Listener<InsectModel> listener) {
+        insectEntry.acquire(listener);
+    }
+
+    public void releaseInsectModel(Listener<InsectModel> listener) {
+        insectEntry.release(listener);
+    }
+
+    public LoadState getInsectModelState() {
+        return insectEntry.getState();
+    }
+
+    // ---------------- MODEL UPDATES ----------------
+
+    // Validate a disease model file and its labels JSON, store them as a new version and
+    // make it live: swapped into the loaded model right away, or picked up by the next load
+    public void installDiseaseModel(File model, File labels, UpdateListener listener) {
+        diseaseEntry.install(model, labels, listener);
+    }
+
+    // Go back to the version that was live before the last install or rollback
+    public void rollbackDiseaseModel(UpdateListener listener) {
+        diseaseEntry.rollback(listener);
+    }
+
+    public void installInsectModel(File model, File labels, UpdateListener listener) {
+        insectEntry.install(model, labels, listener);
+    }
+
+    public void rollbackInsectModel(UpdateListener listener) {
+        insectEntry.rollback(listener);
+    }
+
+    // Install any model dropped into the DROP_DIR folder; the dropped files are deleted
+    // once they are installed
+    public void installDroppedModels() {
+        File dir = appContext.getExternalFilesDir(DROP_DIR);
+        if (dir == null) {
+            return;
+        }
+        installDropped(dir, DiseaseModel.STORE_NAME, diseaseEntry);
+        installDropped(dir, InsectModel.STORE_NAME, insectEntry);
+    }
+
+    private void installDropped(File dir, String name, Entry<?> entry) {
+        File model = new File(dir, name + ".tflite");
+        File labels = new File(dir, name + "_labels.json");
+        if (!model.exists() || !labels.exists()) {
+            return;
+        }
+        Log.i(TAG, "Found dropped " + model.getName() + ", installing");
+        entry.install(model, labels, new UpdateListener() {
+            @Override
+            public void onModelUpdated(String version) {
+                model.delete();
+                labels.delete();
+            }
+
+            @Override
+            public void onUpdateFailed(Exception error) {
+                // Leave the files for inspection; logged by the entry
+            }
+        });
+    }
+
+    // One lazily loaded, reference-counted model
+    private class Entry<T> {
+        private final String name;
+        private final Loader<T> loader;
+        private final Action<T> warmUp;
+        private final String storeName;
+        private final ModelStore.Validator validator;
+        private final Swap<T> swap;
+
+        private LoadState state = LoadState.NOT_LOADED;
+        private T model;
+        private Exception error;
+        private int refCount;
+        private final List<Listener<T>> pending = new ArrayList<>();
+
+        Entry(String name, Loader<T> loader, Action<T> warmUp,
+              String storeName, ModelStore.Validator validator, Swap<T> swap) {
+            this.name = name;
+            this.loader = loader;
+            this.warmUp = warmUp;
+            this.storeName = storeName;
+            this.validator = validator;
+            this.swap = swap;
+        }
+
+        synchronized LoadState getState() {
+            return state;
+        }
+
+        void acquire(Listener<T> listener) {
+            T ready;
+            synchronized (this) {
+                refCount++;
+                if (state != LoadState.READY) {
+                    pending.add(listener);
+                    if (state != LoadState.LOADING) {
+                        // First use, or a retry after a failed load
+                        state = LoadState.LOADING;
+                        error = null;
+                        loadExecutor.execute(this::load);
+                    }
+                    return;
+                }
+                ready = model;
+            }
+            listener.onModelReady(ready);
+        }
+
+        synchronized void release(Listener<T> listener) {
+            pending.remove(listener);
+            if (refCount > 0) {
+                refCount--;
+            }
+            Log.i(TAG, name + " released, " + refCount + " user(s) left");
+        }
+
+        private void load() {
+            long start = System.currentTimeMillis();
+            try {
+                T loaded = loader.load(appContext);
+                warmUp.apply(loaded);
+                Log.i(TAG, name + " loaded and warmed up in " +
+                        (System.currentTimeMillis() - start) + " ms");
+                synchronized (this) {
+                    model = loaded;
+                    state = LoadState.READY;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, name + " failed to load", e);
+                synchronized (this) {
+                    error = e;
+                    state = LoadState.FAILED;
+                }
+            }
+            mainHandler.post(this::deliver);
+        }
+
+        // Updates run on the loading thread, so they never overlap a load or each other
+        void install(File modelFile, File labelsFile, UpdateListener listener) {
+            loadExecutor.execute(() -> {
+                ModelStore store = ModelStore.forModel(appContext, storeName);
+                ModelStore.Version version = null;
+                try {
+                    version = store.install(modelFile, labelsFile, validator);
+                    activate(store, version);
+                    deliverUpdate(listener, version.name, null);
+                } catch (Exception e) {
+                    Log.e(TAG, name + ": install of " + modelFile + " failed", e);
+                    if (version != null) {
+                        store.discard(version);
+                    }
+                    deliverUpdate(listener, null, e);
+                }
+            });
+        }
+
+        void rollback(UpdateListener listener) {
+            loadExecutor.execute(() -> {
+                ModelStore store = ModelStore.forModel(appContext, storeName);
+                try {
+                    if (!store.hasPrevious()) {
+                        throw new IllegalStateException("No previous " + name + " version to roll back to");
+                    }
+                    ModelStore.Version version = store.previous();
+                    activate(store, version);
+                    deliverUpdate(listener, version != null ? version.name : ModelStore.BUNDLED, null);
+                } catch (Exception e) {
+                    Log.e(TAG, name + ": rollback failed", e);
+                    deliverUpdate(listener, null, e);
+                }
+            });
+        }
+
+        // Swap a loaded model over, then move the store pointer; a model that is not
+        // loaded yet reads the pointer when it is
+        private void activate(ModelStore store, ModelStore.Version version) throws Exception {
+            T loaded;
+            synchronized (this) {
+                loaded = state == LoadState.READY ? model : null;
+            }
+            if (loaded != null) {
+                swap.swapTo(loaded, appContext, version);
+            }
+            store.markCurrent(version);
+            Log.i(TAG, name + " is now " + (version != null ? version.name : ModelStore.BUNDLED) +
+                    (loaded != null ? " (swapped live)" : ""));
+        }
+
+        private void deliverUpdate(UpdateListener listener, String version, Exception error) {
+            if (listener == null) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (error == null) {
+                    listener.onModelUpdated(version);
+                } else {
+                    listener.onUpdateFailed(error);
+                }
+            });
+        }
+
+        private void deliver() {
+            List<Listener<T>> listeners;
+            T loaded;
+            Exception failure;
+            synchronized (this) {
+                listeners = new ArrayList<>(pending);
+                pending.clear();
+                loaded = model;
+                failure = error;
+            }
+            for (Listener<T> listener : listeners) {
+                if (failure == null) {
+                    listener.onModelReady(loaded);
+                } else {
+                    listener.onModelFailed(failure);
+                }
+            }
+        }
+    }
+}
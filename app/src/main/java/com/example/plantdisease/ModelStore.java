@@ -0,0 +1,318 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Versions of one model installed into app storage, next to the one bundled in the APK.
+// Each version is a directory v1, v2, ... holding model.tflite and labels.json (same
+// format as the bundled labels file). Two pointer files name the live version and the
+// one before it; without a "current" pointer the bundled model is live. Installing
+// copies and validates the files first, so a broken drop never becomes a version, and
+// everything but the live and the previous version is deleted when the pointer moves.
+public class ModelStore {
+
+    private static final String TAG = "ModelStore";
+    static final String MODEL_FILE = "model.tflite";
+    static final String LABELS_FILE = "labels.json";
+    private static final String CURRENT = "current";
+    private static final String PREVIOUS = "previous";
+    private static final String STAGING = "staging";
+    // Pointer value for the model shipped in the APK
+    static final String BUNDLED = "bundled";
+
+    // Checks a staged model against the number of classes in its labels file
+    interface Validator {
+        void validate(ByteBuffer model, int numClasses) throws IOException;
+    }
+
+    // One installed version
+    public static final class Version {
+        public final String name;
+        final File dir;
+
+        Version(String name, File dir) {
+            this.name = name;
+            this.dir = dir;
+        }
+
+        File modelFile() {
+            return new File(dir, MODEL_FILE);
+        }
+
+        File labelsFile() {
+            return new File(dir, LABELS_FILE);
+        }
+
+        // Per-version files (like the prediction cache) live and die with the version
+        File file(String name) {
+            return new File(dir, name);
+        }
+
+        // Memory-map the model read-only, like FileUtil.loadMappedFile does for assets
+        MappedByteBuffer map() throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(modelFile(), "r");
+                 FileChannel channel = file.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        JsonObject readLabels() throws IOException {
+            try (InputStream in = new FileInputStream(labelsFile())) {
+                return parseLabels(in);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final File root;
+
+    ModelStore(File root) {
+        this.root = root;
+    }
+
+    // Store of the model bundled as <modelName>.tflite
+    public static ModelStore forModel(Context context, String modelName) {
+        return new ModelStore(new File(context.getFilesDir(), "models/" + modelName));
+    }
+
+    // Live version, or null when the bundled model is live
+    public synchronized Version current() {
+        return find(readPointer(CURRENT));
+    }
+
+    public synchronized boolean hasPrevious() {
+        return readPointer(PREVIOUS) != null;
+    }
+
+    // Version to roll back to, or null for the bundled model; check hasPrevious() first
+    public synchronized Version previous() {
+        return find(readPointer(PREVIOUS));
+    }
+
+    // Copy a model and its labels into a new version after validating them. The version
+    // is not live until markCurrent().
+    public synchronized Version install(File model, File labels, Validator validator) throws IOException {
+        File staging = new File(root, STAGING);
+        deleteRecursively(staging);
+        if (!staging.mkdirs()) {
+            throw new IOException("Could not create " + staging);
+        }
+        try {
+            copy(model, new File(staging, MODEL_FILE));
+            copy(labels, new File(staging, LABELS_FILE));
+
+            Version staged = new Version(STAGING, staging);
+            int numClasses = staged.readLabels().getAsJsonArray("classes").size();
+            validator.validate(staged.map(), numClasses);
+
+            String name = "v" + (latestNumber() + 1);
+            File dir = new File(root, name);
+            if (!staging.renameTo(dir)) {
+                throw new IOException("Could not move " + staging + " to " + dir);
+            }
+            Log.i(TAG, root.getName() + ": installed " + name + " (" + model.length() + " bytes, " +
+                    numClasses + " classes)");
+            return new Version(name, dir);
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(staging);
+            throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+    }
+
+    // Make version (null: the bundled model) live and the live one the previous version;
+    // older versions are deleted
+    public synchronized void markCurrent(Version version) throws IOException {
+        String current = readPointer(CURRENT);
+        String next = version != null ? version.name : BUNDLED;
+        if (!next.equals(current != null ? current : BUNDLED)) {
+            writePointer(PREVIOUS, current != null ? current : BUNDLED);
+        }
+        writePointer(CURRENT, next);
+        prune();
+        Log.i(TAG, root.getName() + ": live version " + next + ", previous " + readPointer(PREVIOUS));
+    }
+
+    // Delete a version that was installed but could not be made live
+    public synchronized void discard(Version version) {
+        String name = version.name;
+        if (!name.equals(readPointer(CURRENT)) && !name.equals(readPointer(PREVIOUS))) {
+            deleteRecursively(version.dir);
+        }
+    }
+
+    // Installed version by name, or null for ModelStore.BUNDLED
+    Version find(String name) {
+        if (name == null || name.equals(BUNDLED)) {
+            return null;
+        }
+        return new Version(name, new File(root, name));
+    }
+
+    private int latestNumber() {
+        int latest = 0;
+        String[] names = root.list();
+        if (names != null) {
+            for (String name : names) {
+                latest = Math.max(latest, number(name));
+            }
+        }
+        return latest;
+    }
+
+    // 3 for "v3", 0 for anything that is not a version directory
+    static int number(String name) {
+        if (name.length() < 2 || name.charAt(0) != 'v') {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring(1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void prune() {
+        String current = readPointer(CURRENT);
+        String previous = readPointer(PREVIOUS);
+        File[] files = root.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (number(name) > 0 && !name.equals(current) && !name.equals(previous)) {
+                Log.i(TAG, root.getName() + ": deleting old version " + name);
+                deleteRecursively(file);
+            }
+        }
+    }
+
+    private String readPointer(String pointer) {
+        File file = new File(root, pointer);
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            String name = new String(bytes, 0, read, StandardCharsets.UTF_8).trim();
+            return name.isEmpty() ? null : name;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + file, e);
+            return null;
+        }
+    }
+
+    // Write a temp file and rename so a kill mid-write never leaves a torn pointer
+    private void writePointer(String pointer, String name) throws IOException {
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Could not create " + root);
+        }
+        File tmp = new File(root, pointer + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(name.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(new File(root, pointer))) {
+            tmp.delete();
+            throw new IOException("Could not update " + pointer + " in " + root);
+        }
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        try (InputStream in = new FileInputStream(from); OutputStream out = new FileOutputStream(to)) {
+            byte[] chunk = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    // ---------------- VALIDATION ----------------
+
+    // Labels file with a non-empty "classes" array
+    static JsonObject parseLabels(InputStream in) throws IOException {
+        JsonObject json;
+        try {
+            json = new Gson().fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), JsonObject.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Labels file is not valid JSON", e);
+        }
+        JsonArray classes = json != null && json.has("classes") && json.get("classes").isJsonArray()
+                ? json.getAsJsonArray("classes") : null;
+        if (classes == null || classes.size() == 0) {
+            throw new IOException("Labels file has no \"classes\" array");
+        }
+        return json;
+    }
+
+    // Open the model once and check its tensors fit the app: one [1, size, size, 3]
+    // image in, one score per label out. Returns the variant the input type implies.
+    static ModelConfig.Precision inspect(ByteBuffer model, int imgSize, int numClasses) throws IOException {
+        Interpreter interpreter;
+        try {
+            interpreter = new Interpreter(model, new Interpreter.Options());
+        } catch (RuntimeException e) {
+            throw new IOException("Not a TFLite model: " + e.getMessage(), e);
+        }
+        try {
+            checkShapes(interpreter.getInputTensor(0).shape(), interpreter.getOutputTensor(0).shape(),
+                    imgSize, numClasses);
+            return interpreter.getInputTensor(0).dataType() == DataType.FLOAT32
+                    ? ModelConfig.Precision.FLOAT32 : ModelConfig.Precision.INT8;
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    static void checkShapes(int[] input, int[] output, int imgSize, int numClasses) throws IOException {
+        if (!Arrays.equals(input, new int[]{1, imgSize, imgSize, 3})) {
+            throw new IOException("Model input is " + Arrays.toString(input) +
+                    ", expected [1, " + imgSize + ", " + imgSize + ", 3]");
+        }
+        if (!Arrays.equals(output, new int[]{1, numClasses})) {
+            throw new IOException("Model output is " + Arrays.toString(output) +
+                    ", expected [1, " + numClasses + "] for " + numClasses + " labels");
+        }
+    }
+}
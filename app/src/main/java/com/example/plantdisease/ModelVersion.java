@@ -0,0 +1,105 @@
+package com.example.plantdisease;
+
+import com.google.gson.JsonObject;
+import java.util.List;
+
+// One loaded version of a model: the interpreters, labels and prediction cache that
+// belong together and must be swapped as one. Predictions retain() the live version for
+// their whole run. A swap (or a memory trim) retires the version; its interpreters are
+// closed when the last prediction still running on it releases it, so neither waits for
+// nor breaks in-flight predictions.
+final class ModelVersion {
+
+    // Store version name, or ModelStore.BUNDLED
+    final String name;
+    final InterpreterPool pool;
+    final List<String> labels;
+    // The whole labels file, for extras such as the insect facts
+    final JsonObject labelsJson;
+    final PredictionCache cache;
+    final ModelConfig.Precision precision;
+    // Size of the mapped model file
+    final long modelBytes;
+
+    private int users;
+    private boolean retired;
+    private boolean closed;
+
+    ModelVersion(String name, InterpreterPool pool, List<String> labels, JsonObject labelsJson,
+                 PredictionCache cache, ModelConfig.Precision precision, long modelBytes) {
+        this.name = name;
+        this.pool = pool;
+        this.labels = labels;
+        this.labelsJson = labelsJson;
+        this.cache = cache;
+        this.precision = precision;
+        this.modelBytes = modelBytes;
+    }
+
+    // False once the version is retired; the caller then reads the live version again
+    synchronized boolean retain() {
+        if (retired) {
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    void release() {
+        boolean close;
+        synchronized (this) {
+            users--;
+            close = retired && users == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            closePool();
+        }
+    }
+
+    // No new users; closed now, or by the last release
+    void retire() {
+        boolean close;
+        synchronized (this) {
+            retired = true;
+            close = users == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            closePool();
+        }
+    }
+
+    synchronized boolean isRetired() {
+        return retired;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // Interpreters created so far; with XNNPACK each keeps its own packed copy of the weights
+    int interpreters() {
+        return pool != null ? pool.getStats().created : 0;
+    }
+
+    // One dummy inference so the first real scan doesn't pay for tensor allocation
+    void warmUp() throws InterruptedException {
+        if (pool == null) {
+            return;
+        }
+        InterpreterPool.Slot slot = pool.acquire();
+        try {
+            slot.ensureBatchSize(1);
+            slot.interpreter.run(slot.preprocessor.inputBuffer(), slot.preprocessor.outputBuffer());
+        } finally {
+            pool.release(slot);
+        }
+    }
+
+    private void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
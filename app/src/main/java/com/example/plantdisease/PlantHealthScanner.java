@@ -0,0 +1,102 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Disease and insect scan of the same photo in one pass.
+// Both models take 224x224 RGB in [0, 1], so the photo is resized, normalized and
+// hashed for the prediction caches once into a ScanInput, then the two models run
+// at the same time (insect on the scanner's thread, disease on the caller's).
+// Compared with the two screens back to back this saves a decode, a resize, a
+// normalization and a cache hash, and overlaps the two inferences.
+public class PlantHealthScanner {
+
+    private static final String TAG = "PlantHealthScanner";
+    private static final int IMG_SIZE = 224;
+
+    // Merged result; either part is null when that model failed
+    public static class Result {
+        public final DiseaseModel.Prediction disease;
+        public final InsectModel.InsectPrediction insect;
+
+        Result(DiseaseModel.Prediction disease, InsectModel.InsectPrediction insect) {
+            this.disease = disease;
+            this.insect = insect;
+        }
+    }
+
+    private final DiseaseModel diseaseModel;
+    private final InsectModel insectModel;
+    private final ExecutorService insectExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, TAG + "-insect"));
+    // Shared buffers, reused by every scan (scans are serialized)
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, 1);
+    private final InferenceStats stats = new InferenceStats(TAG);
+
+    public PlantHealthScanner(DiseaseModel diseaseModel, InsectModel insectModel) {
+        this.diseaseModel = diseaseModel;
+        this.insectModel = insectModel;
+    }
+
+    // An interrupted scan keeps the interrupt flag set; its result should be dropped
+    public synchronized Result scan(Bitmap bitmap) {
+        long start = stats.begin(InferenceStats.Stage.RESIZE);
+        int[] pixels = preprocessor.loadPixels(bitmap);
+        PredictionCache.Key key = PredictionCache.keyOf(bitmap);
+        stats.end(InferenceStats.Stage.RESIZE, start);
+
+        start = stats.begin(InferenceStats.Stage.NORMALIZE);
+        ScanInput input = new ScanInput(bitmap, IMG_SIZE, pixels, preprocessor.processPixels(pixels), key);
+        stats.end(InferenceStats.Stage.NORMALIZE, start);
+
+        start = stats.begin(InferenceStats.Stage.INFERENCE);
+        Future<InsectModel.InsectPrediction> insectFuture =
+                insectExecutor.submit(() -> insectModel.predictInsect(input));
+        DiseaseModel.Prediction disease = diseaseModel.predictDisease(input);
+        InsectModel.InsectPrediction insect = null;
+        try {
+            insect = awaitUninterruptibly(insectFuture);
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Insect prediction error", e.getCause());
+        }
+        stats.end(InferenceStats.Stage.INFERENCE, start);
+
+        Log.i(TAG, "Scan complete: " +
+                (disease != null ? disease.displayName() : "disease failed") + ", " +
+                (insect != null ? insect.insectName : "insect failed"));
+        return new Result(disease, insect);
+    }
+
+    // The insect run reads the shared buffers, so the next scan may only start once it is
+    // done, even when this one was interrupted
+    private static <T> T awaitUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Per-stage latency of the combined scans (resize, normalize, both inferences)
+    public InferenceStats getStats() {
+        return stats;
+    }
+
+    // The models stay owned by whoever loaded them
+    public void close() {
+        insectExecutor.shutdownNow();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.plantdisease;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ScrollView;
@@ -14,11 +15,16 @@ import java.io.InputStreamReader;
 
 public class PlantInfoActivity extends AppCompatActivity {
 
+    private static final String TAG = "PlantInfoActivity";
     private EditText searchInput;
     private Button searchBtn, backBtn;
     private TextView resultText;
     private ScrollView scrollView;
     private JsonObject plantDatabase;
+    // Size of the JSON text behind plantDatabase, roughly what the parsed tree costs
+    private long plantDatabaseBytes;
+    // Drops the parsed database under memory pressure; the next search parses it again
+    private final MemoryManager.Releasable databaseReleaser = this::releaseDatabase;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,6 +39,7 @@ public class PlantInfoActivity extends AppCompatActivity {
 
         // Load plant database
         loadPlantDatabase();
+        MemoryManager.get(this).register(MemoryManager.Tier.JSON_CACHE, TAG + " plant_info.json", databaseReleaser);
 
         searchBtn.setOnClickListener(v -> searchPlant());
         backBtn.setOnClickListener(v -> finish());
@@ -52,6 +59,7 @@ public class PlantInfoActivity extends AppCompatActivity {
 
             Gson gson = new Gson();
             plantDatabase = gson.fromJson(jsonString.toString(), JsonObject.class);
+            plantDatabaseBytes = jsonString.length() * 2L;
 
         } catch (Exception e) {
             Toast.makeText(this, "Error loading plant database", Toast.LENGTH_SHORT).show();
@@ -67,6 +75,16 @@ public class PlantInfoActivity extends AppCompatActivity {
             return;
         }
 
+        // Released under memory pressure: parse it again
+        if (plantDatabase == null) {
+            long start = System.nanoTime();
+            loadPlantDatabase();
+            if (plantDatabase == null) {
+                return;
+            }
+            MemoryManager.get(this).recordReload(TAG + " plant_info.json", System.nanoTime() - start);
+        }
+
         // Search for plant (case-insensitive)
         String plantKey = findPlantKey(query);
 
@@ -140,4 +158,19 @@ public class PlantInfoActivity extends AppCompatActivity {
         resultText.setText(result.toString());
         scrollView.smoothScrollTo(0, 0);
     }
-}
\ No newline at end of file
+
+    private long releaseDatabase() {
+        if (plantDatabase == null) {
+            return 0;
+        }
+        plantDatabase = null;
+        Log.i(TAG, "Released plant database");
+        return plantDatabaseBytes;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        MemoryManager.get(this).unregister(databaseReleaser);
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded LRU cache of prediction results keyed by a perceptual hash (dHash) of the image
+// plus its mean colour. Re-picking the same or a nearly identical photo skips the model
+// entirely. The cache is persisted to disk as an append-only log, one record per put,
+// that is compacted once it holds a few times more records than the cache; it is thrown
+// away when the model file changes.
+public class PredictionCache {
+
+    private static final String TAG = "PredictionCache";
+    private static final int FILE_VERSION = 2;
+    // Header: version + fingerprint. Record: hash + colour + class + confidence.
+    private static final int HEADER_BYTES = 4 + 8;
+    private static final int RECORD_BYTES = 8 + 4 + 4 + 4;
+    // The log is rewritten with only the live entries once it has this many per entry
+    private static final int COMPACT_FACTOR = 4;
+    // Hashes at most this many bits apart count as the same photo
+    static final int MAX_HAMMING_DISTANCE = 2;
+
+    // dHash compares each pixel with its right neighbour on a 9x8 grayscale thumbnail
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private static final ExecutorService diskExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "prediction-cache-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Perceptual key of an image. dHash alone can't tell flat images apart (a dark frame and
+    // a plain green one both hash to 0), so a coarse mean colour has to match as well.
+    public static class Key {
+        public final long hash;
+        public final int color;
+
+        public Key(long hash, int color) {
+            this.hash = hash;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && color == other.color;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + color;
+        }
+    }
+
+    // Cached result: class index into the model's labels plus its confidence
+    public static class Entry {
+        public final int classIndex;
+        public final float confidence;
+
+        public Entry(int classIndex, float confidence) {
+            this.classIndex = classIndex;
+            this.confidence = confidence;
+        }
+    }
+
+    private final File file;
+    private final long modelFingerprint;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Object saveLock = new Object();
+    // Records in the log file, live or overwritten; guarded by saveLock
+    private int fileRecords;
+
+    public PredictionCache(File file, long modelFingerprint, int maxEntries) {
+        this.file = file;
+        this.modelFingerprint = modelFingerprint;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > PredictionCache.this.maxEntries;
+            }
+        };
+        load();
+    }
+
+    // Exact key first, then the closest stored hash of the same colour within MAX_HAMMING_DISTANCE
+    public synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Key nearest = null;
+            int best = MAX_HAMMING_DISTANCE + 1;
+            for (Key stored : entries.keySet()) {
+                int distance = Long.bitCount(stored.hash ^ key.hash);
+                if (distance < best && stored.color == key.color) {
+                    best = distance;
+                    nearest = stored;
+                }
+            }
+            if (nearest != null) {
+                entry = entries.get(nearest);
+            }
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    public void put(Key key, int classIndex, float confidence) {
+        Entry entry = new Entry(classIndex, confidence);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        diskExecutor.execute(() -> append(key, entry));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // The file is deleted on the disk thread, after the writes queued before the clear
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+        }
+        diskExecutor.execute(() -> {
+            synchronized (saveLock) {
+                file.delete();
+                fileRecords = 0;
+            }
+        });
+    }
+
+    // Waits for the writes queued so far
+    void flush() {
+        try {
+            diskExecutor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Flush failed", e.getCause());
+        }
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format("cache hits=%d misses=%d hitRate=%.1f%% size=%d",
+                h, total - h, total == 0 ? 0 : h * 100.0 / total, size());
+    }
+
+    // ---------------- PERSISTENCE ----------------
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION || in.readLong() != modelFingerprint) {
+                Log.i(TAG, file.getName() + ": model changed, discarding cached predictions");
+                file.delete();
+                return;
+            }
+            // Replayed in order, so a later record of a key wins and LRU order is kept
+            synchronized (this) {
+                while (true) {
+                    long hash;
+                    try {
+                        hash = in.readLong();
+                    } catch (EOFException end) {
+                        break;
+                    }
+                    Key key = new Key(hash, in.readInt());
+                    entries.put(key, new Entry(in.readInt(), in.readFloat()));
+                    records++;
+                }
+            }
+        } catch (EOFException e) {
+            // A record cut short by a kill mid-append; the compaction below drops it
+            Log.w(TAG, file.getName() + ": torn last record");
+            records = Integer.MAX_VALUE;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + file.getName(), e);
+            file.delete();
+            return;
+        }
+        synchronized (saveLock) {
+            fileRecords = records;
+        }
+        if (records > COMPACT_FACTOR * maxEntries) {
+            save();
+        }
+        Log.i(TAG, file.getName() + ": restored " + size() + " cached predictions");
+    }
+
+    // One record at the end of the log; on the disk thread. Never holds saveLock while
+    // taking the cache's own lock (save() takes them one after the other), so it can't
+    // deadlock against get/put/clear.
+    private void append(Key key, Entry entry) {
+        synchronized (saveLock) {
+            if (fileRecords < COMPACT_FACTOR * maxEntries) {
+                appendRecord(key, entry);
+                return;
+            }
+        }
+        // The entry is in the map already, so the rewrite includes it
+        save();
+    }
+
+    // Called with saveLock held
+    private void appendRecord(Key key, Entry entry) {
+        boolean fresh = !file.exists() || file.length() < HEADER_BYTES;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file, !fresh), fresh ? HEADER_BYTES + RECORD_BYTES : RECORD_BYTES))) {
+            if (fresh) {
+                out.writeInt(FILE_VERSION);
+                out.writeLong(modelFingerprint);
+            }
+            writeRecord(out, key, entry);
+            fileRecords = fresh ? 1 : fileRecords + 1;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not append to " + file.getName(), e);
+        }
+    }
+
+    // Rewrites the log with only the live entries
+    void save() {
+        List<Map.Entry<Key, Entry>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        // Write a temp file and rename so a kill mid-write never leaves a torn cache
+        synchronized (saveLock) {
+            File tmp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(FILE_VERSION);
+                out.writeLong(modelFingerprint);
+                for (Map.Entry<Key, Entry> e : snapshot) {
+                    writeRecord(out, e.getKey(), e.getValue());
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write " + file.getName(), e);
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(file)) {
+                Log.w(TAG, "Could not replace " + file.getName());
+                return;
+            }
+            fileRecords = snapshot.size();
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Key key, Entry entry) throws IOException {
+        out.writeLong(key.hash);
+        out.writeInt(key.color);
+        out.writeInt(entry.classIndex);
+        out.writeFloat(entry.confidence);
+    }
+
+    // Records in the log file, for tests
+    int getFileRecords() {
+        synchronized (saveLock) {
+            return fileRecords;
+        }
+    }
+
+    // ---------------- HASHING ----------------
+
+    // Identity of a model file without reading its bytes: its name, size and when it last
+    // changed, mixed with the labels. For a store version that is the file's mtime; a
+    // bundled asset only changes with an app update, so it is the app's update time.
+    public static long fingerprint(String modelName, long modelBytes, long modified, List<String> labels) {
+        long h = modelName.hashCode();
+        h = h * 31 + modelBytes;
+        h = h * 31 + modified;
+        return h * 31 + labels.hashCode();
+    }
+
+    public static Key keyOf(Bitmap bitmap) {
+        Bitmap tiny = Bitmap.createScaledBitmap(bitmap, HASH_WIDTH, HASH_HEIGHT, true);
+        int[] pixels = new int[HASH_WIDTH * HASH_HEIGHT];
+        tiny.getPixels(pixels, 0, HASH_WIDTH, 0, 0, HASH_WIDTH, HASH_HEIGHT);
+        if (tiny != bitmap) {
+            tiny.recycle();
+        }
+        return new Key(dHash(pixels), meanColor(pixels));
+    }
+
+    // 64-bit difference hash of a 9x8 ARGB thumbnail: bit set where a pixel is brighter
+    // than its right neighbour
+    static long dHash(int[] pixels) {
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                int left = luminance(pixels[y * HASH_WIDTH + x]);
+                int right = luminance(pixels[y * HASH_WIDTH + x + 1]);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    // Mean colour quantized to 3 bits per channel
+    static int meanColor(int[] pixels) {
+        int r = 0, g = 0, b = 0;
+        for (int pixel : pixels) {
+            r += (pixel >> 16) & 0xFF;
+            g += (pixel >> 8) & 0xFF;
+            b += pixel & 0xFF;
+        }
+        int n = pixels.length;
+        return ((r / n) >> 5) << 6 | ((g / n) >> 5) << 3 | ((b / n) >> 5);
+    }
+
+    private static int luminance(int pixel) {
+        int r = (pixel >> 16) & 0xFF;
+        int g = (pixel >> 8) & 0xFF;
+        int b = pixel & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+}
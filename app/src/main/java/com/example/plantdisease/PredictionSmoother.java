@@ -0,0 +1,74 @@
+package com.example.plantdisease;
+
+// Moving average of the last few score vectors of a live stream, so the label on
+// screen doesn't flicker between frames. Also reports whether the per-frame top-1
+// has been the same for the whole window. Not thread-safe; fed from one thread.
+public class PredictionSmoother {
+
+    private final int window;
+    private final float[][] history;
+    private final int[] topHistory;
+    private final float[] sum;
+    private final float[] average;
+    private int next;
+    private int size;
+
+    public PredictionSmoother(int numClasses, int window) {
+        this.window = window;
+        history = new float[window][numClasses];
+        topHistory = new int[window];
+        sum = new float[numClasses];
+        average = new float[numClasses];
+    }
+
+    // Add one frame's scores; returns the smoothed scores (a reused array)
+    public float[] add(float[] scores) {
+        float[] slot = history[next];
+        for (int c = 0; c < sum.length; c++) {
+            if (size == window) {
+                sum[c] -= slot[c];
+            }
+            slot[c] = scores[c];
+            sum[c] += scores[c];
+        }
+        topHistory[next] = ImagePreprocessor.argMax(scores);
+        next = (next + 1) % window;
+        if (size < window) {
+            size++;
+        }
+        for (int c = 0; c < sum.length; c++) {
+            average[c] = sum[c] / size;
+        }
+        return average;
+    }
+
+    public int top() {
+        return ImagePreprocessor.argMax(average);
+    }
+
+    public float confidence() {
+        return size == 0 ? 0 : average[top()];
+    }
+
+    // A full window of frames that all agreed on the top-1
+    public boolean isStable() {
+        if (size < window) {
+            return false;
+        }
+        for (int i = 1; i < window; i++) {
+            if (topHistory[i] != topHistory[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void reset() {
+        next = 0;
+        size = 0;
+        for (int c = 0; c < sum.length; c++) {
+            sum[c] = 0;
+            average[c] = 0;
+        }
+    }
+}
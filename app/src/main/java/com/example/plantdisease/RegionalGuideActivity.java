@@ -13,10 +13,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import okhttp3.Request;
+import okhttp3.Response;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -165,25 +163,11 @@ public class RegionalGuideActivity extends AppCompatActivity {
     }
 
     private String makeRequest(String urlString) {
-        try {
-            URL url = new URL(urlString);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(10000);
-            conn.setReadTimeout(10000);
-
-            if (conn.getResponseCode() != 200) return null;
-
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream())
-            );
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-            return response.toString();
+        Request request = new Request.Builder().url(urlString).build();
+        try (Response response = HttpStack.get(this).client(HttpStack.Endpoint.OPEN_WEATHER)
+                .newCall(request).execute()) {
+            if (response.code() != 200) return null;
+            return response.body().string();
 
         } catch (Exception e) {
             Log.e(TAG, "Request error", e);
@@ -251,38 +235,37 @@ public class RegionalGuideActivity extends AppCompatActivity {
 
                 Log.i(TAG, "Loading map from: " + mapUrl);
 
-                URL url = new URL(mapUrl);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setRequestProperty("User-Agent", "AcreIntelligence/1.0");
-                conn.setConnectTimeout(15000);
-                conn.setReadTimeout(15000);
-
-                int responseCode = conn.getResponseCode();
-                Log.i(TAG, "Response code: " + responseCode);
-
-                if (responseCode == 200) {
-                    android.graphics.Bitmap bitmap = android.graphics.BitmapFactory.decodeStream(
-                            conn.getInputStream()
-                    );
-
-                    runOnUiThread(() -> {
-                        if (bitmap != null) {
-                            mapView.setImageBitmap(bitmap);
-                            mapView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                            Log.i(TAG, "✓ Map loaded successfully!");
-                            Toast.makeText(this, "Map loaded", Toast.LENGTH_SHORT).show();
-                        } else {
-                            Log.e(TAG, "Bitmap is null");
-                            Toast.makeText(this, "Map image failed", Toast.LENGTH_SHORT).show();
-                        }
-                    });
-                } else {
-                    Log.e(TAG, "HTTP error: " + responseCode);
+                Request request = new Request.Builder()
+                        .url(mapUrl)
+                        .header("User-Agent", "AcreIntelligence/1.0")
+                        .build();
+
+                try (Response response = HttpStack.get(this).client(HttpStack.Endpoint.MAP_TILES)
+                        .newCall(request).execute()) {
+                    int responseCode = response.code();
+                    Log.i(TAG, "Response code: " + responseCode);
+
+                    if (responseCode == 200) {
+                        android.graphics.Bitmap bitmap = android.graphics.BitmapFactory.decodeStream(
+                                response.body().byteStream()
+                        );
+
+                        runOnUiThread(() -> {
+                            if (bitmap != null) {
+                                mapView.setImageBitmap(bitmap);
+                                mapView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+                                Log.i(TAG, "✓ Map loaded successfully!");
+                                Toast.makeText(this, "Map loaded", Toast.LENGTH_SHORT).show();
+                            } else {
+                                Log.e(TAG, "Bitmap is null");
+                                Toast.makeText(this, "Map image failed", Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    } else {
+                        Log.e(TAG, "HTTP error: " + responseCode);
+                    }
                 }
 
-                conn.disconnect();
-
             } catch (Exception e) {
                 Log.e(TAG, "Map load error: " + e.getClass().getSimpleName());
                 Log.e(TAG, "Error message: " + e.getMessage());
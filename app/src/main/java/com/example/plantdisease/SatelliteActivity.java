@@ -30,7 +30,6 @@ import java.util.Locale;
 
 import okhttp3.Call;
 import okhttp3.Callback;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
@@ -43,7 +42,6 @@ public class SatelliteActivity extends AppCompatActivity {
     private Button useCurrentLocationBtn, fetchDataBtn;
 
     private FusedLocationProviderClient fusedLocationClient;
-    private final OkHttpClient httpClient = new OkHttpClient();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -180,7 +178,7 @@ public class SatelliteActivity extends AppCompatActivity {
         Request request = new Request.Builder().url(url).build();
 
         // Make network request in background thread
-        httpClient.newCall(request).enqueue(new Callback() {
+        HttpStack.get(this).client(HttpStack.Endpoint.OPEN_METEO).newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(@NonNull Call call, @NonNull IOException e) {
                 // Show error if network request fails
@@ -258,7 +256,7 @@ public class SatelliteActivity extends AppCompatActivity {
                 .build();
 
         // Make network request
-        httpClient.newCall(request).enqueue(new Callback() {
+        HttpStack.get(this).client(HttpStack.Endpoint.NASA_POWER).newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(@NonNull Call call, @NonNull IOException e) {
                 Log.e("NASA_ERROR", "Failed to fetch", e);
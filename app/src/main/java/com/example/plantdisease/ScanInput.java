@@ -0,0 +1,43 @@
+package com.example.plantdisease;
+
+import android.graphics.Bitmap;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// One photo preprocessed once for several models with the same input size.
+// Holds the resized ARGB pixels, the normalized float input and the prediction cache key,
+// so DiseaseModel and InsectModel can both read them without redoing the work: float
+// models feed the shared buffer straight to the interpreter, quantized ones only
+// re-encode the shared pixels into their own buffer. Read-only while the models run.
+public final class ScanInput {
+
+    public final Bitmap bitmap;
+    final int imgSize;
+    final int[] pixels;
+    final PredictionCache.Key key;
+    private final ByteBuffer floats;
+
+    ScanInput(Bitmap bitmap, int imgSize, int[] pixels, ByteBuffer floats, PredictionCache.Key key) {
+        this.bitmap = bitmap;
+        this.imgSize = imgSize;
+        this.pixels = pixels;
+        this.floats = floats;
+        this.key = key;
+    }
+
+    // Whether a model's buffers can take this input as-is
+    boolean fits(ImagePreprocessor preprocessor) {
+        return preprocessor.getImageSize() == imgSize;
+    }
+
+    // Input buffer for one model's interpreter. The float buffer is shared; every caller
+    // gets its own view so concurrent runs don't move each other's position.
+    ByteBuffer inputFor(ImagePreprocessor preprocessor) {
+        if (preprocessor.isQuantized()) {
+            return preprocessor.processPixels(pixels);
+        }
+        ByteBuffer view = floats.duplicate().order(ByteOrder.nativeOrder());
+        view.rewind();
+        return view;
+    }
+}
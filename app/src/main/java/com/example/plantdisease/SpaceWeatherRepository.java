@@ -0,0 +1,479 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Process-wide owner of the NOAA space weather data and its AI summary.
+// The Kp index and solar wind feeds are fetched here for every screen that shows them.
+// Screens observe() while they are up and get an immutable SpaceWeatherSnapshot each
+// time a fetch completes. A fetch that is already running is joined instead of repeated,
+// and a snapshot younger than the feeds' one-minute cadence is handed out as it is, so
+// two screens open at once cost one fetch between them.
+//
+// A fetch runs both feeds in parallel and joins them against one deadline. A feed that
+// fails or misses it keeps its last reading if that is recent enough, so one slow feed
+// does not blank the other. Only then is the AI summary asked for, once per fetch and
+// only with both readings in hand; a refresh cancels a summary that is still on its way.
+public class SpaceWeatherRepository {
+
+    private static final String TAG = "SpaceWeatherRepo";
+
+    static final String KP_URL = "https://services.swpc.noaa.gov/json/planetary_k_index_1m.json";
+    static final String SOLAR_WIND_URL = "https://services.swpc.noaa.gov/json/rtsw/rtsw_mag_1m.json";
+    // Replace with your backend endpoint. For emulator testing use: http://10.0.2.2:3000/generate
+    static final String AI_URL = "https://your-ai-endpoint.example.com/generate";
+    // Update cadence of both feeds
+    static final long REFRESH_MILLIS = 60_000;
+    // How long a fetch waits for both feeds, counted from its start
+    static final long JOIN_TIMEOUT_MILLIS = 12_000;
+    // A reading this old still stands in for a feed that failed
+    static final long STALE_LIMIT_MILLIS = 5 * REFRESH_MILLIS;
+
+    private static final String SUMMARY_UNAVAILABLE = "AI summary unavailable.";
+
+    // Called on the main thread, or right away with the current snapshot when observing starts
+    public interface Observer {
+        void onSnapshot(SpaceWeatherSnapshot snapshot);
+    }
+
+    private static SpaceWeatherRepository instance;
+
+    public static synchronized SpaceWeatherRepository get(Context context) {
+        if (instance == null) {
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            HttpStack stack = HttpStack.get(context);
+            instance = new SpaceWeatherRepository(stack.client(HttpStack.Endpoint.NOAA),
+                    KP_URL, SOLAR_WIND_URL, stack.client(HttpStack.Endpoint.AI_SUMMARY), AI_URL,
+                    JOIN_TIMEOUT_MILLIS, mainHandler::post);
+        }
+        return instance;
+    }
+
+    private final OkHttpClient client;
+    private final String kpUrl;
+    private final String solarWindUrl;
+    private final OkHttpClient aiClient;
+    private final String aiUrl;
+    private final long joinTimeoutMillis;
+    private final Executor delivery;
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    // One thread per feed and one to join them; a single fetch runs at a time
+    private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(3, r -> {
+        Thread thread = new Thread(r, "space-weather-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SpaceWeatherSnapshot snapshot = SpaceWeatherSnapshot.EMPTY;
+    private boolean running;
+    private long lastFetchAt;
+    // Number of the latest fetch; a summary for an older one is of no use anymore
+    private long generation;
+    private Call summaryCall;
+    // Last summary that came back, and what it was asked: an unchanged refresh reuses it
+    private String summarizedPrompt;
+    private String summary;
+
+    // Metrics
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong summaryCalls = new AtomicLong();
+    private final AtomicLong wastedSummaries = new AtomicLong();
+
+    SpaceWeatherRepository(OkHttpClient client, String kpUrl, String solarWindUrl,
+                           OkHttpClient aiClient, String aiUrl, long joinTimeoutMillis, Executor delivery) {
+        this.client = client;
+        this.kpUrl = kpUrl;
+        this.solarWindUrl = solarWindUrl;
+        this.aiClient = aiClient;
+        this.aiUrl = aiUrl;
+        this.joinTimeoutMillis = joinTimeoutMillis;
+        this.delivery = delivery;
+    }
+
+    // Delivers the current snapshot (if there is one yet) and fetches if it is stale
+    public void observe(Observer observer) {
+        observers.add(observer);
+        SpaceWeatherSnapshot current = getSnapshot();
+        if (current != SpaceWeatherSnapshot.EMPTY) {
+            observer.onSnapshot(current);
+        }
+        fetch(false);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    // Refresh button: fetch now unless a fetch is already running. Within the cadence the
+    // HTTP cache still answers without going to NOAA.
+    public void refresh() {
+        fetch(true);
+    }
+
+    public synchronized SpaceWeatherSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private void fetch(boolean force) {
+        long fetchGeneration;
+        Call staleSummary;
+        synchronized (this) {
+            if (running) {
+                joined.incrementAndGet();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (!force && lastFetchAt != 0 && now - lastFetchAt < REFRESH_MILLIS) {
+                return;
+            }
+            running = true;
+            lastFetchAt = now;
+            fetchGeneration = ++generation;
+            staleSummary = summaryCall;
+            summaryCall = null;
+        }
+        fetches.incrementAndGet();
+        if (staleSummary != null) {
+            // Counted as wasted when its callback sees the newer generation
+            staleSummary.cancel();
+        }
+
+        FeedRequest kp = new FeedRequest("Kp index", kpUrl, "kp_index");
+        FeedRequest solarWind = new FeedRequest("solar wind", solarWindUrl, "bt");
+        Future<Reading> kpFuture = fetchExecutor.submit(kp);
+        Future<Reading> solarWindFuture = fetchExecutor.submit(solarWind);
+        fetchExecutor.execute(() -> join(fetchGeneration, kp, kpFuture, solarWind, solarWindFuture));
+    }
+
+    private void join(long fetchGeneration, FeedRequest kp, Future<Reading> kpFuture,
+                      FeedRequest solarWind, Future<Reading> solarWindFuture) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(joinTimeoutMillis);
+        Reading kpReading = await(kp, kpFuture, deadline);
+        Reading solarWindReading = await(solarWind, solarWindFuture, deadline);
+
+        SpaceWeatherSnapshot next;
+        String prompt = null;
+        synchronized (this) {
+            next = combine(snapshot, kpReading, solarWindReading, System.currentTimeMillis());
+            if (!next.hasCompleteInputs()) {
+                next = next.withGeneration(fetchGeneration, SUMMARY_UNAVAILABLE);
+            } else {
+                String nextPrompt = buildPrompt(next);
+                if (nextPrompt.equals(summarizedPrompt)) {
+                    // Same readings as last time: the same answer, without asking again
+                    next = next.withGeneration(fetchGeneration, summary);
+                } else {
+                    next = next.withGeneration(fetchGeneration, null);
+                    prompt = nextPrompt;
+                }
+            }
+            snapshot = next;
+            running = false;
+        }
+        publish(next);
+        if (prompt != null) {
+            summarize(fetchGeneration, prompt);
+        }
+    }
+
+    // Waits for a feed until the fetch's deadline; a feed that misses it is cancelled
+    private Reading await(FeedRequest feed, Future<Reading> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            Log.e(TAG, "Timed out waiting for " + feed.name);
+            feed.cancel();
+            future.cancel(true);
+            return Reading.failed(e);
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to fetch " + feed.name, e.getCause());
+            return Reading.failed(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            feed.cancel();
+            return Reading.failed(e);
+        }
+    }
+
+    // Partial results: a feed that came in replaces the previous reading; one that failed
+    // keeps it while it is younger than STALE_LIMIT_MILLIS and is shown as failed otherwise.
+    static SpaceWeatherSnapshot combine(SpaceWeatherSnapshot previous, Reading kp, Reading solarWind, long now) {
+        SpaceWeatherSnapshot next = previous;
+        if (kp.error == null) {
+            next = next.withKp(kp.value, kp.freshness, now);
+        } else if (previous.hasKp() && now - previous.kpUpdatedAt < STALE_LIMIT_MILLIS) {
+            next = next.withStaleKp(now);
+        } else {
+            next = next.withKpFailed(now);
+        }
+        if (solarWind.error == null) {
+            next = next.withSolarWind(solarWind.value, solarWind.freshness, now);
+        } else if (previous.hasSolarWind() && now - previous.solarWindUpdatedAt < STALE_LIMIT_MILLIS) {
+            next = next.withStaleSolarWind(now);
+        } else {
+            next = next.withSolarWindFailed(now);
+        }
+        return next;
+    }
+
+    // Newest value of one field of a feed, or why there is none
+    static final class Reading {
+        final double value;
+        // See HttpCacheStats.describe
+        final String freshness;
+        final Throwable error;
+
+        Reading(double value, String freshness, Throwable error) {
+            this.value = value;
+            this.freshness = freshness;
+            this.error = error;
+        }
+
+        static Reading failed(Throwable error) {
+            return new Reading(Double.NaN, null, error);
+        }
+    }
+
+    // One feed of a fetch. It keeps its call so that a join giving up on it can cancel
+    // the request as well as stop waiting for it.
+    private final class FeedRequest implements Callable<Reading> {
+        final String name;
+        private final String url;
+        private final String field;
+        private volatile Call call;
+        private volatile boolean cancelled;
+
+        FeedRequest(String name, String url, String field) {
+            this.name = name;
+            this.url = url;
+            this.field = field;
+        }
+
+        @Override
+        public Reading call() throws IOException {
+            Call feedCall = client.newCall(new Request.Builder().url(url).build());
+            call = feedCall;
+            if (cancelled) {
+                feedCall.cancel();
+            }
+            try (Response response = feedCall.execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("HTTP " + response.code());
+                }
+                // Only the newest records are kept; the feed itself is hours long
+                FeedTail tail = FeedTail.read(body.charStream(), field);
+                if (tail.size() == 0) {
+                    throw new IOException("Empty " + name + " feed");
+                }
+                return new Reading(tail.latest(field), HttpCacheStats.describe(response), null);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Call feedCall = call;
+            if (feedCall != null) {
+                feedCall.cancel();
+            }
+        }
+    }
+
+    private void summarize(long summaryGeneration, String prompt) {
+        Request request;
+        try {
+            JSONObject payload = new JSONObject();
+            payload.put("prompt", prompt);
+            payload.put("max_tokens", 120);
+            request = new Request.Builder()
+                    .url(aiUrl)
+                    .post(RequestBody.create(payload.toString(),
+                            MediaType.parse("application/json; charset=utf-8")))
+                    .header("Accept", "application/json")
+                    .build();
+        } catch (JSONException | IllegalArgumentException e) {
+            Log.e(TAG, "Failed to build AI summary request", e);
+            summarized(summaryGeneration, null, "AI summary error.");
+            return;
+        }
+
+        Call call = aiClient.newCall(request);
+        synchronized (this) {
+            if (summaryGeneration != generation) {
+                // A refresh started before the summary was sent
+                return;
+            }
+            summaryCall = call;
+        }
+        summaryCalls.incrementAndGet();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                if (!call.isCanceled()) {
+                    Log.e(TAG, "AI summary network failure", e);
+                }
+                summarized(summaryGeneration, null, "AI summary unavailable (network).");
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                String text;
+                boolean ok = false;
+                try (ResponseBody body = response.body()) {
+                    int code = response.code();
+                    String raw = body != null ? body.string() : null;
+                    if (code >= 400) {
+                        Log.e(TAG, "AI service error code: " + code);
+                        text = "AI service error: " + code;
+                    } else if (raw == null || raw.isEmpty()) {
+                        Log.e(TAG, "Empty AI summary response");
+                        text = "AI summary error.";
+                    } else {
+                        text = parseSummary(raw);
+                        ok = true;
+                    }
+                } catch (IOException e) {
+                    if (!call.isCanceled()) {
+                        Log.e(TAG, "Error reading AI summary", e);
+                    }
+                    text = "AI summary error.";
+                }
+                summarized(summaryGeneration, ok ? prompt : null, text);
+            }
+        });
+    }
+
+    // prompt is null when the summary failed, so it is not reused
+    private void summarized(long summaryGeneration, String prompt, String text) {
+        SpaceWeatherSnapshot next;
+        synchronized (this) {
+            if (summaryGeneration != generation) {
+                // A refresh started while it was being generated
+                wastedSummaries.incrementAndGet();
+                Log.i(TAG, "Dropped AI summary of fetch " + summaryGeneration + ", now at " + generation);
+                return;
+            }
+            summaryCall = null;
+            if (prompt != null) {
+                summarizedPrompt = prompt;
+                summary = text;
+            }
+            snapshot = snapshot.withSummary(text);
+            next = snapshot;
+        }
+        publish(next);
+    }
+
+    // Tolerates the response shapes of the common text generation backends; anything else
+    // is shown as it came
+    static String parseSummary(String raw) {
+        String summary = null;
+        try {
+            JSONObject obj = new JSONObject(raw);
+
+            if (obj.has("summary")) summary = obj.optString("summary", null);
+            if (summary == null && obj.has("text")) summary = obj.optString("text", null);
+
+            if (summary == null && obj.has("choices")) {
+                JSONArray choices = obj.optJSONArray("choices");
+                if (choices != null && choices.length() > 0) {
+                    JSONObject first = choices.optJSONObject(0);
+                    if (first != null) summary = first.optString("text", first.optString("message", null));
+                }
+            }
+
+            if (summary == null && obj.has("result")) summary = obj.optString("result", null);
+            if (summary == null && obj.has("data")) summary = obj.optString("data", null);
+        } catch (Exception parseEx) {
+            Log.w(TAG, "AI response not JSON or unexpected format", parseEx);
+        }
+
+        if (summary == null) {
+            // fallback: use raw body (trim)
+            summary = raw.length() > 1200 ? raw.substring(0, 1200) + "..." : raw;
+        }
+        return summary;
+    }
+
+    // Build a concise prompt for the AI service
+    static String buildPrompt(SpaceWeatherSnapshot snapshot) {
+        return "You are an agricultural advisor. Based on the following space weather data, generate a short 2-3 sentence summary explaining how today's solar conditions affect crops, vegetation indices (NDVI), and satellite-based monitoring. Use plain language for farmers.\n\n" +
+                "Kp Index: " + String.format("%.1f", snapshot.kpIndex) + "\n" +
+                "Solar Wind Speed: " + String.format("%.0f km/s", snapshot.solarWindSpeed) + "\n" +
+                "F10.7 Solar Flux: " + String.format("%.0f sfu", snapshot.f107) + "\n" +
+                "Crop Impact Note: " + snapshot.cropImpact.text + "\n" +
+                "Satellite Impact Note: " + snapshot.satelliteImpact.text + "\n\n" +
+                "Provide a clear, actionable summary for farmers (2-3 sentences).";
+    }
+
+    // Observers removed before the delivery runs don't get it
+    private void publish(SpaceWeatherSnapshot next) {
+        Log.i(TAG, next.toString());
+        delivery.execute(() -> {
+            for (Observer observer : observers) {
+                observer.onSnapshot(next);
+            }
+        });
+    }
+
+    // Fetches started; each is one request per feed
+    public long getFetches() {
+        return fetches.get();
+    }
+
+    // Refreshes that joined a fetch already running instead of starting one
+    public long getJoined() {
+        return joined.get();
+    }
+
+    // Feeds that missed the join deadline and were cancelled
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    // AI summary requests sent
+    public long getSummaryCalls() {
+        return summaryCalls.get();
+    }
+
+    // AI summary requests cancelled or answered after a newer fetch had started
+    public long getWastedSummaries() {
+        return wastedSummaries.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("space weather fetches=%d joined=%d timeouts=%d summaries=%d wasted=%d observers=%d",
+                getFetches(), getJoined(), getTimeouts(), getSummaryCalls(), getWastedSummaries(),
+                observers.size());
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.plantdisease;
+
+// Space weather as the screens show it, at one point in time. Immutable: the repository
+// hands the same snapshot to every screen and makes a new one when a fetch of both feeds
+// completes, and again when its AI summary comes in.
+// The readings are classified here, once, so all screens say the same thing about them.
+public final class SpaceWeatherSnapshot {
+
+    static final String GREEN = "#2E7D32";
+    static final String YELLOW = "#F9A825";
+    static final String ORANGE = "#D84315";
+    static final String RED = "#C62828";
+    static final String GRAY = "#7B83A6";
+
+    // A line of text on screen and its color (#RRGGBB)
+    public static final class Status {
+        public final String text;
+        public final String color;
+
+        Status(String text, String color) {
+            this.text = text;
+            this.color = color;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    static final SpaceWeatherSnapshot EMPTY = new SpaceWeatherSnapshot(
+            Double.NaN, false, null, 0, Double.NaN, false, null, 0, 0, null);
+
+    // NaN until known
+    public final double kpIndex;
+    // Estimated from the magnetic field strength (bt) of the solar wind, NaN until known
+    public final double solarWindSpeed;
+    public final double f107;
+    // Kept to derive the next snapshot from this one
+    private final double bt;
+
+    // The last fetch of the feed failed
+    public final boolean kpFailed;
+    public final boolean solarWindFailed;
+    // Where the feed came from and how old it is (see HttpCacheStats.describe), null until fetched
+    public final String kpFreshness;
+    public final String solarWindFreshness;
+    // When the feed was last fetched (System.currentTimeMillis()), 0 never
+    public final long kpUpdatedAt;
+    public final long solarWindUpdatedAt;
+    // Number of the fetch this snapshot completes, 0 before the first one
+    public final long generation;
+    // Text for the AI summary view; null while it is being generated
+    public final String aiSummary;
+
+    public final Status kpStatus;
+    public final Status geomagneticStatus;
+    public final Status cropImpact;
+    // Null while the Kp index is unknown
+    public final Status radiationStatus;
+    public final Status solarWindStatus;
+    public final Status satelliteImpact;
+    public final Status f107Status;
+
+    private SpaceWeatherSnapshot(double kpIndex, boolean kpFailed, String kpFreshness, long kpUpdatedAt,
+                                 double bt, boolean solarWindFailed, String solarWindFreshness,
+                                 long solarWindUpdatedAt, long generation, String aiSummary) {
+        this.kpIndex = kpIndex;
+        this.kpFailed = kpFailed;
+        this.kpFreshness = kpFreshness;
+        this.kpUpdatedAt = kpUpdatedAt;
+        this.solarWindFailed = solarWindFailed;
+        this.solarWindFreshness = solarWindFreshness;
+        this.solarWindUpdatedAt = solarWindUpdatedAt;
+        this.generation = generation;
+        this.aiSummary = aiSummary;
+        this.bt = bt;
+        solarWindSpeed = Double.isNaN(bt) ? Double.NaN : 300 + bt * 50;
+        f107 = Double.isNaN(bt) ? Double.NaN : 70 + bt * 10;
+
+        if (kpFailed) {
+            kpStatus = new Status("Unable to fetch data", GRAY);
+            geomagneticStatus = new Status("Data unavailable", GRAY);
+            cropImpact = new Status("Unable to determine crop impact", GRAY);
+        } else if (Double.isNaN(kpIndex)) {
+            kpStatus = new Status("N/A", GRAY);
+            geomagneticStatus = new Status("Data unavailable", GRAY);
+            cropImpact = new Status("Crop Impact: Data unavailable", GRAY);
+        } else if (kpIndex < 4) {
+            kpStatus = new Status("Quiet", GREEN);
+            geomagneticStatus = new Status("Normal geomagnetic conditions", GREEN);
+            cropImpact = new Status("Crop Impact: Satellite vegetation data is reliable today.", GREEN);
+        } else if (kpIndex < 6) {
+            kpStatus = new Status("Unsettled", YELLOW);
+            geomagneticStatus = new Status("Minor geomagnetic disturbance", YELLOW);
+            cropImpact = new Status("Crop Impact: NDVI and soil moisture readings may show slight noise.", YELLOW);
+        } else {
+            kpStatus = new Status("Storm", RED);
+            geomagneticStatus = new Status("Strong geomagnetic storm", RED);
+            cropImpact = new Status("Crop Impact: Strong storm — vegetation indices may be inaccurate.", RED);
+        }
+
+        if (Double.isNaN(kpIndex)) {
+            radiationStatus = null;
+        } else if (kpIndex < 5) {
+            radiationStatus = new Status("Normal radiation levels", GREEN);
+        } else {
+            radiationStatus = new Status("Elevated radiation — monitor crop stress", ORANGE);
+        }
+
+        if (solarWindFailed || Double.isNaN(solarWindSpeed)) {
+            solarWindStatus = new Status("N/A", GRAY);
+            satelliteImpact = new Status(solarWindFailed ? "Unable to determine satellite impact"
+                    : "Satellite Impact: Data unavailable", GRAY);
+            f107Status = new Status("N/A", GRAY);
+        } else {
+            if (solarWindSpeed < 400) {
+                solarWindStatus = new Status("Slow", GREEN);
+                satelliteImpact = new Status("Satellite Impact: Stable conditions for crop monitoring.", GREEN);
+            } else if (solarWindSpeed < 600) {
+                solarWindStatus = new Status("Elevated", YELLOW);
+                satelliteImpact = new Status("Satellite Impact: Minor interference possible in NDVI data.", YELLOW);
+            } else {
+                solarWindStatus = new Status("High-Speed Stream", ORANGE);
+                satelliteImpact = new Status("Satellite Impact: Expect reduced accuracy in vegetation data.", ORANGE);
+            }
+
+            if (f107 < 100) {
+                f107Status = new Status("Low Solar Activity", GREEN);
+            } else if (f107 < 150) {
+                f107Status = new Status("Moderate Activity", YELLOW);
+            } else {
+                f107Status = new Status("High Solar Activity", ORANGE);
+            }
+        }
+    }
+
+    SpaceWeatherSnapshot withKp(double kpIndex, String freshness, long now) {
+        return new SpaceWeatherSnapshot(kpIndex, false, freshness, now,
+                bt, solarWindFailed, solarWindFreshness, solarWindUpdatedAt, generation, aiSummary);
+    }
+
+    SpaceWeatherSnapshot withKpFailed(long now) {
+        return new SpaceWeatherSnapshot(Double.NaN, true, null, now,
+                bt, solarWindFailed, solarWindFreshness, solarWindUpdatedAt, generation, aiSummary);
+    }
+
+    // The fetch failed but the last reading is kept; it stays dated when it was fetched
+    SpaceWeatherSnapshot withStaleKp(long now) {
+        return withKp(kpIndex, stale(kpUpdatedAt, now), kpUpdatedAt);
+    }
+
+    // bt in nT; NaN (no reading in the recent records) counts as a calm 0, as it always has
+    SpaceWeatherSnapshot withSolarWind(double bt, String freshness, long now) {
+        return new SpaceWeatherSnapshot(kpIndex, kpFailed, kpFreshness, kpUpdatedAt,
+                Double.isNaN(bt) ? 0.0 : bt, false, freshness, now, generation, aiSummary);
+    }
+
+    SpaceWeatherSnapshot withSolarWindFailed(long now) {
+        return new SpaceWeatherSnapshot(kpIndex, kpFailed, kpFreshness, kpUpdatedAt,
+                Double.NaN, true, null, now, generation, aiSummary);
+    }
+
+    SpaceWeatherSnapshot withStaleSolarWind(long now) {
+        return withSolarWind(bt, stale(solarWindUpdatedAt, now), solarWindUpdatedAt);
+    }
+
+    private static String stale(long updatedAt, long now) {
+        return "failed, last reading " + Math.max(0, now - updatedAt) / 1000 + " s old";
+    }
+
+    // Fetch number `generation` is complete; aiSummary null if a summary is on its way
+    SpaceWeatherSnapshot withGeneration(long generation, String aiSummary) {
+        return new SpaceWeatherSnapshot(kpIndex, kpFailed, kpFreshness, kpUpdatedAt,
+                bt, solarWindFailed, solarWindFreshness, solarWindUpdatedAt, generation, aiSummary);
+    }
+
+    SpaceWeatherSnapshot withSummary(String aiSummary) {
+        return withGeneration(generation, aiSummary);
+    }
+
+    public boolean hasKp() {
+        return !kpFailed && !Double.isNaN(kpIndex);
+    }
+
+    // Both readings are there, so an AI summary of them says something about each
+    public boolean hasCompleteInputs() {
+        return hasKp() && hasSolarWind();
+    }
+
+    // For the cache age line: where each feed came from and how old it is
+    public String describeFreshness() {
+        return "Kp " + describe(kpFreshness, kpFailed) + " · Solar wind " + describe(solarWindFreshness, solarWindFailed);
+    }
+
+    private static String describe(String freshness, boolean failed) {
+        return failed ? "failed" : freshness != null ? freshness : "…";
+    }
+
+    public boolean hasSolarWind() {
+        return !solarWindFailed && !Double.isNaN(solarWindSpeed);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("space weather #%d kp=%.1f (%s) wind=%.0fkm/s (%s) f10.7=%.0f summary=%s",
+                generation, kpIndex, kpFailed ? "failed" : kpFreshness,
+                solarWindSpeed, solarWindFailed ? "failed" : solarWindFreshness, f107,
+                aiSummary == null ? "pending" : "ready");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.plantdisease;
+
+import android.graphics.Color;
+import android.view.View;
+import android.widget.TextView;
+
+// The fragment_space_weather layout, shared by SpaceWeatherActivity and SpaceWeatherFragment:
+// finds its views, wires the refresh button to the repository and renders snapshots.
+class SpaceWeatherView {
+
+    private final TextView kpIndexValue, kpStatus, solarWindValue, solarWindStatus;
+    private final TextView f107Value, f107Status, geomagneticStatus, radiationStatus;
+    private final TextView cropImpact, satelliteImpact, aiSummary, cacheAgeText;
+
+    SpaceWeatherView(View root, SpaceWeatherRepository repository) {
+        kpIndexValue = root.findViewById(R.id.kpIndexValue);
+        kpStatus = root.findViewById(R.id.kpStatus);
+        solarWindValue = root.findViewById(R.id.solarWindValue);
+        solarWindStatus = root.findViewById(R.id.solarWindStatus);
+        f107Value = root.findViewById(R.id.f107Value);
+        f107Status = root.findViewById(R.id.f107Status);
+        geomagneticStatus = root.findViewById(R.id.geomagneticStatus);
+        radiationStatus = root.findViewById(R.id.radiationStatus);
+
+        // Agriculture impact and AI summary
+        cropImpact = root.findViewById(R.id.cropImpact);
+        satelliteImpact = root.findViewById(R.id.satelliteImpact);
+        aiSummary = root.findViewById(R.id.aiSummary);
+        cacheAgeText = root.findViewById(R.id.cacheAgeText);
+
+        root.findViewById(R.id.refreshBtn).setOnClickListener(v -> {
+            kpIndexValue.setText("Loading...");
+            solarWindValue.setText("Loading...");
+            f107Value.setText("Loading...");
+            cropImpact.setText("Analyzing crop impact...");
+            satelliteImpact.setText("Analyzing satellite impact...");
+            aiSummary.setText("Generating AI summary...");
+            repository.refresh();
+        });
+    }
+
+    void render(SpaceWeatherSnapshot snapshot) {
+        // A feed that has not come in yet keeps showing "Loading..."
+        if (snapshot.kpUpdatedAt != 0) {
+            if (snapshot.kpFailed) {
+                kpIndexValue.setText("Error");
+            } else {
+                kpIndexValue.setText(Double.isNaN(snapshot.kpIndex) ? "--" : String.format("%.1f", snapshot.kpIndex));
+            }
+            show(kpStatus, snapshot.kpStatus);
+            show(geomagneticStatus, snapshot.geomagneticStatus);
+            show(cropImpact, snapshot.cropImpact);
+            if (snapshot.radiationStatus != null) {
+                show(radiationStatus, snapshot.radiationStatus);
+            }
+        }
+
+        if (snapshot.solarWindUpdatedAt != 0) {
+            if (snapshot.hasSolarWind()) {
+                solarWindValue.setText(String.format("%.0f km/s", snapshot.solarWindSpeed));
+                f107Value.setText(String.format("%.0f sfu", snapshot.f107));
+            } else {
+                solarWindValue.setText("--");
+                f107Value.setText("--");
+            }
+            show(solarWindStatus, snapshot.solarWindStatus);
+            show(satelliteImpact, snapshot.satelliteImpact);
+            show(f107Status, snapshot.f107Status);
+        }
+
+        cacheAgeText.setText(snapshot.describeFreshness());
+
+        // Asked for once per fetch by the repository, after both feeds are in
+        if (snapshot.generation != 0) {
+            aiSummary.setText(snapshot.aiSummary != null ? snapshot.aiSummary : "Generating AI summary...");
+        }
+    }
+
+    private static void show(TextView view, SpaceWeatherSnapshot.Status status) {
+        view.setText(status.text);
+        view.setTextColor(Color.parseColor(status.color));
+    }
+}
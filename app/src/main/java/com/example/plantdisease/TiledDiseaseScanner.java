@@ -0,0 +1,314 @@
+package com.example.plantdisease;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Disease scan of a large photo (whole plant, canopy) in overlapping tiles.
+// Scaling a 4000x3000 photo down to 224x224 wipes out small lesions, so the photo is
+// cut into a grid of overlapping square tiles that each get the model's full input
+// resolution. Tiles are decoded one at a time with a BitmapRegionDecoder (the
+// full-resolution bitmap is never in memory), batched, and spread over the interpreter
+// pool with fork/join. The tile scores give one diagnosis for the photo plus a coarse
+// heat grid of where the model sees disease. Work is capped at maxTiles: larger photos
+// get larger (downsampled) tiles instead of more of them.
+public class TiledDiseaseScanner {
+
+    private static final String TAG = "TiledDiseaseScanner";
+
+    static final int TILE_SIZE = 224;
+    // Fraction of a tile shared with its neighbour, so lesions on a border are seen whole
+    static final float OVERLAP = 0.25f;
+    public static final int DEFAULT_MAX_TILES = 48;
+    private static final int TILES_PER_BATCH = 8;
+    // A tile counts as diseased when the disease classes together reach this score
+    static final float LESION_THRESHOLD = 0.5f;
+
+    interface TileSource {
+        Bitmap decode(int tile);
+    }
+
+    // Tile grid over a width x height photo; tile i is at column i % cols, row i / cols
+    static final class TilePlan {
+        final int width;
+        final int height;
+        final int tileWidth;
+        final int tileHeight;
+        final int sampleSize;
+        final int[] xs;
+        final int[] ys;
+
+        TilePlan(int width, int height, int tileWidth, int tileHeight, int sampleSize, int[] xs, int[] ys) {
+            this.width = width;
+            this.height = height;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.sampleSize = sampleSize;
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        int cols() {
+            return xs.length;
+        }
+
+        int rows() {
+            return ys.length;
+        }
+
+        int count() {
+            return xs.length * ys.length;
+        }
+
+        // {left, top, right, bottom} of a tile in photo pixels; plain ints so the plan has no
+        // Android types and can be checked in JVM tests
+        int[] bounds(int tile) {
+            int x = xs[tile % xs.length];
+            int y = ys[tile / xs.length];
+            return new int[]{x, y, Math.min(width, x + tileWidth), Math.min(height, y + tileHeight)};
+        }
+    }
+
+    public static class Result {
+        // Most likely disease anywhere in the photo, or the best healthy class when no tile is diseased
+        public final DiseaseModel.Prediction diagnosis;
+        public final int rows;
+        public final int cols;
+        // Disease score per tile, row by row (rows * cols values in [0, 1])
+        public final float[] heat;
+        public final int diseasedTiles;
+
+        Result(DiseaseModel.Prediction diagnosis, int rows, int cols, float[] heat, int diseasedTiles) {
+            this.diagnosis = diagnosis;
+            this.rows = rows;
+            this.cols = cols;
+            this.heat = heat;
+            this.diseasedTiles = diseasedTiles;
+        }
+    }
+
+    private final DiseaseModel model;
+    private final int maxTiles;
+    private final ForkJoinPool forkJoin;
+
+    public TiledDiseaseScanner(DiseaseModel model) {
+        this(model, DEFAULT_MAX_TILES);
+    }
+
+    public TiledDiseaseScanner(DiseaseModel model, int maxTiles) {
+        this.model = model;
+        this.maxTiles = Math.max(1, maxTiles);
+        // One worker per interpreter the pool may create; more would only queue on it
+        this.forkJoin = new ForkJoinPool(InterpreterPool.defaultPoolSize());
+    }
+
+    // Returns null when the photo cannot be read or the model fails
+    public Result scan(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                Log.e(TAG, "Could not open " + uri);
+                return null;
+            }
+            BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(in, false);
+            try {
+                return scan(decoder);
+            } finally {
+                decoder.recycle();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not decode " + uri, e);
+            return null;
+        }
+    }
+
+    public Result scan(BitmapRegionDecoder decoder) {
+        long start = System.currentTimeMillis();
+        TilePlan plan = plan(decoder.getWidth(), decoder.getHeight(), maxTiles);
+        Log.i(TAG, decoder.getWidth() + "x" + decoder.getHeight() + ": " + plan.cols() + "x" + plan.rows() +
+                " tiles of " + plan.tileWidth + "x" + plan.tileHeight + " (sample size " + plan.sampleSize + ")");
+
+        TileSource tiles = tile -> {
+            int[] b = plan.bounds(tile);
+            Rect bounds = new Rect(b[0], b[1], b[2], b[3]);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = plan.sampleSize;
+            // Decoding is serialized inside the decoder; the models still overlap
+            Bitmap bitmap = decoder.decodeRegion(bounds, options);
+            if (bitmap == null) {
+                throw new IllegalStateException("Could not decode tile " + tile);
+            }
+            return bitmap;
+        };
+
+        List<String> labels = model.getLabels();
+        float[][] scores = new float[plan.count()][];
+        try {
+            forkJoin.invoke(new TileTask(tiles, 0, plan.count(), scores));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Tiled scan failed", e);
+            return null;
+        }
+        if (model.getLabels() != labels) {
+            // Tiles may have been scored by two different models
+            Log.w(TAG, "Model was swapped during the tiled scan, discarding it");
+            return null;
+        }
+
+        Result result = aggregate(scores, labels, plan);
+        Log.i(TAG, "Tiled scan of " + plan.count() + " tiles took " + (System.currentTimeMillis() - start) +
+                " ms: " + result.diagnosis.diseaseName + " (" + result.diseasedTiles + " diseased tiles)");
+        return result;
+    }
+
+    // Splits the tile range until it fits one batch, then runs it on one interpreter
+    private class TileTask extends RecursiveAction {
+        private final TileSource tiles;
+        private final int from;
+        private final int count;
+        private final float[][] scores;
+
+        TileTask(TileSource tiles, int from, int count, float[][] scores) {
+            this.tiles = tiles;
+            this.from = from;
+            this.count = count;
+            this.scores = scores;
+        }
+
+        @Override
+        protected void compute() {
+            if (count <= TILES_PER_BATCH) {
+                try {
+                    model.scoreTiles(tiles, from, count, scores);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted", e);
+                }
+                return;
+            }
+            int half = count / 2;
+            invokeAll(new TileTask(tiles, from, half, scores),
+                    new TileTask(tiles, from + half, count - half, scores));
+        }
+    }
+
+    // Smallest square tile (at least TILE_SIZE, at most the short side of the photo) whose
+    // overlapping grid fits in maxTiles. Tiles are spread evenly so the last one ends on
+    // the border. A photo whose short side is no bigger than one tile is a single tile.
+    // Very elongated photos that don't fit even with the largest square get maxTiles
+    // stretched tiles along their long side instead.
+    static TilePlan plan(int width, int height, int maxTiles) {
+        int maxSide = Math.min(width, height);
+        if (maxSide <= TILE_SIZE) {
+            return new TilePlan(width, height, width, height, 1, new int[1], new int[1]);
+        }
+        int side = TILE_SIZE;
+        int cols = tilesAlong(width, side);
+        int rows = tilesAlong(height, side);
+        while (cols * rows > maxTiles && side < maxSide) {
+            side = Math.min(maxSide, Math.max(side + 1, Math.round(side * 1.1f)));
+            cols = tilesAlong(width, side);
+            rows = tilesAlong(height, side);
+        }
+        int tileWidth = side;
+        int tileHeight = side;
+        if (cols * rows > maxTiles) {
+            // One row or column left: stretch the tiles so maxTiles still cover the photo
+            if (cols > 1) {
+                cols = maxTiles;
+                tileWidth = Math.max(side, (width + cols - 1) / cols);
+            } else {
+                rows = maxTiles;
+                tileHeight = Math.max(side, (height + rows - 1) / rows);
+            }
+        }
+        return new TilePlan(width, height, tileWidth, tileHeight, sampleSize(Math.min(tileWidth, tileHeight)),
+                positions(width, tileWidth, cols), positions(height, tileHeight, rows));
+    }
+
+    // Tiles needed to cover length with at least OVERLAP between neighbours
+    static int tilesAlong(int length, int side) {
+        if (length <= side) {
+            return 1;
+        }
+        float stride = side * (1 - OVERLAP);
+        return (int) Math.ceil((length - side) / stride) + 1;
+    }
+
+    private static int[] positions(int length, int side, int count) {
+        int[] positions = new int[count];
+        for (int i = 1; i < count; i++) {
+            positions[i] = (int) ((long) i * (length - side) / (count - 1));
+        }
+        return positions;
+    }
+
+    // Largest power-of-two subsampling that still leaves the tile at least TILE_SIZE wide
+    static int sampleSize(int tileSide) {
+        int sampleSize = 1;
+        while (tileSide / (sampleSize * 2) >= TILE_SIZE) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Diagnosis and heat grid from the per-tile scores. The disease score of a tile is the
+    // total score of the non-healthy classes. A lesion only shows up in a few tiles, so
+    // averaging would hide it: the diagnosis is the disease with the highest score in any
+    // diseased tile, and only a photo without diseased tiles gets the best average healthy class.
+    static Result aggregate(float[][] scores, List<String> labels, TilePlan plan) {
+        int numClasses = labels.size();
+        boolean[] healthy = new boolean[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            healthy[c] = labels.get(c).toLowerCase().contains("healthy");
+        }
+
+        float[] heat = new float[scores.length];
+        float[] healthyMean = new float[numClasses];
+        int diseasedTiles = 0;
+        int bestDisease = -1;
+        float bestDiseaseScore = 0;
+        for (int t = 0; t < scores.length; t++) {
+            float disease = 0;
+            for (int c = 0; c < numClasses; c++) {
+                if (healthy[c]) {
+                    healthyMean[c] += scores[t][c] / scores.length;
+                } else {
+                    disease += scores[t][c];
+                }
+            }
+            heat[t] = Math.min(1f, disease);
+            if (disease < LESION_THRESHOLD) {
+                continue;
+            }
+            diseasedTiles++;
+            for (int c = 0; c < numClasses; c++) {
+                if (!healthy[c] && scores[t][c] > bestDiseaseScore) {
+                    bestDiseaseScore = scores[t][c];
+                    bestDisease = c;
+                }
+            }
+        }
+
+        DiseaseModel.Prediction diagnosis;
+        if (bestDisease >= 0) {
+            diagnosis = new DiseaseModel.Prediction(labels.get(bestDisease), bestDiseaseScore);
+        } else {
+            int best = ImagePreprocessor.argMax(healthyMean);
+            diagnosis = new DiseaseModel.Prediction(labels.get(best), healthyMean[best]);
+        }
+        return new Result(diagnosis, plan.rows(), plan.cols(), heat, diseasedTiles);
+    }
+
+    public void close() {
+        forkJoin.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.plantdisease;
+
+// Primitive top-k selection over a model's output scores.
+// Keeps the k best (index, score) pairs in caller-provided arrays sorted best first,
+// so it never allocates. O(n * k), which for k << n beats sorting all classes.
+public final class TopK {
+
+    // Result arrays for callers that copy the top k out before selecting again
+    public static final class Scratch {
+        int[] indices = new int[0];
+        float[] scores = new float[0];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private TopK() {
+    }
+
+    // This thread's scratch arrays, grown to hold at least k results
+    public static Scratch scratch(int k) {
+        Scratch scratch = SCRATCH.get();
+        if (scratch.indices.length < k) {
+            scratch.indices = new int[k];
+            scratch.scores = new float[k];
+        }
+        return scratch;
+    }
+
+    // Fill outIndices/outScores (length >= k) with the k highest scores, best first.
+    // Returns how many were written (min(k, scores.length)). Ties keep the lower index first.
+    public static int select(float[] scores, int k, int[] outIndices, float[] outScores) {
+        int size = 0;
+        k = Math.min(k, scores.length);
+        for (int i = 0; i < scores.length; i++) {
+            float score = scores[i];
+            if (size == k && score <= outScores[k - 1]) {
+                continue;
+            }
+            // Shift worse entries down and insert
+            int pos = size < k ? size++ : k - 1;
+            while (pos > 0 && outScores[pos - 1] < score) {
+                outScores[pos] = outScores[pos - 1];
+                outIndices[pos] = outIndices[pos - 1];
+                pos--;
+            }
+            outScores[pos] = score;
+            outIndices[pos] = i;
+        }
+        return size;
+    }
+
+    // In-place softmax of logits divided by temperature
+    public static void softmax(float[] logits, float temperature) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float v : logits) {
+            max = Math.max(max, v);
+        }
+        double sum = 0;
+        for (int i = 0; i < logits.length; i++) {
+            logits[i] = (float) Math.exp((logits[i] - max) / temperature);
+            sum += logits[i];
+        }
+        for (int i = 0; i < logits.length; i++) {
+            logits[i] = (float) (logits[i] / sum);
+        }
+    }
+
+    // Temperature scaling for models that already output probabilities:
+    // softmax(log(p) / T). T > 1 flattens over-confident scores, T = 1 only renormalizes.
+    public static void calibrateProbabilities(float[] probabilities, float temperature) {
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = (float) Math.log(Math.max(probabilities[i], 1e-9f));
+        }
+        softmax(probabilities, temperature);
+    }
+}
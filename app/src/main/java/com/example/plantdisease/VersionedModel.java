@@ -0,0 +1,291 @@
+package com.example.plantdisease;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// The live ModelVersion of a model that can be updated from the model store, and
+// everything that happens to it: the installed version (or the bundled one) is loaded
+// at start, swapTo() replaces it, a memory trim retires it and the next retain() loads
+// it again, and close() retires it for good. DiseaseModel and InsectModel each keep one
+// and only add their own prediction logic on top.
+final class VersionedModel {
+
+    // A store version, or the bundled model when version is null
+    interface Loader {
+        ModelVersion load(Context context, ModelStore.Version version,
+                          ModelConfig.Precision requestedPrecision) throws Exception;
+    }
+
+    // Turns the best class of one image into the model's own prediction type
+    interface PredictionFactory<P> {
+        P create(ModelVersion version, int classIndex, float confidence);
+    }
+
+    // Maps a name from the labels file to the one shown to the user
+    interface LabelFormat {
+        String format(String className);
+    }
+
+    private final String tag;
+    private final Context appContext;
+    private final ModelStore store;
+    private final MemoryManager memory;
+    private final Loader loader;
+    private final MemoryManager.Releasable memoryReleaser = this::releaseMemory;
+    // Interpreters, labels and cache of the live version; replaced as a whole by swapTo()
+    private volatile ModelVersion live;
+    private boolean closed;
+
+    VersionedModel(String tag, Context appContext, ModelStore store, MemoryManager memory, Loader loader,
+                   ModelConfig.Precision requestedPrecision) throws Exception {
+        this.tag = tag;
+        this.appContext = appContext;
+        this.store = store;
+        this.memory = memory;
+        this.loader = loader;
+
+        // A model installed into the store wins over the bundled one, unless it is broken
+        ModelStore.Version installed = store.current();
+        if (installed != null) {
+            try {
+                live = loader.load(appContext, installed, requestedPrecision);
+            } catch (Exception e) {
+                Log.e(tag, "Installed model " + installed + " failed to load, using the bundled one", e);
+            }
+        }
+        if (live == null) {
+            live = loader.load(appContext, null, requestedPrecision);
+        }
+        // Given up first when memory runs out, and loaded again on the next prediction
+        memory.register(MemoryManager.Tier.INTERPRETERS, tag, memoryReleaser);
+    }
+
+    // The live version, not retained: only for its name, precision and stats
+    ModelVersion current() {
+        return live;
+    }
+
+    // The live version, retained until release(). A version released under memory pressure
+    // is loaded again here, on the first use after the trim. Null once the model is closed
+    // or when the reload fails.
+    ModelVersion retain() {
+        while (true) {
+            ModelVersion version = live;
+            if (version.retain()) {
+                return version;
+            }
+            synchronized (this) {
+                if (version != live) {
+                    continue;
+                }
+                if (closed) {
+                    return null;
+                }
+                long start = System.nanoTime();
+                try {
+                    live = loader.load(appContext, store.find(version.name), version.precision);
+                } catch (Exception e) {
+                    Log.e(tag, "Could not reload model " + version.name, e);
+                    return null;
+                }
+                memory.recordReload(tag + " " + version.name, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // Load version (null: the bundled model), warm it up and make it live. Predictions
+    // already running finish on the old version and new ones start on the new one; the
+    // old interpreters are closed when the last of them is done.
+    void swapTo(Context context, ModelStore.Version version, ModelConfig.Precision precision) throws Exception {
+        long start = System.currentTimeMillis();
+        ModelVersion next = loader.load(context, version, precision);
+        try {
+            warmUp(next);
+        } catch (Exception e) {
+            next.retire();
+            throw e;
+        }
+        ModelVersion previous;
+        synchronized (this) {
+            previous = live;
+            live = next;
+        }
+        previous.retire();
+        Log.i(tag, "Swapped model " + previous.name + " -> " + next.name + " in " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Memory pressure: retire the live version so its interpreters, model buffer and
+    // labels can be collected once in-flight predictions finish. Returns roughly one
+    // model size per interpreter, as XNNPACK keeps its own packed copy of the weights.
+    private long releaseMemory() {
+        ModelVersion version;
+        synchronized (this) {
+            version = live;
+            if (closed || version.isRetired()) {
+                return 0;
+            }
+        }
+        int interpreters = version.interpreters();
+        version.retire();
+        Log.i(tag, "Released model " + version.name + " and " + interpreters + " interpreter(s)");
+        return version.modelBytes * interpreters;
+    }
+
+    // One dummy inference so the first real scan doesn't pay for tensor allocation
+    void warmUp() throws InterruptedException {
+        ModelVersion version = retain();
+        if (version == null) return;
+        try {
+            warmUp(version);
+        } finally {
+            version.release();
+        }
+    }
+
+    private void warmUp(ModelVersion version) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        version.warmUp();
+        Log.i(tag, "Warm-up inference took " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Run many images through one interpreter invocation per chunk of up to
+    // ImagePreprocessor.MAX_BATCH images. Returns one prediction per bitmap, in order, or
+    // null when there is nothing to run or the model failed.
+    <P> List<P> predictBatch(List<Bitmap> bitmaps, PredictionFactory<P> factory) {
+        ModelVersion version = bitmaps != null && !bitmaps.contains(null) ? retain() : null;
+        if (version == null) {
+            Log.e(tag, "Batch prediction failed: missing bitmaps or model");
+            return null;
+        }
+
+        List<P> predictions = new ArrayList<>(bitmaps.size());
+        InterpreterPool.Slot slot = null;
+        try {
+            Log.i(tag, "Starting batch prediction of " + bitmaps.size() + " images...");
+            slot = version.pool.acquire();
+
+            for (int from = 0; from < bitmaps.size(); from += ImagePreprocessor.MAX_BATCH) {
+                int count = Math.min(ImagePreprocessor.MAX_BATCH, bitmaps.size() - from);
+
+                slot.ensureBatchSize(count);
+                ByteBuffer input = slot.preprocessor.processBatch(bitmaps, from, count);
+                slot.interpreter.run(input, slot.preprocessor.batchOutputBuffer(count));
+
+                for (int i = 0; i < count; i++) {
+                    float[] scores = slot.preprocessor.readBatchScores(i);
+                    int maxIndex = ImagePreprocessor.argMax(scores);
+                    predictions.add(factory.create(version, maxIndex, scores[maxIndex]));
+                }
+            }
+
+            Log.i(tag, "Batch prediction complete");
+            return predictions;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            Log.e(tag, "Batch prediction error: " + e.getMessage(), e);
+            return null;
+        } finally {
+            if (slot != null) {
+                version.pool.release(slot);
+            }
+            version.release();
+        }
+    }
+
+    void close() {
+        memory.unregister(memoryReleaser);
+        synchronized (this) {
+            closed = true;
+        }
+        // Interpreters still running a prediction are closed when it finishes
+        live.retire();
+        Log.i(tag, "Model closed");
+    }
+
+    // Loads a version from the store, or the bundled assets: labels, mapped model, an
+    // interpreter pool with the options tuned for this device, and the prediction cache
+    static final class AssetLoader implements Loader {
+        private final String tag;
+        private final String modelAsset;
+        private final String labelsAsset;
+        // Name of the bundled model's cache file, before the precision suffix
+        private final String cacheName;
+        private final int imageSize;
+        private final int cacheSize;
+        private final LabelFormat labelFormat;
+
+        AssetLoader(String tag, String modelAsset, String labelsAsset, String cacheName,
+                    int imageSize, int cacheSize, LabelFormat labelFormat) {
+            this.tag = tag;
+            this.modelAsset = modelAsset;
+            this.labelsAsset = labelsAsset;
+            this.cacheName = cacheName;
+            this.imageSize = imageSize;
+            this.cacheSize = cacheSize;
+            this.labelFormat = labelFormat;
+        }
+
+        @Override
+        public ModelVersion load(Context context, ModelStore.Version version,
+                                 ModelConfig.Precision requestedPrecision) throws Exception {
+            JsonObject labelsJson;
+            if (version != null) {
+                labelsJson = version.readLabels();
+            } else {
+                try (InputStream in = context.getAssets().open(labelsAsset)) {
+                    labelsJson = ModelStore.parseLabels(in);
+                }
+            }
+            List<String> labels = new ArrayList<>();
+            for (JsonElement className : labelsJson.getAsJsonArray("classes")) {
+                labels.add(labelFormat.format(className.getAsString()));
+            }
+            Log.i(tag, "Labels loaded: " + labels.size() + " classes");
+
+            MappedByteBuffer tfliteModel;
+            ModelConfig.Precision precision;
+            File cacheFile;
+            // Identifies the model for the prediction cache and the tuner without reading it
+            long fingerprint;
+            if (version != null) {
+                tfliteModel = version.map();
+                precision = ModelStore.inspect(tfliteModel, imageSize, labels.size());
+                cacheFile = version.file("prediction_cache.bin");
+                File modelFile = version.modelFile();
+                fingerprint = PredictionCache.fingerprint(version.name, modelFile.length(), modelFile.lastModified(), labels);
+            } else {
+                ModelConfig.LoadedModel loaded = ModelConfig.loadModel(context, modelAsset, requestedPrecision);
+                tfliteModel = loaded.buffer;
+                precision = loaded.precision;
+                cacheFile = new File(context.getFilesDir(), cacheName + ModelConfig.fileSuffix(precision) + ".bin");
+                fingerprint = PredictionCache.fingerprint(loaded.asset, tfliteModel.capacity(),
+                        ModelConfig.assetVersion(context), labels);
+            }
+            Log.i(tag, "Model buffer loaded (" + (version != null ? version : ModelStore.BUNDLED) + ", " +
+                    precision + "), size: " + tfliteModel.capacity() + " bytes");
+
+            // Fastest thread/XNNPACK/FP16 options for this device, benchmarked on first load
+            InterpreterTuner.Config config = InterpreterTuner.tune(context, tag,
+                    tfliteModel, fingerprint, imageSize, labels.size());
+            InterpreterPool pool = new InterpreterPool(tag, tfliteModel, imageSize, labels.size(), config);
+
+            // Results of earlier scans, dropped automatically when the model changes
+            PredictionCache cache = new PredictionCache(cacheFile, fingerprint, cacheSize);
+            return new ModelVersion(version != null ? version.name : ModelStore.BUNDLED,
+                    pool, labels, labelsJson, cache, precision, tfliteModel.capacity());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.plantdisease;
+
+// YUV_420_888 camera frame -> size x size ARGB pixels for the models.
+// Takes the centered square of the frame, rotates it upright and samples it down to
+// the model size in one pass, so only size * size pixels are ever converted and no
+// Bitmap is involved. Nearest-neighbour sampling is enough for a live preview
+// (camera frames are only ~2-3x the model size). Full-range BT.601, which is what
+// the camera HAL delivers for YUV_420_888.
+final class YuvConverter {
+
+    private YuvConverter() {
+    }
+
+    // Writes size * size ARGB pixels into out
+    static void toArgb(YuvFrame frame, int size, int[] out) {
+        int rotation = ((frame.rotationDegrees % 360) + 360) % 360;
+        int side = Math.min(frame.width, frame.height);
+        int cropX = (frame.width - side) / 2;
+        int cropY = (frame.height - side) / 2;
+
+        int index = 0;
+        for (int oy = 0; oy < size; oy++) {
+            // Position inside the upright square crop
+            int uy = (int) ((oy + 0.5f) * side / size);
+            for (int ox = 0; ox < size; ox++) {
+                int ux = (int) ((ox + 0.5f) * side / size);
+
+                // Upright -> sensor coordinates inside the crop
+                int cx;
+                int cy;
+                switch (rotation) {
+                    case 90:
+                        cx = uy;
+                        cy = side - 1 - ux;
+                        break;
+                    case 180:
+                        cx = side - 1 - ux;
+                        cy = side - 1 - uy;
+                        break;
+                    case 270:
+                        cx = side - 1 - uy;
+                        cy = ux;
+                        break;
+                    default:
+                        cx = ux;
+                        cy = uy;
+                        break;
+                }
+                int sx = cropX + cx;
+                int sy = cropY + cy;
+
+                int yValue = frame.y.get(sy * frame.yRowStride + sx) & 0xFF;
+                int uvIndex = (sy >> 1) * frame.uvRowStride + (sx >> 1) * frame.uvPixelStride;
+                int uValue = (frame.u.get(uvIndex) & 0xFF) - 128;
+                int vValue = (frame.v.get(uvIndex) & 0xFF) - 128;
+                out[index++] = yuvToArgb(yValue, uValue, vValue);
+            }
+        }
+    }
+
+    // Fixed-point full-range BT.601 (16.16); u and v are centered on 0
+    static int yuvToArgb(int y, int u, int v) {
+        int r = y + ((91881 * v) >> 16);
+        int g = y - ((22554 * u + 46802 * v) >> 16);
+        int b = y + ((116130 * u) >> 16);
+        return 0xFF000000 | (clamp(r) << 16) | (clamp(g) << 8) | clamp(b);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(255, value);
+    }
+}
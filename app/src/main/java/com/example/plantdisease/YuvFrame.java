@@ -0,0 +1,48 @@
+package com.example.plantdisease;
+
+import java.nio.ByteBuffer;
+
+// One YUV_420_888 camera frame, as CameraX's ImageProxy hands it out, without any
+// Android types so the live pipeline also runs from a synthetic source on a plain JVM.
+// close() gives the frame back to whoever produced it (for CameraX: closes the
+// ImageProxy so the next frame can be delivered) and must be called exactly once.
+public final class YuvFrame {
+
+    public final int width;
+    public final int height;
+    // Clockwise rotation that makes the frame upright
+    public final int rotationDegrees;
+    public final long timestampNanos;
+
+    final ByteBuffer y;
+    final ByteBuffer u;
+    final ByteBuffer v;
+    final int yRowStride;
+    final int uvRowStride;
+    final int uvPixelStride;
+
+    private final Runnable onClose;
+
+    public YuvFrame(int width, int height, int rotationDegrees, long timestampNanos,
+                    ByteBuffer y, int yRowStride,
+                    ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride,
+                    Runnable onClose) {
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+        this.y = y;
+        this.yRowStride = yRowStride;
+        this.u = u;
+        this.v = v;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.onClose = onClose;
+    }
+
+    public void close() {
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+}
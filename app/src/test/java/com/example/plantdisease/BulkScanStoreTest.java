@@ -0,0 +1,136 @@
+package com.example.plantdisease;
+
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Runs on Robolectric for a real SQLite; the store is in memory per test
+@RunWith(RobolectricTestRunner.class)
+public class BulkScanStoreTest {
+
+    private BulkScanStore store;
+
+    @Before
+    public void setUp() {
+        store = new BulkScanStore(RuntimeEnvironment.getApplication(), null);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void createJob_startsEveryItemPending() {
+        long job = store.createJob(uris("a", "b", "c"));
+
+        assertEquals(job, store.getLatestJobId());
+        assertEquals(3, store.getPendingItems(job).size());
+        BulkScanStore.Progress progress = store.getProgress(job);
+        assertEquals(3, progress.total);
+        assertEquals(0, progress.done);
+        assertEquals(0, progress.failed);
+        assertEquals(3, progress.remaining());
+        assertTrue(store.getResults(job, 10).isEmpty());
+    }
+
+    @Test
+    public void saveResults_marksItemsDoneOrFailed() {
+        long job = store.createJob(uris("a", "b", "c"));
+        List<BulkScanStore.Item> pending = store.getPendingItems(job);
+
+        store.saveResults(Arrays.asList(
+                new BulkScanStore.Result(pending.get(0).id, pending.get(0).uri.toString(),
+                        "Tomato___healthy", 0.9f, "aphids", 0.6f, null),
+                BulkScanStore.Result.failed(pending.get(1), "Could not read image")));
+
+        BulkScanStore.Progress progress = store.getProgress(job);
+        assertEquals(1, progress.done);
+        assertEquals(1, progress.failed);
+        assertEquals(1, progress.remaining());
+
+        List<BulkScanStore.Result> results = store.getResults(job, 10);
+        assertEquals(2, results.size());
+        for (BulkScanStore.Result result : results) {
+            if (result.itemId == pending.get(0).id) {
+                assertNull(result.error);
+                assertEquals("Tomato___healthy", result.disease);
+                assertEquals(0.9f, result.diseaseConfidence, 1e-6f);
+            } else {
+                assertEquals("Could not read image", result.error);
+            }
+        }
+    }
+
+    @Test
+    public void unsavedItems_stayPendingForTheNextRun() {
+        long job = store.createJob(uris("a", "b", "c", "d"));
+        List<BulkScanStore.Item> pending = store.getPendingItems(job);
+
+        // A run that only committed the first image, e.g. because prediction failed for the rest
+        store.saveResults(Collections.singletonList(BulkScanStore.Result.failed(pending.get(0), "Too dark")));
+        store.saveResults(Collections.<BulkScanStore.Result>emptyList());
+
+        List<BulkScanStore.Item> resumed = store.getPendingItems(job);
+        assertEquals(3, resumed.size());
+        assertEquals(pending.get(1).id, resumed.get(0).id);
+        assertEquals(pending.get(1).uri, resumed.get(0).uri);
+        assertEquals(3, store.getProgress(job).remaining());
+    }
+
+    @Test
+    public void givingUpOnPrediction_failsTheItemsInsteadOfLeavingThemPending() {
+        long job = store.createJob(uris("a", "b", "c"));
+        List<BulkScanStore.Item> pending = store.getPendingItems(job);
+
+        // What the worker commits on its last attempt when the models still fail
+        List<BulkScanStore.Result> failed = new ArrayList<>();
+        for (BulkScanStore.Item item : pending) {
+            failed.add(BulkScanStore.Result.failed(item, "Prediction failed"));
+        }
+        store.saveResults(failed);
+
+        assertTrue(store.getPendingItems(job).isEmpty());
+        BulkScanStore.Progress progress = store.getProgress(job);
+        assertEquals(0, progress.done);
+        assertEquals(3, progress.failed);
+        assertEquals(0, progress.remaining());
+        for (BulkScanStore.Result result : store.getResults(job, 10)) {
+            assertEquals("Prediction failed", result.error);
+        }
+    }
+
+    @Test
+    public void jobs_areKeptApart() {
+        long first = store.createJob(uris("a", "b"));
+        long second = store.createJob(uris("c"));
+        List<BulkScanStore.Item> items = store.getPendingItems(second);
+        store.saveResults(Collections.singletonList(BulkScanStore.Result.failed(items.get(0), "Blurry")));
+
+        assertEquals(second, store.getLatestJobId());
+        assertEquals(2, store.getPendingItems(first).size());
+        assertEquals(0, store.getProgress(first).failed);
+        assertEquals(1, store.getProgress(second).failed);
+        assertEquals(0, store.getProgress(second).remaining());
+    }
+
+    private static List<Uri> uris(String... names) {
+        Uri[] uris = new Uri[names.length];
+        for (int i = 0; i < names.length; i++) {
+            uris[i] = Uri.parse("content://media/external/images/" + names[i]);
+        }
+        return Arrays.asList(uris);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CascadeStatsTest {
+
+    @Test
+    public void escalationRate_countsEscalatedPredictions() {
+        CascadeStats stats = new CascadeStats();
+        stats.recordGate(1_000_000, false);
+        stats.recordGate(1_000_000, false);
+        stats.recordGate(1_000_000, false);
+        stats.recordGate(1_000_000, true);
+
+        assertEquals(4, stats.getPredictions());
+        assertEquals(0.25, stats.getEscalationRate(), 1e-9);
+    }
+
+    @Test
+    public void estimatedSavings_accountsForGateCost() {
+        CascadeStats stats = new CascadeStats();
+        // Gate 2 ms, full model 20 ms, half the images escalated:
+        // 1 - (2 + 0.5 * 20) / 20 = 0.4
+        stats.recordGate(2_000_000, false);
+        stats.recordGate(2_000_000, true);
+        stats.recordFull(20_000_000);
+
+        assertEquals(0.4, stats.getEstimatedSavings(), 0.02);
+    }
+
+    @Test
+    public void estimatedSavings_negativeWhenEverythingEscalates() {
+        CascadeStats stats = new CascadeStats();
+        stats.recordGate(2_000_000, true);
+        stats.recordFull(20_000_000);
+
+        assertTrue(stats.getEstimatedSavings() < 0);
+    }
+
+    @Test
+    public void estimatedSavings_zeroWithoutFullRuns() {
+        assertEquals(0, new CascadeStats().getEstimatedSavings(), 0);
+    }
+
+    @Test
+    public void shouldEscalate_onlySkipsConfidentHealthyOrNotALeaf() {
+        float threshold = 0.85f;
+        assertFalse(GatekeeperModel.shouldEscalate(new GatekeeperModel.Verdict(GatekeeperModel.HEALTHY, 0.95f), threshold));
+        assertFalse(GatekeeperModel.shouldEscalate(new GatekeeperModel.Verdict(GatekeeperModel.NOT_A_LEAF, 0.9f), threshold));
+        assertTrue(GatekeeperModel.shouldEscalate(new GatekeeperModel.Verdict(GatekeeperModel.HEALTHY, 0.6f), threshold));
+        assertTrue(GatekeeperModel.shouldEscalate(new GatekeeperModel.Verdict(GatekeeperModel.DISEASED, 0.99f), threshold));
+    }
+
+    @Test
+    public void gatekeeperPrediction_carriesVerdictInsteadOfDiseaseLabel() {
+        DiseaseModel.Prediction healthy = DiseaseModel.Prediction.fromGatekeeper(
+                new GatekeeperModel.Verdict(GatekeeperModel.HEALTHY, 0.95f));
+        assertNull(healthy.diseaseName);
+        assertEquals(GatekeeperModel.HEALTHY, healthy.gatekeeperVerdict);
+        assertEquals(0.95f, healthy.confidence, 0f);
+        assertEquals("Healthy leaf", healthy.displayName());
+
+        DiseaseModel.Prediction full = new DiseaseModel.Prediction("Tomato___Leaf_Mold", 0.8f);
+        assertEquals(DiseaseModel.Prediction.NO_VERDICT, full.gatekeeperVerdict);
+        assertEquals("Tomato___Leaf_Mold", full.displayName());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.plantdisease;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FeedTailTest {
+
+    @Test
+    public void keepsOnlyTheNewestRecordsInOrder() throws IOException {
+        FeedTail tail = FeedTail.read(reader(NoaaFixtures.kpFeed(100, 1)), 3, "kp_index", "estimated_kp");
+
+        assertEquals(100, tail.getCount());
+        assertEquals(3, tail.size());
+        assertEquals("2024-05-10T01:39:00", tail.getTimeTag(0));
+        assertEquals("2024-05-10T01:38:00", tail.getTimeTag(1));
+        assertEquals("2024-05-10T01:37:00", tail.getTimeTag(2));
+
+        JSONArray all = new JSONArray(new String(NoaaFixtures.kpFeed(100, 1), StandardCharsets.UTF_8));
+        for (int age = 0; age < 3; age++) {
+            JSONObject record = all.getJSONObject(all.length() - 1 - age);
+            assertEquals(record.getDouble("kp_index"), tail.get(age, "kp_index"), 0);
+            assertEquals(record.getDouble("estimated_kp"), tail.get(age, "estimated_kp"), 0);
+        }
+    }
+
+    @Test
+    public void shortFeedKeepsEverything() throws IOException {
+        FeedTail tail = FeedTail.read(new StringReader(
+                "[{\"time_tag\": \"a\", \"kp_index\": 2}, {\"time_tag\": \"b\", \"kp_index\": 3}]"), "kp_index");
+
+        assertEquals(2, tail.size());
+        assertEquals(3, tail.get(0, "kp_index"), 0);
+        assertEquals(2, tail.get(1, "kp_index"), 0);
+        try {
+            tail.get(2, "kp_index");
+            fail("only two records");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        assertEquals(0, FeedTail.read(new StringReader("[]"), "kp_index").size());
+    }
+
+    @Test
+    public void latestStepsOverNullsAndOddValues() throws IOException {
+        FeedTail tail = FeedTail.read(new StringReader("[" +
+                "{\"bt\": 4.5}, {\"bt\": \"5.25\"}, {\"bt\": null, \"bz_gsm\": {\"nested\": [1, 2]}}, " +
+                "{\"bt\": \"n/a\"}, {\"other\": 1}]"), "bt");
+
+        assertTrue(Double.isNaN(tail.get(0, "bt")));
+        assertTrue(Double.isNaN(tail.get(1, "bt")));
+        assertTrue(Double.isNaN(tail.get(2, "bt")));
+        assertEquals(5.25, tail.latest("bt"), 0);
+
+        FeedTail gaps = FeedTail.read(new StringReader("[{\"bt\": null}]"), "bt");
+        assertTrue(Double.isNaN(gaps.latest("bt")));
+    }
+
+    @Test
+    public void rejectsWhatIsNotAFeed() {
+        for (String json : new String[]{"", "{\"bt\": 1}", "[1, 2]", "[{\"bt\": 1}"}) {
+            try {
+                FeedTail.read(new StringReader(json), "bt");
+                fail("accepted " + json);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    // The streaming tail against whole body -> String -> JSONArray, as the screens used to
+    // do, on a day of the solar-wind feed and six hours of the Kp feed: same newest records,
+    // for a fraction of the allocation
+    @Test
+    public void fullSizeFeeds_matchWholeArrayWithLessAllocation() throws Exception {
+        byte[][] feeds = {NoaaFixtures.magFeed(24 * 60, 97, 7), NoaaFixtures.kpFeed(6 * 60, 7)};
+        String[] fields = {"bt", "kp_index"};
+        boolean measured = allocatedBytes() >= 0;
+
+        for (int f = 0; f < feeds.length; f++) {
+            byte[] feed = feeds[f];
+            String field = fields[f];
+
+            long allocated = allocatedBytes();
+            JSONArray all = new JSONArray(new String(feed, StandardCharsets.UTF_8));
+            long wholeAllocated = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            FeedTail tail = FeedTail.read(reader(feed), field);
+            long tailAllocated = allocatedBytes() - allocated;
+
+            assertEquals(all.length(), tail.getCount());
+            assertEquals(FeedTail.DEFAULT_CAPACITY, tail.size());
+            for (int age = 0; age < tail.size(); age++) {
+                JSONObject record = all.getJSONObject(all.length() - 1 - age);
+                assertEquals(record.getString("time_tag"), tail.getTimeTag(age));
+                assertEquals(record.optDouble(field, Double.NaN), tail.get(age, field), 0);
+            }
+            if (measured) {
+                assertTrue(field + ": tail " + tailAllocated + " bytes, whole array " + wholeAllocated,
+                        tailAllocated * 4 < wholeAllocated);
+            }
+        }
+    }
+
+    private static Reader reader(byte[] feed) {
+        return new InputStreamReader(new ByteArrayInputStream(feed), StandardCharsets.UTF_8);
+    }
+
+    // Bytes allocated by this thread so far, or -1 where the JVM can't tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.plantdisease;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class HttpStackTest {
+
+    private MockWebServer server;
+    private File cacheDir;
+    private HttpStack stack;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cacheDir = File.createTempFile("http_cache", "");
+        cacheDir.delete();
+        stack = new HttpStack(cacheDir, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        delete(cacheDir);
+    }
+
+    @Test
+    public void screensShareOneConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("[]"));
+        }
+
+        // Space weather, regional guide and encyclopedia, one after the other
+        get(HttpStack.Endpoint.NOAA, "/json/planetary_k_index_1m.json");
+        get(HttpStack.Endpoint.OPEN_WEATHER, "/data/2.5/weather");
+        get(HttpStack.Endpoint.TREFLE, "/api/v1/plants/search");
+
+        // Index of each request on its connection: all three went over the first one
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+        assertEquals(2, server.takeRequest().getSequenceNumber());
+        assertEquals(3, stack.getCalls());
+        assertEquals(1, stack.getConnects());
+        assertEquals(1, stack.getIdleConnections());
+    }
+
+    @Test
+    public void endpointClientsShareThePoolDispatcherAndCache() {
+        OkHttpClient noaa = stack.client(HttpStack.Endpoint.NOAA);
+        OkHttpClient ai = stack.client(HttpStack.Endpoint.AI_SUMMARY);
+
+        assertSame(noaa, stack.client(HttpStack.Endpoint.NOAA));
+        assertSame(noaa.connectionPool(), ai.connectionPool());
+        assertSame(noaa.dispatcher(), ai.dispatcher());
+        assertSame(noaa.cache(), ai.cache());
+        assertEquals(15_000, noaa.readTimeoutMillis());
+        assertEquals(20_000, ai.readTimeoutMillis());
+        assertEquals(15_000, ai.writeTimeoutMillis());
+    }
+
+    @Test
+    public void freshResponseIsServedFromTheDiskCache() throws Exception {
+        // NOAA says no-cache; the endpoint policy still keeps it for a minute
+        server.enqueue(new MockResponse().setBody("[1]").setHeader("Cache-Control", "no-cache"));
+
+        assertEquals("[1]", get(HttpStack.Endpoint.NOAA, "/kp"));
+        assertEquals("[1]", get(HttpStack.Endpoint.NOAA, "/kp"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, stack.getCache().hitCount());
+        HttpCacheStats stats = stack.getStats(HttpStack.Endpoint.NOAA);
+        assertEquals(1, stats.getDownloads());
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getBytesDownloaded());
+        assertEquals(3, stats.getBytesSaved());
+    }
+
+    @Test
+    public void staleFeedIsRevalidatedWithAConditionalGet() throws Exception {
+        // Last changed five minutes ago, so already past its one-minute cadence
+        long now = System.currentTimeMillis();
+        String feed = "[{\"kp_index\": 3}]";
+        server.enqueue(new MockResponse().setBody(feed)
+                .setHeader("Date", httpDate(now))
+                .setHeader("Last-Modified", httpDate(now - 5 * 60_000))
+                .setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("Date", httpDate(now)));
+
+        assertEquals(feed, get(HttpStack.Endpoint.NOAA, "/kp"));
+        try (Response response = execute(HttpStack.Endpoint.NOAA, "/kp")) {
+            assertEquals(feed, response.body().string());
+            assertEquals(HttpCacheStats.Outcome.NOT_MODIFIED, HttpCacheStats.outcome(response));
+        }
+
+        server.takeRequest();
+        RecordedRequest conditional = server.takeRequest();
+        // The ETag wins over Last-Modified
+        assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+
+        HttpCacheStats stats = stack.getStats(HttpStack.Endpoint.NOAA);
+        assertEquals(1, stats.getDownloads());
+        assertEquals(1, stats.getNotModified());
+        assertEquals(feed.length(), stats.getBytesDownloaded());
+        assertEquals(feed.length(), stats.getBytesSaved());
+        assertEquals(1, stats.getNetworkLatency().getCount());
+        assertEquals(1, stats.getCachedLatency().getCount());
+    }
+
+    @Test
+    public void feedFreshnessCountsFromItsLastChange() throws Exception {
+        long now = System.currentTimeMillis();
+        server.enqueue(new MockResponse().setBody("[]")
+                .setHeader("Date", httpDate(now))
+                .setHeader("Last-Modified", httpDate(now - 50_000)));
+        server.enqueue(new MockResponse().setBody("{}")
+                .setHeader("Date", httpDate(now))
+                .setHeader("Last-Modified", httpDate(now - 50_000)));
+
+        try (Response response = execute(HttpStack.Endpoint.NOAA, "/kp")) {
+            assertEquals("public, max-age=10", response.header("Cache-Control"));
+            assertTrue(HttpStack.ageMillis(response) < 5_000);
+        }
+        // Not periodic: the full freshness whatever the last change
+        try (Response response = execute(HttpStack.Endpoint.TREFLE, "/plants")) {
+            assertEquals("public, max-age=86400", response.header("Cache-Control"));
+        }
+    }
+
+    @Test
+    public void notModifiedWithOnlyAnETagCountsFromTheCachedLastChange() throws Exception {
+        long now = System.currentTimeMillis();
+        server.enqueue(new MockResponse().setBody("[]")
+                .setHeader("Date", httpDate(now))
+                .setHeader("Last-Modified", httpDate(now - 50_000))
+                .setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("Date", httpDate(now)));
+
+        assertEquals("[]", get(HttpStack.Endpoint.NOAA, "/kp"));
+        // max-age=0 makes the still-fresh copy go back to the server
+        Request revalidate = new Request.Builder().url(server.url("/kp"))
+                .header("Cache-Control", "max-age=0").build();
+        try (Response response = stack.client(HttpStack.Endpoint.NOAA).newCall(revalidate).execute()) {
+            assertEquals(HttpCacheStats.Outcome.NOT_MODIFIED, HttpCacheStats.outcome(response));
+            assertEquals("public, max-age=10", response.header("Cache-Control"));
+        }
+
+        server.takeRequest();
+        RecordedRequest conditional = server.takeRequest();
+        assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+        assertNull(conditional.getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void uncachedEndpointAlwaysGoesToTheNetwork() throws Exception {
+        server.enqueue(new MockResponse().setBody("first").setHeader("Cache-Control", "max-age=600"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", get(HttpStack.Endpoint.AI_SUMMARY, "/generate"));
+        assertEquals("second", get(HttpStack.Endpoint.AI_SUMMARY, "/generate"));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, stack.getCache().hitCount());
+    }
+
+    @Test
+    public void responsesAreGzipped() throws Exception {
+        String json = "[{\"kp_index\": 2.33}]";
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(new Buffer().write(gzip(json))));
+
+        assertEquals(json, get(HttpStack.Endpoint.NOAA, "/kp"));
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+    }
+
+    private String get(HttpStack.Endpoint endpoint, String path) throws IOException {
+        try (Response response = execute(endpoint, path)) {
+            return response.body().string();
+        }
+    }
+
+    private Response execute(HttpStack.Endpoint endpoint, String path) throws IOException {
+        Request request = new Request.Builder().url(server.url(path)).build();
+        return stack.client(endpoint).newCall(request).execute();
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Tensor;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImagePreprocessorTest {
+
+    private static final int IMG_SIZE = 224;
+    private static final int NUM_CLASSES = 38;
+
+    @Test
+    public void normalize_matchesNormalizeOp() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, NUM_CLASSES);
+        int[] pixels = randomPixels(new Random(42));
+
+        ByteBuffer input = preprocessor.processPixels(pixels);
+        assertEquals(IMG_SIZE * IMG_SIZE * 3 * 4, input.capacity());
+        assertEquals(ByteOrder.nativeOrder(), input.order());
+
+        // Reference: TensorImage keeps RGB as floats, NormalizeOp(0, 255) computes (x - 0) / 255
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            float[] rgb = {(p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF};
+            for (int c = 0; c < 3; c++) {
+                float expected = (rgb[c] - 0f) / 255f;
+                assertEquals(Float.floatToIntBits(expected),
+                        Float.floatToIntBits(input.getFloat((i * 3 + c) * 4)));
+            }
+        }
+    }
+
+    @Test
+    public void argMax_keepsFirstOfTies() {
+        assertEquals(2, ImagePreprocessor.argMax(new float[]{0.1f, 0.2f, 0.7f}));
+        assertEquals(0, ImagePreprocessor.argMax(new float[]{0.5f, 0.5f, 0f}));
+    }
+
+    @Test
+    public void batchOutput_viewsMatchBatchSizeAndShareMemory() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, NUM_CLASSES);
+        for (int count : new int[]{1, 4, 8, 16}) {
+            ByteBuffer output = preprocessor.batchOutputBuffer(count);
+            // The interpreter rejects buffers whose capacity differs from the tensor size
+            assertEquals(count * NUM_CLASSES * 4, output.capacity());
+            assertEquals(ByteOrder.nativeOrder(), output.order());
+            for (int i = 0; i < count * NUM_CLASSES; i++) {
+                output.putFloat(i);
+            }
+            for (int image = 0; image < count; image++) {
+                float[] scores = preprocessor.readBatchScores(image);
+                assertEquals(image * NUM_CLASSES, scores[0], 0f);
+                assertEquals(image * NUM_CLASSES + NUM_CLASSES - 1, scores[NUM_CLASSES - 1], 0f);
+            }
+        }
+        assertSame(preprocessor.batchOutputBuffer(4), preprocessor.batchOutputBuffer(4));
+    }
+
+    @Test
+    public void quantizedInput_feedsRawPixels() {
+        // Typical uint8 export: scale 1/255, zero point 0 -> the raw channel value
+        ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, NUM_CLASSES,
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 255f, 0),
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 256f, 0));
+        assertTrue(preprocessor.isQuantized());
+        int[] pixels = randomPixels(new Random(3));
+
+        ByteBuffer input = preprocessor.processPixels(pixels);
+        assertEquals(IMG_SIZE * IMG_SIZE * 3, input.capacity());
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            assertEquals((p >> 16) & 0xFF, input.get(i * 3) & 0xFF);
+            assertEquals((p >> 8) & 0xFF, input.get(i * 3 + 1) & 0xFF);
+            assertEquals(p & 0xFF, input.get(i * 3 + 2) & 0xFF);
+        }
+        // One byte per score in the batch output as well
+        assertEquals(4 * NUM_CLASSES, preprocessor.batchOutputBuffer(4).capacity());
+    }
+
+    @Test
+    public void quantizedInput_int8UsesZeroPoint() {
+        byte[] table = ImagePreprocessor.quantizationTable(DataType.INT8,
+                new Tensor.QuantizationParams(1f / 255f, -128));
+        assertEquals(-128, table[0]);
+        assertEquals(0, table[128]);
+        assertEquals(127, table[255]);
+        // Values outside the int8 range are clamped
+        byte[] coarse = ImagePreprocessor.quantizationTable(DataType.INT8,
+                new Tensor.QuantizationParams(1f / 512f, 0));
+        assertEquals(127, coarse[255]);
+    }
+
+    @Test
+    public void quantizedOutput_isDequantized() {
+        ImagePreprocessor uint8 = new ImagePreprocessor(IMG_SIZE, 3,
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 255f, 0),
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 256f, 0));
+        ByteBuffer output = uint8.outputBuffer();
+        assertEquals(3, output.capacity());
+        output.put((byte) 0).put((byte) 64).put((byte) 192);
+        assertArrayEquals(new float[]{0f, 0.25f, 0.75f}, uint8.readScores(), 1e-6f);
+
+        ImagePreprocessor int8 = new ImagePreprocessor(IMG_SIZE, 3,
+                DataType.INT8, new Tensor.QuantizationParams(1f / 255f, -128),
+                DataType.INT8, new Tensor.QuantizationParams(1f / 256f, -128));
+        output = int8.outputBuffer();
+        output.put((byte) -128).put((byte) -64).put((byte) 127);
+        assertArrayEquals(new float[]{0f, 0.25f, 255f / 256f}, int8.readScores(), 1e-6f);
+        assertEquals(2, ImagePreprocessor.argMax(int8.readScores()));
+    }
+
+    // Covers the normalize and read-back half of a prediction. The resize half,
+    // process(Bitmap), draws into a scratch Bitmap through a Canvas; Bitmap is final and
+    // android.jar only has stubs of it on the JVM (createBitmap returns null), so that
+    // path can only be measured on a device.
+    @Test
+    public void processPixels_allocationStaysFlat() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(IMG_SIZE, NUM_CLASSES);
+        int[] pixels = randomPixels(new Random(7));
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up so class loading and JIT don't count
+        runPredictions(preprocessor, pixels, 1_000);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runPredictions(preprocessor, pixels, 1_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // The old path allocated a 224x224 float tensor (~600 KB) per prediction
+        assertTrue("allocated " + allocated + " bytes over 1000 predictions", allocated < 16 * 1024);
+    }
+
+    @Test
+    public void viewBounds_cropsStayInsideImage() {
+        int[] bounds = new int[4];
+        int width = 640;
+        int height = 480;
+        int side = Math.round(height * ImagePreprocessor.CROP_FRACTION);
+        for (int view = 0; view < ImagePreprocessor.VIEW_FLIP; view++) {
+            ImagePreprocessor.viewBounds(view, width, height, bounds);
+            assertEquals(side, bounds[2] - bounds[0]);
+            assertEquals(side, bounds[3] - bounds[1]);
+            assertTrue(bounds[0] >= 0 && bounds[1] >= 0);
+            assertTrue(bounds[2] <= width && bounds[3] <= height);
+        }
+        ImagePreprocessor.viewBounds(ImagePreprocessor.VIEW_CENTER, width, height, bounds);
+        assertArrayEquals(new int[]{(width - side) / 2, (height - side) / 2,
+                (width - side) / 2 + side, (height - side) / 2 + side}, bounds);
+        ImagePreprocessor.viewBounds(ImagePreprocessor.VIEW_BOTTOM_RIGHT, width, height, bounds);
+        assertArrayEquals(new int[]{width - side, height - side, width, height}, bounds);
+    }
+
+    @Test
+    public void flipHorizontally_mirrorsEachRow() {
+        int size = 3;
+        int[] pixels = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        ImagePreprocessor.flipHorizontally(pixels, size);
+        assertArrayEquals(new int[]{3, 2, 1, 6, 5, 4, 9, 8, 7}, pixels);
+        ImagePreprocessor.flipHorizontally(pixels, size);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, pixels);
+    }
+
+    private static void runPredictions(ImagePreprocessor preprocessor, int[] pixels, int count) {
+        for (int n = 0; n < count; n++) {
+            preprocessor.processPixels(pixels);
+            // Stand-in for tflite.run writing the output tensor
+            ByteBuffer output = preprocessor.outputBuffer();
+            for (int i = 0; i < NUM_CLASSES; i++) {
+                output.putFloat(i == n % NUM_CLASSES ? 0.9f : 0.001f);
+            }
+            float[] scores = preprocessor.readScores();
+            assertEquals(n % NUM_CLASSES, ImagePreprocessor.argMax(scores));
+        }
+    }
+
+    private static int[] randomPixels(Random random) {
+        int[] pixels = new int[IMG_SIZE * IMG_SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImageQualityGateTest {
+
+    private static final int SIZE = ImageQualityGate.SAMPLE_SIZE;
+
+    private static int rgb(int r, int g, int b) {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    // Leaf-like texture: green with random light and dark speckles
+    private static int[] texturedLeaf(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[SIZE * SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            int shade = 60 + random.nextInt(120);
+            pixels[i] = rgb(shade / 2, shade, shade / 3);
+        }
+        return pixels;
+    }
+
+    private static ImageQualityGate.Verdict evaluate(int[] pixels) {
+        return ImageQualityGate.evaluate(pixels, new int[pixels.length], SIZE);
+    }
+
+    @Test
+    public void sharpGreenPhoto_passes() {
+        ImageQualityGate.Verdict verdict = evaluate(texturedLeaf(1));
+        assertTrue(verdict.toString(), verdict.issues.isEmpty());
+        assertFalse(verdict.isRejected());
+        assertFalse(verdict.isFlagged());
+        assertEquals(1.0, verdict.greenRatio, 1e-9);
+    }
+
+    @Test
+    public void flatPhoto_isBlurry() {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, rgb(60, 140, 50));
+        ImageQualityGate.Verdict verdict = evaluate(pixels);
+        assertEquals(0, verdict.sharpness, 1e-9);
+        assertTrue(verdict.issues.contains(ImageQualityGate.Issue.BLURRY));
+        assertTrue(verdict.isRejected());
+    }
+
+    @Test
+    public void darkPhoto_isRejected() {
+        int[] pixels = texturedLeaf(2);
+        for (int i = 0; i < pixels.length; i++) {
+            // Quarter brightness, keeping the texture
+            pixels[i] = rgb(((pixels[i] >> 16) & 0xFF) / 4, ((pixels[i] >> 8) & 0xFF) / 4, (pixels[i] & 0xFF) / 4);
+        }
+        ImageQualityGate.Verdict verdict = evaluate(pixels);
+        assertTrue(verdict.toString(), verdict.issues.contains(ImageQualityGate.Issue.TOO_DARK));
+        assertTrue(verdict.isRejected());
+    }
+
+    @Test
+    public void sharpPhotoWithoutGreen_isOnlyFlagged() {
+        int[] pixels = texturedLeaf(3);
+        for (int i = 0; i < pixels.length; i++) {
+            // Swap red and green: a sharp, well exposed brown/red photo
+            int p = pixels[i];
+            pixels[i] = rgb((p >> 8) & 0xFF, (p >> 16) & 0xFF, p & 0xFF);
+        }
+        ImageQualityGate.Verdict verdict = evaluate(pixels);
+        assertEquals(Arrays.asList(ImageQualityGate.Issue.NO_PLANT), verdict.issues);
+        assertTrue(verdict.isFlagged());
+        assertFalse(verdict.isRejected());
+    }
+
+    @Test
+    public void metrics_countRejectionsAndIssues() {
+        ImageQualityGate gate = new ImageQualityGate();
+        int[] flat = new int[SIZE * SIZE];
+        Arrays.fill(flat, rgb(10, 20, 10));
+        gate.record(evaluate(texturedLeaf(4)), 200_000);
+        gate.record(evaluate(flat), 300_000);
+
+        assertEquals(2, gate.getEvaluated());
+        assertEquals(1, gate.getRejected());
+        assertEquals(0, gate.getFlagged());
+        assertEquals(1, gate.getIssueCount(ImageQualityGate.Issue.BLURRY));
+        assertEquals(1, gate.getIssueCount(ImageQualityGate.Issue.TOO_DARK));
+        assertEquals(2, gate.getLatency().getCount());
+    }
+
+    @Test
+    public void evaluate_takesWellUnderAMillisecond() {
+        int[] pixels = texturedLeaf(5);
+        int[] luminance = new int[pixels.length];
+        for (int i = 0; i < 2_000; i++) {
+            ImageQualityGate.evaluate(pixels, luminance, SIZE);
+        }
+        long[] times = new long[101];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            ImageQualityGate.evaluate(pixels, luminance, SIZE);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        assertTrue("median " + times[50] + " ns", times[50] < 1_000_000);
+    }
+
+    @Test
+    public void screenCheck_wordsRejectionsAndErrors() {
+        ImageQualityGate.ScreenCheck check = new ImageQualityGate.ScreenCheck("test");
+        assertEquals("", check.warning());
+
+        int[] flat = new int[SIZE * SIZE];
+        Arrays.fill(flat, rgb(60, 140, 50));
+        Exception rejected = new ImageQualityGate.RejectedException(evaluate(flat));
+        assertTrue(check.errorText(rejected).endsWith("Please retake the photo."));
+        assertTrue(check.errorText(rejected).contains(ImageQualityGate.Issue.BLURRY.message));
+
+        assertEquals("❌ Error: boom", check.errorText(new IllegalStateException("boom")));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InterpreterTunerTest {
+
+    @Test
+    public void candidates_coverThreadCountsUpToBudget() {
+        List<InterpreterTuner.Config> configs = InterpreterTuner.candidates(6);
+        // 1, 2, 4 and 6 threads, three delegate settings each
+        assertEquals(12, configs.size());
+        assertEquals(1, configs.get(0).numThreads);
+        assertEquals(6, configs.get(configs.size() - 1).numThreads);
+        for (InterpreterTuner.Config config : configs) {
+            assertTrue(config.numThreads <= 6);
+            // FP16 is only tried together with XNNPACK
+            assertTrue(!config.allowFp16 || config.useXnnpack);
+        }
+
+        assertEquals(3, InterpreterTuner.candidates(1).size());
+    }
+
+    @Test
+    public void config_roundTripsThroughPreferences() {
+        InterpreterTuner.Config config = new InterpreterTuner.Config(4, true, false);
+        InterpreterTuner.Config decoded = InterpreterTuner.Config.decode(config.encode());
+        assertNotNull(decoded);
+        assertEquals(4, decoded.numThreads);
+        assertTrue(decoded.useXnnpack);
+        assertFalse(decoded.allowFp16);
+
+        assertNull(InterpreterTuner.Config.decode(null));
+        assertNull(InterpreterTuner.Config.decode("4,true"));
+        assertNull(InterpreterTuner.Config.decode("x,true,false"));
+        assertNull(InterpreterTuner.Config.decode("0,true,false"));
+    }
+
+    @Test
+    public void threadBudget_splitsCoresBetweenInterpreters() {
+        assertEquals(2, InterpreterTuner.threadBudget(8, 4));
+        assertEquals(4, InterpreterTuner.threadBudget(8, 2));
+        assertEquals(1, InterpreterTuner.threadBudget(2, 4));
+        assertEquals(6, InterpreterTuner.threadBudget(6, 1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LiveScanPipelineTest {
+
+    private static final int NUM_CLASSES = 3;
+
+    @Test
+    public void slowClassifier_dropsFramesInsteadOfQueueing() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(320, 240);
+        List<Long> classified = new CopyOnWriteArrayList<>();
+        LiveScanPipeline pipeline = new LiveScanPipeline((frame, scores) -> {
+            classified.add(frame.timestampNanos);
+            Thread.sleep(20);
+            scores[1] = 1f;
+            return true;
+        }, NUM_CLASSES, 3, (classIndex, confidence, stable) -> { });
+        pipeline.start();
+
+        // Camera at ~500 fps against a classifier doing ~50
+        for (int i = 0; i < 100; i++) {
+            pipeline.offer(source.solid(100, 128, 128, 0));
+            Thread.sleep(2);
+        }
+        Thread.sleep(50);
+        pipeline.stop();
+
+        assertEquals(100, pipeline.getOffered());
+        assertEquals(pipeline.getOffered(), pipeline.getProcessed() + pipeline.getDropped());
+        assertTrue("dropped " + pipeline.getDropped(), pipeline.getDropped() > 50);
+        // Every frame is handed back exactly once, processed or not
+        assertEquals(source.produced.get(), source.closed.get());
+        // Frames are taken newest-first, never out of order
+        for (int i = 1; i < classified.size(); i++) {
+            assertTrue(classified.get(i) > classified.get(i - 1));
+        }
+    }
+
+    @Test
+    public void predictions_areSmoothedAndBecomeStable() throws Exception {
+        SyntheticFrameSource source = new SyntheticFrameSource(64, 64);
+        CountDownLatch done = new CountDownLatch(4);
+        List<Boolean> stable = new CopyOnWriteArrayList<>();
+        List<Float> confidence = new CopyOnWriteArrayList<>();
+        LiveScanPipeline pipeline = new LiveScanPipeline((frame, scores) -> {
+            scores[0] = 0.2f;
+            scores[1] = 0.8f;
+            scores[2] = 0f;
+            return true;
+        }, NUM_CLASSES, 3, (classIndex, c, s) -> {
+            assertEquals(1, classIndex);
+            confidence.add(c);
+            stable.add(s);
+            done.countDown();
+        });
+        pipeline.start();
+        for (int i = 0; i < 4; i++) {
+            pipeline.offer(source.solid(100, 128, 128, 0));
+            // One at a time, so none is dropped
+            while (pipeline.getProcessed() <= i) {
+                Thread.sleep(1);
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.stop();
+
+        assertEquals(0.8f, confidence.get(3), 1e-6);
+        assertFalse(stable.get(0));
+        assertFalse(stable.get(1));
+        assertTrue(stable.get(2));
+        assertTrue(stable.get(3));
+    }
+
+    @Test
+    public void framesAfterStop_areClosedImmediately() {
+        SyntheticFrameSource source = new SyntheticFrameSource(64, 64);
+        LiveScanPipeline pipeline = new LiveScanPipeline((frame, scores) -> true,
+                NUM_CLASSES, 3, (classIndex, confidence, stable) -> { });
+        pipeline.offer(source.solid(100, 128, 128, 0));
+        assertEquals(1, source.closed.get());
+        assertEquals(0, pipeline.getProcessed());
+    }
+
+    @Test
+    public void smoother_averagesOverWindow() {
+        PredictionSmoother smoother = new PredictionSmoother(2, 2);
+        smoother.add(new float[]{1f, 0f});
+        smoother.add(new float[]{0f, 1f});
+        assertEquals(0.5f, smoother.confidence(), 1e-6);
+        assertFalse(smoother.isStable());
+        // The first frame falls out of the window
+        float[] average = smoother.add(new float[]{0f, 1f});
+        assertEquals(1f, average[1], 1e-6);
+        assertEquals(1, smoother.top());
+        assertTrue(smoother.isStable());
+    }
+}
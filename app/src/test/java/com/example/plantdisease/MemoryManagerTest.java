@@ -0,0 +1,84 @@
+package com.example.plantdisease;
+
+import android.content.ComponentCallbacks2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryManagerTest {
+
+    @Test
+    public void tiersToRelease_followsSeverity() {
+        assertEquals(0, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(1, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(1, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        // Only backgrounded: no more than running low
+        assertEquals(1, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(1, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertEquals(2, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(2, MemoryManager.tiersToRelease(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+    }
+
+    @Test
+    public void release_goesCheapestFirstAndStopsAtTheLevel() {
+        MemoryManager manager = new MemoryManager();
+        List<String> released = new ArrayList<>();
+        // Registered in reverse order on purpose
+        manager.register(MemoryManager.Tier.INTERPRETERS, "model", () -> {
+            released.add("model");
+            return 4000;
+        });
+        manager.register(MemoryManager.Tier.JSON_CACHE, "json", () -> {
+            released.add("json");
+            return 10;
+        });
+
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertEquals(List.of("json"), released);
+
+        released.clear();
+        manager.onLowMemory();
+        assertEquals(List.of("json", "model"), released);
+        assertEquals(2, manager.getTrims());
+        assertEquals(10 + 4010, manager.getReleasedBytes());
+
+        // Nothing at all for a mild level
+        released.clear();
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertTrue(released.isEmpty());
+        assertEquals(2, manager.getTrims());
+    }
+
+    @Test
+    public void unregister_andFailingReleasable() {
+        MemoryManager manager = new MemoryManager();
+        List<String> released = new ArrayList<>();
+        MemoryManager.Releasable json = () -> {
+            released.add("json");
+            return 1;
+        };
+        manager.register(MemoryManager.Tier.JSON_CACHE, "broken", () -> {
+            throw new IllegalStateException("boom");
+        });
+        manager.register(MemoryManager.Tier.JSON_CACHE, "json", json);
+        manager.onLowMemory();
+        assertEquals(List.of("json"), released);
+
+        manager.unregister(json);
+        released.clear();
+        manager.onLowMemory();
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    public void recordReload_countsAndTimes() {
+        MemoryManager manager = new MemoryManager();
+        manager.recordReload("model", 12_000_000);
+        manager.recordReload("model", 8_000_000);
+        assertEquals(2, manager.getReloads());
+        assertEquals(10_000, manager.getReloadLatency().getMeanMicros(), 1);
+    }
+}
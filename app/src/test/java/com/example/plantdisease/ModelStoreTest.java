@@ -0,0 +1,186 @@
+package com.example.plantdisease;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelStoreTest {
+
+    private static final String LABELS = "{\"classes\": [\"a\", \"b\", \"c\"]}";
+    private static final ModelStore.Validator ACCEPT_ALL = (model, numClasses) -> { };
+
+    private File dir;
+    private File drop;
+    private ModelStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("model_store", "");
+        dir.delete();
+        drop = new File(dir, "drop");
+        drop.mkdirs();
+        store = new ModelStore(new File(dir, "store"));
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void install_copiesAndValidatesButDoesNotActivate() throws IOException {
+        AtomicInteger classes = new AtomicInteger();
+        ModelStore.Version version = store.install(write("m.tflite", "model-1"), write("l.json", LABELS),
+                (model, numClasses) -> {
+                    assertEquals(7, model.capacity());
+                    classes.set(numClasses);
+                });
+
+        assertEquals("v1", version.name);
+        assertEquals(3, classes.get());
+        ByteBuffer mapped = version.map();
+        assertEquals('m', mapped.get(0));
+        assertEquals(3, version.readLabels().getAsJsonArray("classes").size());
+        assertNull(store.current());
+        assertFalse(store.hasPrevious());
+    }
+
+    @Test
+    public void install_rejectsBadLabelsAndShapes() throws IOException {
+        File model = write("m.tflite", "model");
+        try {
+            store.install(model, write("l.json", "{\"classes\": []}"), ACCEPT_ALL);
+            fail("empty classes accepted");
+        } catch (IOException expected) {
+        }
+        try {
+            store.install(model, write("l.json", "not json {"), ACCEPT_ALL);
+            fail("broken JSON accepted");
+        } catch (IOException expected) {
+        }
+        try {
+            store.install(model, write("l.json", LABELS), (buffer, numClasses) -> {
+                throw new IOException("wrong shape");
+            });
+            fail("validator ignored");
+        } catch (IOException expected) {
+        }
+        // Nothing of the failed attempts is left behind, and numbering is unaffected
+        assertEquals("v1", store.install(model, write("l.json", LABELS), ACCEPT_ALL).name);
+    }
+
+    @Test
+    public void markCurrent_keepsPreviousForRollbackAndPrunesTheRest() throws IOException {
+        ModelStore.Version v1 = install("model-1");
+        store.markCurrent(v1);
+        assertEquals("v1", store.current().name);
+        assertTrue(store.hasPrevious());
+        assertNull(store.previous());
+
+        ModelStore.Version v2 = install("model-2");
+        store.markCurrent(v2);
+        ModelStore.Version v3 = install("model-3");
+        store.markCurrent(v3);
+        assertEquals("v3", store.current().name);
+        assertEquals("v2", store.previous().name);
+        assertFalse(v1.dir.exists());
+        assertTrue(v2.dir.exists());
+
+        // Rolling back swaps the two, so rolling back again returns to v3
+        store.markCurrent(store.previous());
+        assertEquals("v2", store.current().name);
+        assertEquals("v3", store.previous().name);
+
+        // Back to the bundled model
+        store.markCurrent(null);
+        assertNull(store.current());
+        assertEquals("v2", store.previous().name);
+        assertFalse(v3.dir.exists());
+    }
+
+    @Test
+    public void discard_onlyDeletesInactiveVersions() throws IOException {
+        ModelStore.Version v1 = install("model-1");
+        store.markCurrent(v1);
+        ModelStore.Version v2 = install("model-2");
+        store.discard(v1);
+        store.discard(v2);
+        assertTrue(v1.dir.exists());
+        assertFalse(v2.dir.exists());
+        assertEquals("v1", store.current().name);
+    }
+
+    @Test
+    public void checkShapes_matchesLabelsAndImageSize() throws IOException {
+        ModelStore.checkShapes(new int[]{1, 224, 224, 3}, new int[]{1, 38}, 224, 38);
+        try {
+            ModelStore.checkShapes(new int[]{1, 224, 224, 3}, new int[]{1, 40}, 224, 38);
+            fail("class count mismatch accepted");
+        } catch (IOException expected) {
+        }
+        try {
+            ModelStore.checkShapes(new int[]{1, 160, 160, 3}, new int[]{1, 38}, 224, 38);
+            fail("input size mismatch accepted");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void parseLabels_keepsExtras() throws IOException {
+        String json = "{\"classes\": [\"Aphid\"], \"facts\": {\"Aphid\": [\"one\", \"two\"]}}";
+        assertTrue(ModelStore.parseLabels(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))
+                .getAsJsonObject("facts").has("Aphid"));
+    }
+
+    @Test
+    public void modelVersion_closesAfterLastInFlightRelease() {
+        ModelVersion version = new ModelVersion("v1", null, null, null, null, ModelConfig.Precision.FLOAT32, 0);
+        assertTrue(version.retain());
+        assertTrue(version.retain());
+
+        version.retire();
+        assertFalse(version.retain());
+        assertFalse(version.isClosed());
+        version.release();
+        assertFalse(version.isClosed());
+        version.release();
+        assertTrue(version.isClosed());
+
+        ModelVersion idle = new ModelVersion("v2", null, null, null, null, ModelConfig.Precision.FLOAT32, 0);
+        idle.retire();
+        assertTrue(idle.isClosed());
+    }
+
+    private ModelStore.Version install(String content) throws IOException {
+        return store.install(write("m.tflite", content), write("l.json", LABELS), ACCEPT_ALL);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(drop, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.plantdisease;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Payloads in the format of the NOAA SWPC 1-minute feeds, oldest record first: every field
+ * the real feeds carry, with plausible values and the occasional null where the real
+ * solar-wind feed has gaps. Seeded, so the same call always gives the same bytes.
+ */
+final class NoaaFixtures {
+
+    private NoaaFixtures() {
+    }
+
+    // planetary_k_index_1m.json: a record per minute
+    static byte[] kpFeed(int minutes, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(minutes * 96).append('[');
+        for (int i = 0; i < minutes; i++) {
+            double estimated = Math.round(random.nextDouble() * 9 * 100) / 100.0;
+            int kp = (int) Math.round(estimated);
+            json.append(i > 0 ? ", " : "")
+                    .append("{\"time_tag\": \"").append(timeTag(i)).append('"')
+                    .append(", \"kp_index\": ").append(kp)
+                    .append(", \"estimated_kp\": ").append(estimated)
+                    .append(", \"kp\": \"").append(kp).append(estimated >= kp ? 'P' : 'M').append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // rtsw_mag_1m.json: a record per minute with a null every `gapEvery` minutes (0: none)
+    static byte[] magFeed(int minutes, int gapEvery, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(minutes * 480).append('[');
+        for (int i = 0; i < minutes; i++) {
+            boolean gap = gapEvery > 0 && i % gapEvery == gapEvery - 1;
+            json.append(i > 0 ? ", " : "")
+                    .append("{\"time_tag\": \"").append(timeTag(i)).append('"')
+                    .append(", \"active\": true, \"source\": \"DSCOVR\", \"range\": 4, \"scale\": null")
+                    .append(", \"sensitivity\": 0, \"manual_mode\": false, \"sample_size\": 60")
+                    .append(", \"bt\": ").append(gap ? "null" : number(random.nextDouble() * 12));
+            for (String component : new String[]{"bx_gse", "by_gse", "bz_gse", "theta_gse", "phi_gse",
+                    "bx_gsm", "by_gsm", "bz_gsm", "theta_gsm", "phi_gsm"}) {
+                json.append(", \"").append(component).append("\": ")
+                        .append(gap ? "null" : number(random.nextGaussian() * 6));
+            }
+            json.append(", \"max_telemetry_flag\": 0, \"max_data_flag\": 0, \"overall_quality\": 0}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+
+    private static String timeTag(int minute) {
+        return String.format(Locale.US, "2024-05-%02dT%02d:%02d:00",
+                10 + minute / (24 * 60), minute / 60 % 24, minute % 60);
+    }
+}
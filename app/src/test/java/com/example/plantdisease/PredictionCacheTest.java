@@ -0,0 +1,163 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PredictionCacheTest {
+
+    @Test
+    public void nearDuplicateHash_hitsCache() throws Exception {
+        PredictionCache cache = new PredictionCache(tempFile(), 1L, 8);
+        PredictionCache.Key key = new PredictionCache.Key(0b1011_0110L, 5);
+        cache.put(key, 3, 0.9f);
+
+        // Two bits away from the stored hash, same colour
+        PredictionCache.Entry entry = cache.get(new PredictionCache.Key(0b1011_0101L, 5));
+        assertNotNull(entry);
+        assertEquals(3, entry.classIndex);
+
+        // Too many bits away, or a different colour
+        assertNull(cache.get(new PredictionCache.Key(0b0100_1001L, 5)));
+        assertNull(cache.get(new PredictionCache.Key(0b1011_0110L, 6)));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvicted() throws Exception {
+        PredictionCache cache = new PredictionCache(tempFile(), 1L, 2);
+        PredictionCache.Key a = new PredictionCache.Key(0x0FL, 0);
+        PredictionCache.Key b = new PredictionCache.Key(0xF0L, 0);
+        PredictionCache.Key c = new PredictionCache.Key(0xFF00L, 0);
+        cache.put(a, 0, 0.5f);
+        cache.put(b, 1, 0.5f);
+        assertNotNull(cache.get(a));
+        cache.put(c, 2, 0.5f);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+    }
+
+    @Test
+    public void persistedEntries_surviveRestartUntilModelChanges() throws Exception {
+        File file = tempFile();
+        PredictionCache cache = new PredictionCache(file, 42L, 8);
+        cache.put(new PredictionCache.Key(0xABCDL, 1), 7, 0.75f);
+        cache.flush();
+
+        PredictionCache restored = new PredictionCache(file, 42L, 8);
+        PredictionCache.Entry entry = restored.get(new PredictionCache.Key(0xABCDL, 1));
+        assertNotNull(entry);
+        assertEquals(7, entry.classIndex);
+        assertEquals(0.75f, entry.confidence, 0f);
+
+        PredictionCache newModel = new PredictionCache(file, 43L, 8);
+        assertEquals(0, newModel.size());
+    }
+
+    @Test
+    public void sameHashDifferentColour_areSeparateEntries() throws Exception {
+        PredictionCache cache = new PredictionCache(tempFile(), 1L, 8);
+        cache.put(new PredictionCache.Key(0x1234L, 1), 3, 0.9f);
+        cache.put(new PredictionCache.Key(0x1234L, 2), 4, 0.8f);
+
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.get(new PredictionCache.Key(0x1234L, 1)).classIndex);
+        assertEquals(4, cache.get(new PredictionCache.Key(0x1234L, 2)).classIndex);
+    }
+
+    @Test
+    public void appendLog_isCompactedAndReplaysLatestEntries() throws Exception {
+        File file = tempFile();
+        PredictionCache cache = new PredictionCache(file, 42L, 4);
+        for (int i = 0; i < 50; i++) {
+            cache.put(new PredictionCache.Key(1L << (i % 6) | 0x1000L * i, 0), i, 0.5f);
+        }
+        cache.put(new PredictionCache.Key(0xBEEFL, 3), 1, 0.6f);
+        cache.put(new PredictionCache.Key(0xBEEFL, 3), 2, 0.7f);
+        cache.flush();
+
+        // Never more than COMPACT_FACTOR records per entry on disk
+        assertTrue(cache.getFileRecords() <= 4 * 4);
+        assertTrue(file.length() <= 12 + 16 * 20);
+
+        PredictionCache restored = new PredictionCache(file, 42L, 4);
+        assertEquals(4, restored.size());
+        PredictionCache.Entry entry = restored.get(new PredictionCache.Key(0xBEEFL, 3));
+        assertNotNull(entry);
+        assertEquals(2, entry.classIndex);
+        assertEquals(0.7f, entry.confidence, 0f);
+    }
+
+    @Test
+    public void clear_racingCompactingAppends_doesNotDeadlock() throws Exception {
+        File file = tempFile();
+        PredictionCache cache = new PredictionCache(file, 42L, 2);
+        Thread writer = new Thread(() -> {
+            // Far past the compaction threshold of 4 records per entry
+            for (int i = 0; i < 50_000; i++) {
+                cache.put(new PredictionCache.Key(i * 0x9E3779B97F4A7C15L, i & 7), i % 38, 0.5f);
+            }
+        });
+        Thread clearer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                cache.clear();
+            }
+        });
+        writer.start();
+        clearer.start();
+        writer.join(10_000);
+        clearer.join(10_000);
+        assertFalse("writer stuck", writer.isAlive());
+        assertFalse("clearer stuck", clearer.isAlive());
+
+        Thread flusher = new Thread(cache::flush);
+        flusher.start();
+        flusher.join(10_000);
+        assertFalse("disk thread stuck", flusher.isAlive());
+
+        cache.clear();
+        cache.flush();
+        assertEquals(0, cache.size());
+        assertFalse(file.exists());
+        assertEquals(0, new PredictionCache(file, 42L, 2).size());
+    }
+
+    @Test
+    public void fingerprint_changesWithModelFileAndLabels() {
+        long base = PredictionCache.fingerprint("v1", 1000L, 5000L, Arrays.asList("a", "b"));
+
+        assertEquals(base, PredictionCache.fingerprint("v1", 1000L, 5000L, Arrays.asList("a", "b")));
+        assertNotEquals(base, PredictionCache.fingerprint("v2", 1000L, 5000L, Arrays.asList("a", "b")));
+        assertNotEquals(base, PredictionCache.fingerprint("v1", 1001L, 5000L, Arrays.asList("a", "b")));
+        assertNotEquals(base, PredictionCache.fingerprint("v1", 1000L, 5001L, Arrays.asList("a", "b")));
+        assertNotEquals(base, PredictionCache.fingerprint("v1", 1000L, 5000L, Collections.singletonList("a")));
+    }
+
+    @Test
+    public void dHash_isStableUnderSmallBrightnessChange() {
+        int[] pixels = new int[9 * 8];
+        int[] brighter = new int[9 * 8];
+        for (int i = 0; i < pixels.length; i++) {
+            int v = (i * 37) % 200;
+            pixels[i] = 0xFF000000 | v << 16 | v << 8 | v;
+            int w = v + 10;
+            brighter[i] = 0xFF000000 | w << 16 | w << 8 | w;
+        }
+        assertEquals(PredictionCache.dHash(pixels), PredictionCache.dHash(brighter));
+    }
+
+    private static File tempFile() throws Exception {
+        File file = File.createTempFile("prediction_cache", ".bin");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScanInputTest {
+
+    private static final int IMG_SIZE = 224;
+
+    private static ScanInput prepare(int[] pixels) {
+        ImagePreprocessor shared = new ImagePreprocessor(IMG_SIZE, 1);
+        return new ScanInput(null, IMG_SIZE, pixels, shared.processPixels(pixels), null);
+    }
+
+    private static int[] randomPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[IMG_SIZE * IMG_SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    @Test
+    public void floatModels_shareTheNormalizedInput() {
+        int[] pixels = randomPixels(1);
+        ScanInput input = prepare(pixels);
+        ImagePreprocessor disease = new ImagePreprocessor(IMG_SIZE, 38);
+        ImagePreprocessor insect = new ImagePreprocessor(IMG_SIZE, 12);
+
+        ByteBuffer expected = new ImagePreprocessor(IMG_SIZE, 1).processPixels(pixels);
+        ByteBuffer a = input.inputFor(disease);
+        ByteBuffer b = input.inputFor(insect);
+        assertEquals(ByteOrder.nativeOrder(), a.order());
+        assertEquals(expected, a);
+        assertEquals(expected, b);
+
+        // Independent positions over the same memory
+        a.position(100);
+        assertEquals(0, b.position());
+        assertEquals(0, input.inputFor(disease).position());
+    }
+
+    @Test
+    public void quantizedModel_reencodesSharedPixels() {
+        int[] pixels = randomPixels(2);
+        ScanInput input = prepare(pixels);
+        ImagePreprocessor quantized = new ImagePreprocessor(IMG_SIZE, 12,
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 255f, 0),
+                DataType.UINT8, new Tensor.QuantizationParams(1f / 256f, 0));
+
+        ByteBuffer bytes = input.inputFor(quantized);
+        assertEquals(IMG_SIZE * IMG_SIZE * 3, bytes.capacity());
+        assertEquals((pixels[7] >> 8) & 0xFF, bytes.get(7 * 3 + 1) & 0xFF);
+    }
+
+    @Test
+    public void fits_onlyMatchingImageSize() {
+        ScanInput input = prepare(randomPixels(3));
+        assertTrue(input.fits(new ImagePreprocessor(IMG_SIZE, 5)));
+        assertFalse(input.fits(new ImagePreprocessor(96, 3)));
+    }
+}
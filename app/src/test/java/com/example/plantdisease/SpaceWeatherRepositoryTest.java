@@ -0,0 +1,313 @@
+package com.example.plantdisease;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class SpaceWeatherRepositoryTest {
+
+    private MockWebServer server;
+    private File cacheDir;
+    private SpaceWeatherRepository repository;
+    private HttpStack stack;
+    private volatile int kpStatus = 200;
+    private volatile long kpDelayMillis = 0;
+    private volatile long summaryDelayMillis = 0;
+    // Prompts the AI endpoint was sent
+    private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        // Slow enough that a second screen arrives while the first fetch is running
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().equals("/ai")) {
+                    prompts.add(request.getBody().readUtf8());
+                    return new MockResponse().setBody("{\"summary\":\"Quiet skies, reliable NDVI.\"}")
+                            .setBodyDelay(summaryDelayMillis, TimeUnit.MILLISECONDS);
+                }
+                if (request.getPath().equals("/kp")) {
+                    MockResponse response = kpStatus != 200 ? new MockResponse().setResponseCode(kpStatus)
+                            : feed(NoaaFixtures.kpFeed(60, 3));
+                    return response.setHeadersDelay(kpDelayMillis, TimeUnit.MILLISECONDS);
+                }
+                return feed(NoaaFixtures.magFeed(60, 0, 3));
+            }
+        });
+        server.start();
+        cacheDir = File.createTempFile("http_cache", "");
+        cacheDir.delete();
+        stack = new HttpStack(cacheDir, 1024 * 1024);
+        repository = newRepository(stack.client(HttpStack.Endpoint.NOAA), SpaceWeatherRepository.JOIN_TIMEOUT_MILLIS);
+    }
+
+    private SpaceWeatherRepository newRepository(OkHttpClient feeds, long joinTimeoutMillis) {
+        return new SpaceWeatherRepository(feeds, server.url("/kp").toString(), server.url("/wind").toString(),
+                stack.client(HttpStack.Endpoint.AI_SUMMARY), server.url("/ai").toString(),
+                joinTimeoutMillis, Runnable::run);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        delete(cacheDir);
+    }
+
+    @Test
+    public void twoScreensShareOneFetch() throws Exception {
+        Screen activity = new Screen();
+        Screen fragment = new Screen();
+
+        repository.observe(activity);
+        repository.observe(fragment);
+        SpaceWeatherSnapshot a = activity.awaitSummary(1);
+        SpaceWeatherSnapshot b = fragment.awaitSummary(1);
+
+        assertSame(a, b);
+        assertEquals(1, repository.getFetches());
+        assertEquals(1, repository.getJoined());
+        // Two feeds and one summary for both screens
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, repository.getSummaryCalls());
+        assertEquals("Quiet skies, reliable NDVI.", a.aiSummary);
+        assertTrue(a.hasCompleteInputs());
+
+        // A third screen within the cadence gets the snapshot right away, without a fetch
+        Screen third = new Screen();
+        repository.observe(third);
+        assertSame(a, third.snapshots.get(0));
+        assertEquals(1, repository.getFetches());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void refreshWithinTheCadenceIsAnsweredByTheHttpCache() throws Exception {
+        Screen screen = new Screen();
+        repository.observe(screen);
+        screen.awaitSummary(1);
+
+        repository.refresh();
+        SpaceWeatherSnapshot refreshed = screen.awaitSummary(2);
+
+        assertEquals(2, repository.getFetches());
+        assertEquals(3, server.getRequestCount());
+        assertTrue(refreshed.kpFreshness, refreshed.kpFreshness.startsWith("cached"));
+        // Unchanged readings keep the summary they already have
+        assertEquals(1, repository.getSummaryCalls());
+        assertEquals("Quiet skies, reliable NDVI.", refreshed.aiSummary);
+    }
+
+    @Test
+    public void removedScreenGetsNothing() throws Exception {
+        Screen gone = new Screen();
+        Screen staying = new Screen();
+        repository.observe(gone);
+        repository.observe(staying);
+        repository.removeObserver(gone);
+
+        staying.awaitSummary(1);
+        assertTrue(gone.snapshots.isEmpty());
+    }
+
+    @Test
+    public void failedFeedIsReportedAndTheOtherStillShown() throws Exception {
+        kpStatus = 503;
+        Screen screen = new Screen();
+        repository.observe(screen);
+        SpaceWeatherSnapshot snapshot = screen.awaitSummary(1);
+
+        assertTrue(snapshot.kpFailed);
+        assertEquals("Unable to fetch data", snapshot.kpStatus.text);
+        assertFalse(snapshot.solarWindFailed);
+        assertTrue(snapshot.hasSolarWind());
+        assertTrue(snapshot.describeFreshness(), snapshot.describeFreshness().startsWith("Kp failed"));
+        // Nothing to summarize without a Kp reading
+        assertEquals("AI summary unavailable.", snapshot.aiSummary);
+        assertEquals(0, repository.getSummaryCalls());
+    }
+
+    @Test
+    public void summaryWaitsForTheSlowerFeed() throws Exception {
+        // Solar wind is in well before the Kp index
+        kpDelayMillis = 600;
+        Screen screen = new Screen();
+        repository.observe(screen);
+        SpaceWeatherSnapshot snapshot = screen.awaitSummary(1);
+
+        // One snapshot with both feeds, then one with its summary
+        assertEquals(2, screen.snapshots.size());
+        assertNull(screen.snapshots.get(0).aiSummary);
+        assertEquals(1, prompts.size());
+        assertTrue(prompts.get(0), prompts.get(0).contains("Kp Index: " + String.format("%.1f", snapshot.kpIndex)));
+        assertFalse(prompts.get(0), prompts.get(0).contains("NaN"));
+        assertFalse(prompts.get(0), prompts.get(0).contains("Data unavailable"));
+    }
+
+    @Test
+    public void feedMissingTheDeadlineKeepsItsLastReading() throws Exception {
+        // No HTTP cache, so the refresh goes to the server
+        repository = newRepository(new OkHttpClient(), 500);
+        Screen screen = new Screen();
+        repository.observe(screen);
+        SpaceWeatherSnapshot first = screen.awaitSummary(1);
+
+        kpDelayMillis = 3000;
+        long start = System.currentTimeMillis();
+        repository.refresh();
+        SpaceWeatherSnapshot second = screen.awaitSummary(2);
+
+        assertTrue(System.currentTimeMillis() - start < 2500);
+        assertEquals(1, repository.getTimeouts());
+        assertFalse(second.kpFailed);
+        assertEquals(first.kpIndex, second.kpIndex, 0);
+        assertEquals(first.kpUpdatedAt, second.kpUpdatedAt);
+        assertTrue(second.kpFreshness, second.kpFreshness.startsWith("failed, last reading"));
+        assertEquals("downloaded just now", second.solarWindFreshness);
+        assertTrue(second.hasCompleteInputs());
+        assertEquals("Quiet skies, reliable NDVI.", second.aiSummary);
+    }
+
+    @Test
+    public void refreshCancelsTheSummaryInFlight() throws Exception {
+        summaryDelayMillis = 1000;
+        Screen screen = new Screen();
+        repository.observe(screen);
+        screen.awaitGeneration(1);
+        while (prompts.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        repository.refresh();
+        SpaceWeatherSnapshot refreshed = screen.awaitSummary(2);
+
+        assertEquals("Quiet skies, reliable NDVI.", refreshed.aiSummary);
+        assertEquals(2, repository.getSummaryCalls());
+        assertEquals(1, repository.getWastedSummaries());
+        // The first fetch never shows a summary
+        for (SpaceWeatherSnapshot snapshot : screen.snapshots) {
+            assertTrue(snapshot.generation != 1 || snapshot.aiSummary == null);
+        }
+    }
+
+    @Test
+    public void partialResults() {
+        long now = 10 * SpaceWeatherRepository.REFRESH_MILLIS;
+        SpaceWeatherRepository.Reading kp = new SpaceWeatherRepository.Reading(3, "downloaded just now", null);
+        SpaceWeatherRepository.Reading wind = new SpaceWeatherRepository.Reading(2, "downloaded just now", null);
+        SpaceWeatherRepository.Reading failed = SpaceWeatherRepository.Reading.failed(new IOException("HTTP 503"));
+
+        SpaceWeatherSnapshot full = SpaceWeatherRepository.combine(SpaceWeatherSnapshot.EMPTY, kp, wind, now);
+        assertTrue(full.hasCompleteInputs());
+
+        // Nothing earlier to fall back on
+        SpaceWeatherSnapshot noKp = SpaceWeatherRepository.combine(SpaceWeatherSnapshot.EMPTY, failed, wind, now);
+        assertTrue(noKp.kpFailed);
+        assertFalse(noKp.hasCompleteInputs());
+
+        // A recent reading stands in, an old one does not
+        SpaceWeatherSnapshot stale = SpaceWeatherRepository.combine(full, kp, failed, now + 90_000);
+        assertEquals("failed, last reading 90 s old", stale.solarWindFreshness);
+        assertEquals(full.solarWindSpeed, stale.solarWindSpeed, 0);
+        assertTrue(stale.hasCompleteInputs());
+        SpaceWeatherSnapshot tooOld = SpaceWeatherRepository.combine(full, failed, wind,
+                now + SpaceWeatherRepository.STALE_LIMIT_MILLIS);
+        assertTrue(tooOld.kpFailed);
+    }
+
+    @Test
+    public void summaryResponseShapes() {
+        assertEquals("a", SpaceWeatherRepository.parseSummary("{\"summary\":\"a\"}"));
+        assertEquals("b", SpaceWeatherRepository.parseSummary("{\"choices\":[{\"text\":\"b\"}]}"));
+        assertEquals("plain text", SpaceWeatherRepository.parseSummary("plain text"));
+    }
+
+    @Test
+    public void classification() {
+        SpaceWeatherSnapshot quiet = SpaceWeatherSnapshot.EMPTY.withKp(3.7, "downloaded just now", 1);
+        assertEquals("Quiet", quiet.kpStatus.text);
+        assertEquals(SpaceWeatherSnapshot.GREEN, quiet.cropImpact.color);
+        assertEquals("Normal radiation levels", quiet.radiationStatus.text);
+        assertEquals("N/A", quiet.solarWindStatus.text);
+
+        SpaceWeatherSnapshot storm = quiet.withKp(6, "cached, 10 s old", 2).withSolarWind(6, "downloaded just now", 3);
+        assertEquals("Storm", storm.kpStatus.text);
+        assertEquals("Elevated radiation — monitor crop stress", storm.radiationStatus.text);
+        // 300 + 6 * 50 km/s, 70 + 6 * 10 sfu
+        assertEquals(600, storm.solarWindSpeed, 0);
+        assertEquals("High-Speed Stream", storm.solarWindStatus.text);
+        assertEquals(130, storm.f107, 0);
+        assertEquals("Moderate Activity", storm.f107Status.text);
+        // The Kp reading survives the solar wind update
+        assertEquals(2, storm.kpUpdatedAt);
+
+        assertEquals("Unsettled", SpaceWeatherSnapshot.EMPTY.withKp(4, null, 1).kpStatus.text);
+        assertEquals("N/A", SpaceWeatherSnapshot.EMPTY.withKp(Double.NaN, null, 1).kpStatus.text);
+        assertNull(SpaceWeatherSnapshot.EMPTY.withKp(Double.NaN, null, 1).radiationStatus);
+        // No reading in the recent solar wind records counts as calm
+        assertEquals("Slow", SpaceWeatherSnapshot.EMPTY.withSolarWind(Double.NaN, null, 1).solarWindStatus.text);
+    }
+
+    private static MockResponse feed(byte[] json) {
+        return new MockResponse().setBody(new Buffer().write(json)).setBodyDelay(200, TimeUnit.MILLISECONDS);
+    }
+
+    // Records what a screen is shown
+    private static final class Screen implements SpaceWeatherRepository.Observer {
+        final List<SpaceWeatherSnapshot> snapshots = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onSnapshot(SpaceWeatherSnapshot snapshot) {
+            snapshots.add(snapshot);
+        }
+
+        // First snapshot of the fetch, before its summary
+        SpaceWeatherSnapshot awaitGeneration(long generation) throws InterruptedException {
+            return await(generation, false);
+        }
+
+        // Snapshot of the fetch once its summary (or why there is none) is in
+        SpaceWeatherSnapshot awaitSummary(long generation) throws InterruptedException {
+            return await(generation, true);
+        }
+
+        private SpaceWeatherSnapshot await(long generation, boolean summary) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline) {
+                for (SpaceWeatherSnapshot snapshot : snapshots) {
+                    if (snapshot.generation == generation && (!summary || snapshot.aiSummary != null)) {
+                        return snapshot;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("no snapshot #" + generation + " in " + snapshots);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.plantdisease;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Camera stand-in for the live pipeline tests: YUV_420_888 frames with the same plane
+// layout CameraX usually delivers (semi-planar chroma, pixel stride 2), filled with a
+// solid colour or with a luma gradient, counting how often frames are closed.
+final class SyntheticFrameSource {
+
+    final int width;
+    final int height;
+    final AtomicInteger produced = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+
+    SyntheticFrameSource(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    // Every pixel the same Y, U and V
+    YuvFrame solid(int y, int u, int v, int rotationDegrees) {
+        ByteBuffer yPlane = ByteBuffer.allocateDirect(width * height);
+        for (int i = 0; i < width * height; i++) {
+            yPlane.put(i, (byte) y);
+        }
+        return frame(yPlane, chroma(u, v), rotationDegrees);
+    }
+
+    // Luma rising left to right (x) or top to bottom, neutral chroma
+    YuvFrame gradient(boolean horizontal, int rotationDegrees) {
+        ByteBuffer yPlane = ByteBuffer.allocateDirect(width * height);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int value = horizontal ? col * 255 / (width - 1) : row * 255 / (height - 1);
+                yPlane.put(row * width + col, (byte) value);
+            }
+        }
+        return frame(yPlane, chroma(128, 128), rotationDegrees);
+    }
+
+    // Interleaved UV plane; the U and V buffers are views into it one byte apart
+    private ByteBuffer chroma(int u, int v) {
+        ByteBuffer uv = ByteBuffer.allocateDirect(width * height / 2);
+        for (int i = 0; i + 1 < uv.capacity(); i += 2) {
+            uv.put(i, (byte) u);
+            uv.put(i + 1, (byte) v);
+        }
+        return uv;
+    }
+
+    private YuvFrame frame(ByteBuffer yPlane, ByteBuffer uv, int rotationDegrees) {
+        ByteBuffer uPlane = uv.duplicate();
+        uv.position(1);
+        ByteBuffer vPlane = uv.slice();
+        produced.incrementAndGet();
+        return new YuvFrame(width, height, rotationDegrees, System.nanoTime(),
+                yPlane, width, uPlane, vPlane, width, 2, closed::incrementAndGet);
+    }
+}
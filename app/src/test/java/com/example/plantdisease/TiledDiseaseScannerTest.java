@@ -0,0 +1,110 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TiledDiseaseScannerTest {
+
+    private static final List<String> LABELS = Arrays.asList(
+            "Tomato - Early blight", "Tomato - healthy", "Tomato - Leaf Mold");
+
+    @Test
+    public void plan_staysWithinBudgetAndCoversPhoto() {
+        for (int maxTiles : new int[]{1, 4, 16, 48, 100}) {
+            TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(4000, 3000, maxTiles);
+            assertTrue(plan.count() + " tiles for budget " + maxTiles, plan.count() <= maxTiles);
+            assertTrue(Math.min(plan.tileWidth, plan.tileHeight) >= TiledDiseaseScanner.TILE_SIZE);
+            assertCovers(plan);
+        }
+    }
+
+    @Test
+    public void plan_neighboursOverlap() {
+        TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(4000, 3000, 48);
+        assertEquals(plan.tileWidth, plan.tileHeight);
+        int minOverlap = (int) (plan.tileWidth * TiledDiseaseScanner.OVERLAP);
+        for (int i = 1; i < plan.cols(); i++) {
+            assertTrue(plan.xs[i - 1] + plan.tileWidth - plan.xs[i] >= minOverlap);
+        }
+        for (int i = 1; i < plan.rows(); i++) {
+            assertTrue(plan.ys[i - 1] + plan.tileHeight - plan.ys[i] >= minOverlap);
+        }
+    }
+
+    @Test
+    public void plan_smallPhotoIsOneTile() {
+        TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(200, 150, 48);
+        assertEquals(1, plan.count());
+        assertArrayEquals(new int[]{0, 0, 200, 150}, plan.bounds(0));
+        assertEquals(1, plan.sampleSize);
+    }
+
+    @Test
+    public void plan_elongatedPhotoStretchesTilesToFitBudget() {
+        TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(6000, 300, 4);
+        assertEquals(4, plan.count());
+        assertCovers(plan);
+    }
+
+    @Test
+    public void sampleSize_keepsTileAtModelResolution() {
+        assertEquals(1, TiledDiseaseScanner.sampleSize(224));
+        assertEquals(1, TiledDiseaseScanner.sampleSize(447));
+        assertEquals(2, TiledDiseaseScanner.sampleSize(448));
+        assertEquals(4, TiledDiseaseScanner.sampleSize(1000));
+    }
+
+    @Test
+    public void aggregate_singleDiseasedTileWinsOverHealthyMajority() {
+        TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(896, 448, 48);
+        float[][] scores = new float[plan.count()][];
+        for (int t = 0; t < scores.length; t++) {
+            scores[t] = new float[]{0.02f, 0.95f, 0.03f};
+        }
+        scores[3] = new float[]{0.1f, 0.2f, 0.7f};
+
+        TiledDiseaseScanner.Result result = TiledDiseaseScanner.aggregate(scores, LABELS, plan);
+        assertEquals("Tomato - Leaf Mold", result.diagnosis.diseaseName);
+        assertEquals(0.7f, result.diagnosis.confidence, 1e-6);
+        assertEquals(1, result.diseasedTiles);
+        assertEquals(plan.rows() * plan.cols(), result.heat.length);
+        assertEquals(0.8f, result.heat[3], 1e-6);
+        assertEquals(0.05f, result.heat[0], 1e-6);
+    }
+
+    @Test
+    public void aggregate_healthyPhotoGetsHealthyClass() {
+        TiledDiseaseScanner.TilePlan plan = TiledDiseaseScanner.plan(448, 448, 48);
+        float[][] scores = new float[plan.count()][];
+        for (int t = 0; t < scores.length; t++) {
+            scores[t] = new float[]{0.1f, 0.8f, 0.1f};
+        }
+
+        TiledDiseaseScanner.Result result = TiledDiseaseScanner.aggregate(scores, LABELS, plan);
+        assertEquals("Tomato - healthy", result.diagnosis.diseaseName);
+        assertEquals(0.8f, result.diagnosis.confidence, 1e-5);
+        assertEquals(0, result.diseasedTiles);
+    }
+
+    // Every pixel of the photo is inside at least one tile
+    private static void assertCovers(TiledDiseaseScanner.TilePlan plan) {
+        int coveredRight = 0;
+        for (int col = 0; col < plan.cols(); col++) {
+            int[] bounds = plan.bounds(col);
+            assertTrue(bounds[0] <= coveredRight);
+            coveredRight = Math.max(coveredRight, bounds[2]);
+        }
+        assertEquals(plan.width, coveredRight);
+        int coveredBottom = 0;
+        for (int row = 0; row < plan.rows(); row++) {
+            int[] bounds = plan.bounds(row * plan.cols());
+            assertTrue(bounds[1] <= coveredBottom);
+            coveredBottom = Math.max(coveredBottom, bounds[3]);
+        }
+        assertEquals(plan.height, coveredBottom);
+    }
+}
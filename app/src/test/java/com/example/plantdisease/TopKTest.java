@@ -0,0 +1,126 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TopKTest {
+
+    private static final int DISEASE_CLASSES = 38;
+
+    @Test
+    public void select_matchesFullSort() {
+        Random random = new Random(3);
+        float[] scores = new float[DISEASE_CLASSES];
+        int[] indices = new int[5];
+        float[] top = new float[5];
+        for (int run = 0; run < 100; run++) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = random.nextFloat() - 0.5f;
+            }
+            assertEquals(5, TopK.select(scores, 5, indices, top));
+            Integer[] sorted = sortedIndices(scores);
+            for (int i = 0; i < 5; i++) {
+                assertEquals((int) sorted[i], indices[i]);
+                assertEquals(scores[sorted[i]], top[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void select_handlesTiesAndSmallInputs() {
+        int[] indices = new int[4];
+        float[] top = new float[4];
+        assertEquals(3, TopK.select(new float[]{0.2f, 0.5f, 0.2f}, 4, indices, top));
+        assertArrayEquals(new int[]{1, 0, 2}, Arrays.copyOf(indices, 3));
+    }
+
+    @Test
+    public void calibrateProbabilities_temperatureOneOnlyRenormalizes() {
+        float[] probs = {0.7f, 0.2f, 0.1f};
+        TopK.calibrateProbabilities(probs, 1f);
+        assertArrayEquals(new float[]{0.7f, 0.2f, 0.1f}, probs, 1e-5f);
+
+        float[] flattened = {0.7f, 0.2f, 0.1f};
+        TopK.calibrateProbabilities(flattened, 2f);
+        assertTrue(flattened[0] < 0.7f);
+        assertTrue(flattened[0] > flattened[1] && flattened[1] > flattened[2]);
+        assertEquals(1f, flattened[0] + flattened[1] + flattened[2], 1e-5f);
+    }
+
+    @Test
+    public void scratch_isReusedPerThreadAndGrows() throws Exception {
+        TopK.Scratch small = TopK.scratch(3);
+        assertSame(small, TopK.scratch(2));
+        assertTrue(small.indices.length >= 3 && small.scores.length >= 3);
+
+        TopK.Scratch large = TopK.scratch(10);
+        assertTrue(large.indices.length >= 10 && large.scores.length >= 10);
+        assertSame(large, TopK.scratch(5));
+
+        TopK.Scratch[] other = new TopK.Scratch[1];
+        Thread thread = new Thread(() -> other[0] = TopK.scratch(3));
+        thread.start();
+        thread.join();
+        assertNotSame(large, other[0]);
+    }
+
+    // Top-3 of the 38-class disease head against the full sort it replaced, timed in
+    // alternating trials so both see the same JIT and GC state; medians are compared
+    @Test
+    public void select_isNotSlowerThanFullSortOnDiseaseHead() {
+        Random random = new Random(11);
+        float[][] inputs = new float[256][DISEASE_CLASSES];
+        for (float[] scores : inputs) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = random.nextFloat();
+            }
+        }
+        int[] indices = new int[3];
+        float[] top = new float[3];
+        int rounds = 2_000;
+        long[] selectNs = new long[31];
+        long[] sortNs = new long[31];
+        long sink = 0;
+
+        for (int trial = -10; trial < selectNs.length; trial++) {
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                TopK.select(inputs[r & 255], 3, indices, top);
+                sink += indices[0];
+            }
+            long select = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink += sortedIndices(inputs[r & 255])[0];
+            }
+            long sort = System.nanoTime() - start;
+
+            // The first trials only warm up
+            if (trial >= 0) {
+                selectNs[trial] = select;
+                sortNs[trial] = sort;
+            }
+        }
+        Arrays.sort(selectNs);
+        Arrays.sort(sortNs);
+        assertTrue(sink > 0);
+        assertTrue("median of " + rounds + " calls: partial selection " + selectNs[15] +
+                        " ns, full sort " + sortNs[15] + " ns",
+                selectNs[15] <= sortNs[15]);
+    }
+
+    private static Integer[] sortedIndices(float[] scores) {
+        Integer[] order = new Integer[scores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -scores[i]));
+        return order;
+    }
+}
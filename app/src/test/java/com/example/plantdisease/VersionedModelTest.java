@@ -0,0 +1,154 @@
+package com.example.plantdisease;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VersionedModelTest {
+
+    private static final String LABELS = "{\"classes\": [\"a\", \"b\", \"c\"]}";
+
+    private File dir;
+    private ModelStore store;
+    private MemoryManager memory;
+    // Version names asked of the loader, in order
+    private final List<String> loads = new ArrayList<>();
+    private String broken;
+
+    // Versions without interpreters, so nothing here needs TFLite
+    private final VersionedModel.Loader loader = (context, version, precision) -> {
+        String name = version != null ? version.name : ModelStore.BUNDLED;
+        loads.add(name);
+        if (name.equals(broken)) {
+            throw new IOException("broken " + name);
+        }
+        return new ModelVersion(name, null, null, null, null, precision, 100);
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("versioned_model", "");
+        dir.delete();
+        new File(dir, "drop").mkdirs();
+        store = new ModelStore(new File(dir, "store"));
+        memory = new MemoryManager();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void start_prefersTheInstalledVersionUnlessItIsBroken() throws Exception {
+        assertEquals(ModelStore.BUNDLED, open().current().name);
+
+        store.markCurrent(install());
+        assertEquals("v1", open().current().name);
+
+        broken = "v1";
+        loads.clear();
+        assertEquals(ModelStore.BUNDLED, open().current().name);
+        assertEquals(List.of("v1", ModelStore.BUNDLED), loads);
+    }
+
+    @Test
+    public void swapTo_closesThePreviousVersionAfterItsLastPrediction() throws Exception {
+        VersionedModel model = open();
+        ModelVersion running = model.retain();
+
+        model.swapTo(null, install(), ModelConfig.Precision.FLOAT32);
+
+        assertEquals("v1", model.current().name);
+        assertTrue(running.isRetired());
+        assertFalse(running.isClosed());
+        running.release();
+        assertTrue(running.isClosed());
+    }
+
+    @Test
+    public void memoryTrim_reloadsTheSameVersionOnNextUse() throws Exception {
+        VersionedModel model = open();
+        model.swapTo(null, install(), ModelConfig.Precision.INT8);
+        ModelVersion trimmed = model.current();
+
+        memory.onLowMemory();
+        assertTrue(trimmed.isClosed());
+        assertEquals(List.of(ModelStore.BUNDLED, "v1"), loads);
+
+        ModelVersion reloaded = model.retain();
+        assertNotSame(trimmed, reloaded);
+        assertEquals("v1", reloaded.name);
+        assertEquals(ModelConfig.Precision.INT8, reloaded.precision);
+        assertEquals(1, memory.getReloads());
+        reloaded.release();
+
+        // Live and untrimmed: no more loads
+        model.retain().release();
+        assertEquals(3, loads.size());
+    }
+
+    @Test
+    public void failedReload_returnsNullAndIsTriedAgain() throws Exception {
+        VersionedModel model = open();
+        memory.onLowMemory();
+
+        broken = ModelStore.BUNDLED;
+        assertNull(model.retain());
+        broken = null;
+        ModelVersion reloaded = model.retain();
+        assertNotNull(reloaded);
+        reloaded.release();
+        assertEquals(1, memory.getReloads());
+    }
+
+    @Test
+    public void close_stopsReloadsAndTrims() throws Exception {
+        VersionedModel model = open();
+        ModelVersion version = model.current();
+
+        model.close();
+        assertTrue(version.isClosed());
+        assertNull(model.retain());
+
+        memory.onLowMemory();
+        assertEquals(1, loads.size());
+        assertEquals(0, memory.getReloads());
+    }
+
+    private VersionedModel open() throws Exception {
+        return new VersionedModel("test", null, store, memory, loader, ModelConfig.Precision.FLOAT32);
+    }
+
+    private ModelStore.Version install() throws IOException {
+        return store.install(write("m.tflite", "model-1"), write("l.json", LABELS), (model, numClasses) -> { });
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, "drop/" + name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.plantdisease;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class YuvConverterTest {
+
+    private static final int SIZE = 224;
+
+    private static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    private static int green(int argb) {
+        return (argb >> 8) & 0xFF;
+    }
+
+    private static int blue(int argb) {
+        return argb & 0xFF;
+    }
+
+    @Test
+    public void yuvToArgb_matchesBt601() {
+        // Grey stays grey
+        assertEquals(0xFF808080, YuvConverter.yuvToArgb(128, 0, 0));
+        // Pure red in full-range BT.601 is Y=76, U=-43, V=127
+        int red = YuvConverter.yuvToArgb(76, -43, 127);
+        assertTrue(red(red) >= 250 && green(red) <= 5 && blue(red) <= 5);
+        // Out-of-range results are clamped
+        assertEquals(0xFF000000, YuvConverter.yuvToArgb(0, 0, 0));
+        assertEquals(0xFFFFFFFF, YuvConverter.yuvToArgb(255, 0, 0));
+    }
+
+    @Test
+    public void solidFrame_convertsEveryPixel() {
+        SyntheticFrameSource source = new SyntheticFrameSource(640, 480);
+        int[] out = new int[SIZE * SIZE];
+        // Leaf green: Y=120, U=90, V=100 (centered -38, -28)
+        YuvConverter.toArgb(source.solid(120, 90, 100, 0), SIZE, out);
+        int expected = YuvConverter.yuvToArgb(120, 90 - 128, 100 - 128);
+        for (int pixel : out) {
+            assertEquals(expected, pixel);
+        }
+        assertTrue(green(expected) > red(expected) && green(expected) > blue(expected));
+    }
+
+    @Test
+    public void rotation_makesFrameUpright() {
+        SyntheticFrameSource source = new SyntheticFrameSource(640, 480);
+        int[] out = new int[SIZE * SIZE];
+
+        // Unrotated horizontal gradient: dark left, bright right
+        YuvConverter.toArgb(source.gradient(true, 0), SIZE, out);
+        assertTrue(red(out[0]) < red(out[SIZE - 1]));
+
+        // Rotated 90 clockwise the sensor's left edge becomes the top
+        YuvConverter.toArgb(source.gradient(true, 90), SIZE, out);
+        assertTrue(red(out[0]) < red(out[(SIZE - 1) * SIZE]));
+        assertEquals(red(out[0]), red(out[SIZE - 1]));
+
+        // 180: bright left, dark right
+        YuvConverter.toArgb(source.gradient(true, 180), SIZE, out);
+        assertTrue(red(out[0]) > red(out[SIZE - 1]));
+
+        // 270: the sensor's left edge becomes the bottom
+        YuvConverter.toArgb(source.gradient(true, 270), SIZE, out);
+        assertTrue(red(out[0]) > red(out[(SIZE - 1) * SIZE]));
+    }
+
+    @Test
+    public void convert_takesCenteredSquare() {
+        // 640x480 frame: the square crop spans x = 80..559, so the first column is not black
+        SyntheticFrameSource source = new SyntheticFrameSource(640, 480);
+        int[] out = new int[SIZE * SIZE];
+        YuvConverter.toArgb(source.gradient(true, 0), SIZE, out);
+        int left = red(out[0]);
+        int right = red(out[SIZE - 1]);
+        assertEquals(80 * 255 / 639, left, 3);
+        assertEquals(559 * 255 / 639, right, 3);
+    }
+}